@@ -0,0 +1,91 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data.Instance;
+import data.Label;
+import data.nlp.joint.Pair;
+import data.nlp.joint.Word;
+import model.SparseFeatureVector;
+import model.StringSparseVector;
+import utils.HashToInt;
+import utils.MersenneTwister;
+
+// feature extraction: calculateFeature for words and pairs, feature hashing and normalization
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureBenchmark {
+	private static final int NUM_KEYS = 1 << 10;
+	private Fixture fixture;
+	private Instance instance;
+	private Label gold;
+	private int wordIndex, pairIndex;
+	private HashToInt h2i;
+	private String[] keys;
+	private long[] codes;
+	private int next;
+	private StringSparseVector vector;
+
+	@Setup
+	public void setup() throws IOException {
+		fixture = new Fixture(20);
+		instance = fixture.getInstance();
+		gold = instance.getGoldLabel();
+		wordIndex = pairIndex = -1;
+		for(int i = 0;i < instance.size();i++){
+			if(wordIndex < 0 && instance.getSequence().get(i) instanceof Word){
+				wordIndex = i;
+			}else if(pairIndex < 0 && instance.getSequence().get(i) instanceof Pair){
+				pairIndex = i;
+			}
+		}
+		assert wordIndex >= 0 && pairIndex >= 0;
+		h2i = new HashToInt(fixture.params);
+		MersenneTwister random = new MersenneTwister(0);
+		keys = new String[NUM_KEYS];
+		codes = new long[NUM_KEYS];
+		vector = new StringSparseVector(fixture.params);
+		for(int i = 0;i < NUM_KEYS;i++){
+			keys[i] = "WORD:B-TYPE"+random.nextInt(10)+":"+Long.toString(random.nextLong(), 36);
+			codes[i] = HashToInt.code(keys[i]);
+			if(i < 100){
+				vector.add(keys[i], 1.);
+			}
+		}
+	}
+
+	@Benchmark
+	public SparseFeatureVector calculateWordFeature() {
+		return fixture.fg.calculateFeature(instance, gold, wordIndex, gold.getLabel(wordIndex));
+	}
+
+	@Benchmark
+	public SparseFeatureVector calculatePairFeature() {
+		return fixture.fg.calculateFeature(instance, gold, pairIndex, gold.getLabel(pairIndex));
+	}
+
+	@Benchmark
+	public int mapStringToInt() {
+		return h2i.mapToInt(keys[next++ & (NUM_KEYS - 1)]);
+	}
+
+	@Benchmark
+	public int mapCodeToInt() {
+		return h2i.mapToInt(codes[next++ & (NUM_KEYS - 1)]);
+	}
+
+	@Benchmark
+	public StringSparseVector normalize() {
+		return new StringSparseVector(vector).normalize();
+	}
+}
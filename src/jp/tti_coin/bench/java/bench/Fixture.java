@@ -0,0 +1,62 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.io.Files;
+
+import config.Parameters;
+import data.Instance;
+import data.nlp.joint.JointData;
+import data.nlp.joint.JointFeatureGenerator;
+import model.Model;
+import utils.MersenneTwister;
+import utils.SyntheticCorpus;
+
+// synthetic corpus with cached features and a model with random weights, shared by the benchmarks.
+// the parameters are read from the file in the bench.parameters property.
+public class Fixture {
+	private static final int NUM_DOCUMENTS = 5;
+	private static final int NUM_SENTENCES = 10;
+	public final Parameters params;
+	public final JointData data;
+	public final JointFeatureGenerator fg;
+	public final Model model;
+
+	public Fixture(int sentenceLength) throws IOException {
+		params = Parameters.load(System.getProperty("bench.parameters", "yaml/parameters-ranis-en-joint.yaml"));
+		params.setVerbosity(0);
+		File directory = Files.createTempDir();
+		SyntheticCorpus corpus = new SyntheticCorpus();
+		corpus.setNumDocuments(NUM_DOCUMENTS);
+		corpus.setNumSentences(NUM_SENTENCES);
+		corpus.setSentenceLength(sentenceLength, sentenceLength);
+		corpus.generate(directory.getPath());
+		data = new JointData(params, directory.getPath(), true);
+		for(File file:directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+		for(int i = 0;i < data.size();i++){
+			data.getInstance(i).cacheFeatures();
+		}
+		fg = new JointFeatureGenerator(params);
+		model = Model.create(params, fg);
+		MersenneTwister random = new MersenneTwister(0);
+		double[] weights = new double[params.fvSize()];
+		for(int i = 0;i < weights.length;i++){
+			weights[i] = random.nextGaussian();
+		}
+		model.initialize(1., weights);
+	}
+
+	// the first instance with at least one pair
+	public Instance getInstance() {
+		for(int i = 0;i < data.size();i++){
+			if(data.getInstance(i).size() > 1){
+				return data.getInstance(i);
+			}
+		}
+		return data.getInstance(0);
+	}
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import data.Instance;
+import inference.Inference;
+
+// decoding of one sentence and copying of a half-decoded state, for each sentence length (in tokens)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InferenceBenchmark {
+	@Param({"10", "20", "40"})
+	public int sentenceLength;
+	private Fixture fixture;
+	private Inference infer;
+	private inference.State state;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		fixture = new Fixture(sentenceLength);
+		infer = new Inference(fixture.params);
+		Instance instance = fixture.getInstance();
+		state = new inference.State(fixture.params, instance, true);
+		for(int i = 0;i < instance.size() / 2;i++){
+			state = state.getNextGoldState(fixture.model);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		infer.shutdown();
+	}
+
+	@Benchmark
+	public List<inference.State> inferBestState() {
+		Instance instance = fixture.data.getInstance(next++ % fixture.data.size());
+		return infer.inferBestState(fixture.model, instance, true);
+	}
+
+	@Benchmark
+	public inference.State copyState() {
+		return new inference.State(state);
+	}
+}
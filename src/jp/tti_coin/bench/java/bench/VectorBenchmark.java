@@ -0,0 +1,65 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data.Instance;
+import model.SparseFeatureVector;
+import model.WeightVector;
+
+// scoring and updating with the features of a whole instance,
+// in the composite form built by the feature generator and in the compacted form
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorBenchmark {
+	private Fixture fixture;
+	private SparseFeatureVector composite;
+	private SparseFeatureVector compacted;
+	private WeightVector weight;
+
+	@Setup
+	public void setup() throws IOException {
+		fixture = new Fixture(20);
+		Instance instance = fixture.getInstance();
+		composite = fixture.fg.calculateFeature(instance, instance.getGoldLabel(), instance.size());
+		compacted = new SparseFeatureVector(fixture.params);
+		compacted.add(composite);
+		compacted.compact();
+		weight = fixture.model.getWeight(false);
+	}
+
+	@Benchmark
+	public double dotComposite() {
+		return composite.dot(weight);
+	}
+
+	@Benchmark
+	public double dotCompacted() {
+		return compacted.dot(weight);
+	}
+
+	@Benchmark
+	public WeightVector addToWeight() {
+		// alternating signs keep the weights bounded
+		composite.addToWeight(1., weight);
+		composite.addToWeight(-1., weight);
+		return weight;
+	}
+
+	@Benchmark
+	public SparseFeatureVector compact() {
+		SparseFeatureVector fv = new SparseFeatureVector(fixture.params);
+		fv.add(composite);
+		fv.compact();
+		return fv;
+	}
+}
@@ -14,6 +14,8 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
@@ -28,6 +30,8 @@ import data.nlp.joint.PairLabelUnit;
 import data.nlp.joint.WordLabelUnit;
 import data.nlp.relation.RelationLabelUnit;
 
+import utils.Metrics;
+
 public class Parameters {
 	static class CustomConstructor extends Constructor {
 		@Override
@@ -65,6 +69,7 @@ public class Parameters {
 			Parameters params = (Parameters) new Yaml(new CustomConstructor()).loadAs(Files.newReader(new File(yamlFile), Charset.forName("UTF-8")), Parameters.class);
 			assert params != null;
 			params.check();
+			Metrics.setEnabled(params.getUseMetrics());
 			if(params.getVerbosity() > 2){
 				System.out.print(LEARNING_METHODS[params.getLearningMethod()]);
 				System.out.print(", "+UPDATE_METHODS[params.getUpdateMethod()]);
@@ -103,11 +108,24 @@ public class Parameters {
 	private int outputInterval;	
 	private int miniBatch;
 	private int processors;
+	private int inferenceProcessors;
+	private int loaderProcessors;
+	private int featureCacheSize;
+	private int weightStorage;
+	private int weightQuantization;
 	
 	private boolean useByte;
 	private boolean useSelfRelation;
 	private boolean useBestFirst;
 	private boolean useParallel;
+	private boolean useParallelPrediction;
+	private boolean useParallelTraining;
+	private boolean useHogwild;
+	private boolean useLazyExpansion;
+	private boolean useLocalScoreCache;
+	private boolean useBinaryModel;
+	private boolean useFrozenFeatures;
+	private boolean useMetrics;
 	private boolean useFullFeatures;
 	private boolean useSimpleFeatures;
 	private boolean useTermSurface;
@@ -141,6 +159,9 @@ public class Parameters {
 	private String testFolder;
 	private String trainVectorFile;
 	private String devVectorFile;
+	private String metricsFile;
+	private String corpusCacheFolder;
+	private String featureStoreFile;
 	
 	private String modelFile;
 	private String nictSynonymFile;
@@ -155,6 +176,8 @@ public class Parameters {
 	private Map<String, ParseParameters> parseParameters;
 	
 	private Multimap<String, LabelUnit> possibleLabels;
+	// possible labels of the pairs keyed by the type ids of their words, dropped when possibleLabels changes
+	private ConcurrentMap<Long, Collection<LabelUnit>> pairPossibleLabels = new ConcurrentHashMap<Long, Collection<LabelUnit>>();
 	
 	private Multimap<String, String> nictVerbEntailmentMap;
 
@@ -167,6 +190,9 @@ public class Parameters {
 		setOutputInterval(1);
 		setMiniBatch(5);
 		setProcessors(1);
+		setInferenceProcessors(0);
+		setLoaderProcessors(0);
+		setFeatureCacheSize(0);
 		setUseByte(false);
 		setUseSelfRelation(false);
 		setLearningMethod(1);
@@ -185,6 +211,16 @@ public class Parameters {
 		setUseSimpleFeatures(false);
 		setUseTermSurface(true);
 		setUseParallel(false);
+		setUseParallelPrediction(false);
+		setUseParallelTraining(false);
+		setUseHogwild(false);
+		setUseLazyExpansion(false);
+		setUseLocalScoreCache(false);
+		setUseBinaryModel(false);
+		setUseFrozenFeatures(false);
+		setUseMetrics(false);
+		setWeightStorage(0);
+		setWeightQuantization(0);
 		setUseLocalInit(false);
 		setUseRelationTypeFilter(true);
 		setLocalIteration(5);
@@ -199,6 +235,7 @@ public class Parameters {
 		setModelFile("model.txt");
 		setTrainVectorFile(null);
 		setDevVectorFile(null);
+		setMetricsFile(null);
 		setNictSynonymFile(null);
 		setNictVerbEntailmentFile(null);
 		setLogBilinearFile(null);
@@ -227,6 +264,22 @@ public class Parameters {
 			System.err.println("Dynamic sort is not available for the local features.");
 			System.exit(-1);
 		}
+		if(this.getUseHogwild() && !this.getUseParallelTraining()){
+			System.err.println("Hogwild is available only for parallel training.");
+			System.exit(-1);
+		}
+		if(this.getUseHogwild() && !this.usePerceptron() && !this.useAdaGrad()){
+			System.err.println("Hogwild is available only for Perceptron and AdaGrad.");
+			System.exit(-1);
+		}
+		if(this.getUseHogwild() && this.useSparseWeights()){
+			System.err.println("Hogwild is not available for the sparse weights.");
+			System.exit(-1);
+		}
+		if(this.getWeightQuantization() != 0 && this.getWeightQuantization() != 8 && this.getWeightQuantization() != 16){
+			System.err.println("weightQuantization should be 0, 8 or 16.");
+			System.exit(-1);
+		}
 		if(this.useSGDSVM()){
 			if(this.getLambda() == 1.){
 				System.err.println("lambda should not be 1 for SGDSVM.");
@@ -399,6 +452,30 @@ public class Parameters {
 	public Collection<LabelUnit> getPossibleLabels(String unitType) {
 		return possibleLabels.get(unitType);
 	}
+
+	// possible labels of a pair whose words have the type ids w1Type and w2Type (WordLabelUnit.NONE for no type)
+	public Collection<LabelUnit> getPairPossibleLabels(int w1Type, int w2Type) {
+		Long key = ((long)w1Type << 32) | (w2Type & 0xffffffffL);
+		Collection<LabelUnit> labels = pairPossibleLabels.get(key);
+		if(labels == null){
+			String type = ":";
+			if(getUseRelationTypeFilter()){
+				type = getTypeSymbol(w1Type)+":"+getTypeSymbol(w2Type);
+			}
+			if(possibleLabels.containsKey(type)){
+				labels = possibleLabels.get(type);
+			}else{
+				labels = new TreeSet<LabelUnit>();
+				labels.add(PairLabelUnit.getNegativeClassLabelUnit());
+			}
+			pairPossibleLabels.put(key, labels);
+		}
+		return labels;
+	}
+
+	private static String getTypeSymbol(int typeId) {
+		return typeId == WordLabelUnit.NONE ? "" : WordLabelUnit.TYPES.getSymbol(typeId);
+	}
 	
 	public String getPredAnnotationExtension() {
 		return predAnnotationExtension;
@@ -528,6 +605,7 @@ public class Parameters {
 		try{
 			this.setAverageNumWords(Double.valueOf(reader.readLine().trim()));
 			possibleLabels = TreeMultimap.create();
+			pairPossibleLabels.clear();
 			String line = reader.readLine().trim();
 			String[] entries = line.split("\t");
 			String type = entries[0];
@@ -734,6 +812,7 @@ public class Parameters {
 
 	public void setPossibleLabels(Multimap<String, LabelUnit> possibleLabels) {
 		this.possibleLabels = possibleLabels;		
+		this.pairPossibleLabels.clear();
 	}
 
 	public void setPredAnnotationExtension(String predAnnotationExtension) {
@@ -904,4 +983,110 @@ public class Parameters {
 	public void setLogBilinearFile(String logBilinearFile) {
 		this.logBilinearFile = logBilinearFile;
 	}
+	public int getInferenceProcessors() {
+		return inferenceProcessors;
+	}
+	public void setInferenceProcessors(int inferenceProcessors) {
+		this.inferenceProcessors = inferenceProcessors;
+	}
+	public boolean getUseParallelPrediction() {
+		return useParallelPrediction;
+	}
+	public void setUseParallelPrediction(boolean useParallelPrediction) {
+		this.useParallelPrediction = useParallelPrediction;
+	}
+	public boolean getUseParallelTraining() {
+		return useParallelTraining;
+	}
+	public void setUseParallelTraining(boolean useParallelTraining) {
+		this.useParallelTraining = useParallelTraining;
+	}
+	public boolean getUseHogwild() {
+		return useHogwild;
+	}
+	public void setUseHogwild(boolean useHogwild) {
+		this.useHogwild = useHogwild;
+	}
+	public boolean getUseLazyExpansion() {
+		return useLazyExpansion;
+	}
+	public void setUseLazyExpansion(boolean useLazyExpansion) {
+		this.useLazyExpansion = useLazyExpansion;
+	}
+	public boolean getUseLocalScoreCache() {
+		return useLocalScoreCache;
+	}
+	public void setUseLocalScoreCache(boolean useLocalScoreCache) {
+		this.useLocalScoreCache = useLocalScoreCache;
+	}
+	public boolean getUseBinaryModel() {
+		return useBinaryModel;
+	}
+	public void setUseBinaryModel(boolean useBinaryModel) {
+		this.useBinaryModel = useBinaryModel;
+	}
+	public int getWeightStorage() {
+		return weightStorage;
+	}
+	public void setWeightStorage(int weightStorage) {
+		assert weightStorage >= 0 && weightStorage <= 4;
+		this.weightStorage = weightStorage;
+	}
+	public boolean useFloatWeights() {
+		return getWeightStorage() == 1;
+	}
+	public boolean useSparseWeights() {
+		return getWeightStorage() == 2;
+	}
+	public boolean useOffHeapWeights() {
+		return getWeightStorage() == 3 || getWeightStorage() == 4;
+	}
+	public int getWeightQuantization() {
+		return weightQuantization;
+	}
+	public void setWeightQuantization(int weightQuantization) {
+		this.weightQuantization = weightQuantization;
+	}
+	public boolean getUseFrozenFeatures() {
+		return useFrozenFeatures;
+	}
+	public void setUseFrozenFeatures(boolean useFrozenFeatures) {
+		this.useFrozenFeatures = useFrozenFeatures;
+	}
+	public boolean getUseMetrics() {
+		return useMetrics;
+	}
+	public void setUseMetrics(boolean useMetrics) {
+		this.useMetrics = useMetrics;
+	}
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+	public void setMetricsFile(String metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+	public int getLoaderProcessors() {
+		return loaderProcessors;
+	}
+	public void setLoaderProcessors(int loaderProcessors) {
+		this.loaderProcessors = loaderProcessors;
+	}
+	public String getCorpusCacheFolder() {
+		return corpusCacheFolder;
+	}
+	public void setCorpusCacheFolder(String corpusCacheFolder) {
+		this.corpusCacheFolder = corpusCacheFolder;
+	}
+	public String getFeatureStoreFile() {
+		return featureStoreFile;
+	}
+	public void setFeatureStoreFile(String featureStoreFile) {
+		this.featureStoreFile = featureStoreFile;
+	}
+	public int getFeatureCacheSize() {
+		return featureCacheSize;
+	}
+	public void setFeatureCacheSize(int featureCacheSize) {
+		this.featureCacheSize = featureCacheSize;
+	}
 }
@@ -4,9 +4,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import utils.Metrics;
+
 import config.Parameters;
 
 public abstract class Data {
+	private static final Metrics.Timer LOAD = Metrics.timer("data.load");
+	private static final Metrics.Counter INSTANCES = Metrics.counter("data.instances");
 	protected List<Instance> instances;
 	protected Map<LabelUnit, Double> labelImportance;
 	protected Parameters params;
@@ -15,7 +19,10 @@ public abstract class Data {
 		this.params = params;
 		this.isTrain = isTrain;
 		this.instances = new Vector<Instance>();
+		long start = Metrics.start();
 		load(fileBase);
+		LOAD.stop(start);
+		INSTANCES.add(instances.size());
 		if(params.getVerbosity() > 2){
 			System.out.println(fileBase+" loaded!!");
 		}
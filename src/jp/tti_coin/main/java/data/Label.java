@@ -1,39 +1,87 @@
 package data;
 
-import java.util.Iterator;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 
 import config.Parameters;
 
+// persistent label sequence: copies share the full chunks and the tail,
+// and the tail is copied only when a copy is extended, so copying and extending
+// do not depend on the length of the sequence.
 public class Label {
+	private static final int CHUNK_SHIFT = 5;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final LabelUnit[][] NO_CHUNKS = new LabelUnit[0][];
 	private Parameters params;
-	private List<LabelUnit> labels;
-	
+	// full chunks, never modified once stored
+	private LabelUnit[][] chunks;
+	// last chunk, entries up to size are never modified
+	private LabelUnit[] tail;
+	private boolean ownsTail;
+	private int size;
+
 	public Label(Parameters params){
 		this.params = params;
-		this.labels = new Vector<LabelUnit>();
+		this.chunks = NO_CHUNKS;
+		this.tail = null;
+		this.ownsTail = false;
+		this.size = 0;
 	}
-	
+
 	public Label(Label label) {
 		this.params = label.params;
-		this.labels = new Vector<LabelUnit>(label.labels);
+		this.chunks = label.chunks;
+		this.tail = label.tail;
+		this.ownsTail = false;
+		this.size = label.size;
 	}
 
 	public void add(LabelUnit label) {
-		labels.add(label);		
+		int offset = size & CHUNK_MASK;
+		if(!ownsTail){
+			if(tail == null || offset == 0){
+				tail = new LabelUnit[CHUNK_SIZE];
+			}else{
+				tail = Arrays.copyOf(tail, CHUNK_SIZE);
+			}
+			ownsTail = true;
+		}
+		tail[offset] = label;
+		size++;
+		if((size & CHUNK_MASK) == 0){
+			chunks = Arrays.copyOf(chunks, chunks.length + 1);
+			chunks[chunks.length - 1] = tail;
+			tail = null;
+			ownsTail = false;
+		}
 	}
-	
+
 	public int size(){
-		return labels.size();
+		return size;
 	}
 	public LabelUnit getLabel(int index) {
-		assert index >= 0 && index < labels.size(); 
-		return labels.get(index);
+		assert index >= 0 && index < size;
+		int chunk = index >>> CHUNK_SHIFT;
+		if(chunk < chunks.length){
+			return chunks[chunk][index & CHUNK_MASK];
+		}
+		return tail[index & CHUNK_MASK];
 	}
-	
+
 	public List<LabelUnit> getLabels() {
-		return labels;
+		final int size = this.size;
+		return new AbstractList<LabelUnit>(){
+			@Override
+			public LabelUnit get(int index) {
+				return getLabel(index);
+			}
+			@Override
+			public int size() {
+				return size;
+			}
+		};
 	}
 
 	@Override
@@ -43,14 +91,12 @@ public class Label {
 		if(this.size() != label.size()){
 			return false;
 		}
-		Iterator<LabelUnit> thisIt = this.labels.iterator();
-		Iterator<LabelUnit> labelIt = label.labels.iterator();
-		while(thisIt.hasNext() && labelIt.hasNext()){
-			if(!thisIt.next().equals(labelIt.next())){
+		for(int i = 0;i < size;i++){
+			if(!this.getLabel(i).equals(label.getLabel(i))){
 				return false;
 			}
 		}
-		return true;		
+		return true;
 	}
 
 }
@@ -2,11 +2,14 @@ package data;
 
 import java.util.Collection;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import config.Parameters;
 
 public abstract class SequenceUnit{
 	protected Parameters params;
+	// local scores by label, valid while the weight vector has the recorded version
+	private volatile ConcurrentSkipListMap<LabelUnit, LocalScore> localScores;
 	abstract public String getType();
 	public abstract LabelUnit getNegativeClassLabel();
 
@@ -20,4 +23,40 @@ public abstract class SequenceUnit{
 		}
 		return labels;
 	}
+
+	// NaN if the score is not cached for the version
+	public double getLocalScore(LabelUnit label, long version) {
+		ConcurrentSkipListMap<LabelUnit, LocalScore> scores = localScores;
+		if(scores == null){
+			return Double.NaN;
+		}
+		LocalScore score = scores.get(label);
+		if(score == null || score.version != version){
+			return Double.NaN;
+		}
+		return score.score;
+	}
+
+	public void setLocalScore(LabelUnit label, long version, double score) {
+		ConcurrentSkipListMap<LabelUnit, LocalScore> scores = localScores;
+		if(scores == null){
+			synchronized(this){
+				scores = localScores;
+				if(scores == null){
+					scores = new ConcurrentSkipListMap<LabelUnit, LocalScore>();
+					localScores = scores;
+				}
+			}
+		}
+		scores.put(label, new LocalScore(version, score));
+	}
+
+	private static class LocalScore {
+		private final long version;
+		private final double score;
+		public LocalScore(long version, double score){
+			this.version = version;
+			this.score = score;
+		}
+	}
 }
@@ -0,0 +1,133 @@
+package data.nlp;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// immutable attributes of a node: key-value pairs sorted by key and then by value without duplicates,
+// the same entries as a TreeMultimap but in two arrays of interned strings.
+public class Attributes {
+	public static final Attributes EMPTY = new Attributes(new String[0], new String[0]);
+	// keys and values are shared by all the nodes (pos, cat, lexentry, etc. take a few values)
+	private static final ConcurrentMap<String, String> SYMBOLS = new ConcurrentHashMap<String, String>();
+	private final String[] keys;
+	private final String[] values;
+
+	private Attributes(String[] keys, String[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	public static String intern(String symbol) {
+		String interned = SYMBOLS.putIfAbsent(symbol, symbol);
+		return interned == null ? symbol : interned;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public String getKey(int i) {
+		return keys[i];
+	}
+
+	public String getValue(int i) {
+		return values[i];
+	}
+
+	// first entry of key, or size() if there is none
+	private int first(String key) {
+		int low = 0, high = keys.length;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if(keys[mid].compareTo(key) < 0){
+				low = mid + 1;
+			}else{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public boolean containsKey(String key) {
+		int i = first(key);
+		return i < keys.length && keys[i].equals(key);
+	}
+
+	// values of key in order
+	public List<String> get(String key) {
+		final int start = first(key);
+		int end = start;
+		while(end < keys.length && keys[end].equals(key)){
+			end++;
+		}
+		if(start == end){
+			return Collections.emptyList();
+		}
+		final int size = end - start;
+		return new AbstractList<String>(){
+			@Override
+			public String get(int index) {
+				if(index < 0 || index >= size){
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+				}
+				return values[start + index];
+			}
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	public static class Builder {
+		private String[] keys = new String[8];
+		private String[] values = new String[8];
+		private int size = 0;
+
+		public Builder add(String key, String value) {
+			if(size == keys.length){
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			keys[size] = intern(key);
+			values[size] = intern(value);
+			size++;
+			return this;
+		}
+
+		public Attributes build() {
+			if(size == 0){
+				return EMPTY;
+			}
+			Integer[] order = new Integer[size];
+			for(int i = 0;i < size;i++){
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>(){
+				@Override
+				public int compare(Integer i, Integer j) {
+					int c = keys[i].compareTo(keys[j]);
+					return c != 0 ? c : values[i].compareTo(values[j]);
+				}
+			});
+			String[] sortedKeys = new String[size];
+			String[] sortedValues = new String[size];
+			int n = 0;
+			for(int i:order){
+				if(n > 0 && sortedKeys[n - 1].equals(keys[i]) && sortedValues[n - 1].equals(values[i])){
+					continue;
+				}
+				sortedKeys[n] = keys[i];
+				sortedValues[n] = values[i];
+				n++;
+			}
+			size = 0;
+			return new Attributes(Arrays.copyOf(sortedKeys, n), Arrays.copyOf(sortedValues, n));
+		}
+	}
+}
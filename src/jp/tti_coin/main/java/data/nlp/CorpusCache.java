@@ -0,0 +1,383 @@
+package data.nlp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import config.Parameters;
+import data.nlp.relation.Relation;
+
+// binary cache of the text, parse and annotation files of a corpus directory (one file per directory in corpusCacheFolder).
+// the cache keeps the nodes and relations as they are read, before the trees are built,
+// so it only depends on the files and the parameters used for reading them.
+// the cache is checked with the paths, sizes and modification times of the files first,
+// and with the hash of their contents only when those differ. it is rebuilt from the files when both differ.
+public class CorpusCache {
+	private static final int MAGIC = 0x4a455243; // JERC
+	private static final int VERSION = 2;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final Parameters params;
+	private final File file;
+	private final List<String> fileBases;
+	// hash of the paths, sizes and modification times of the files
+	private final String stamp;
+	// hash of the contents of the files (computed when it is needed)
+	private String hash;
+	// records in the cache file (null if the cache is rebuilt)
+	private ByteBuffer buffer;
+	private Map<String, int[]> index;
+	// records to write (null if the cache is valid)
+	private ConcurrentMap<String, byte[]> records;
+
+	public CorpusCache(Parameters params, String baseDir) {
+		this.params = params;
+		File directory = new File(baseDir).getAbsoluteFile();
+		String directoryHash = Hashing.md5().hashString(directory.getPath(), UTF8).toString().substring(0, 8);
+		this.file = new File(params.getCorpusCacheFolder(), directory.getName()+"-"+directoryHash+".corpus");
+		this.fileBases = DocumentLoader.getFileBases(params, baseDir);
+		this.stamp = stamp();
+		if(!open()){
+			this.records = new ConcurrentHashMap<String, byte[]>();
+		}
+	}
+
+	private static String getName(String fileBase) {
+		return new File(fileBase).getName();
+	}
+
+	// files of fileBase read into the cache
+	private List<File> getFiles(String fileBase) {
+		List<File> files = new Vector<File>();
+		files.add(new File(fileBase+params.getTextExtension()));
+		for(String sourceDesc:params.getParseAnnotationDescs()){
+			files.add(new File(fileBase+params.getParseExtension(sourceDesc)));
+		}
+		files.add(new File(fileBase+params.getAnnotationExtension()));
+		return files;
+	}
+
+	// hasher of the reading parameters
+	private Hasher newHasher() {
+		Hasher hasher = Hashing.md5().newHasher();
+		hasher.putInt(VERSION);
+		hasher.putBoolean(params.getUseByte());
+		hasher.putBoolean(params.getUseEntityType());
+		hasher.putString(params.getTextExtension(), UTF8);
+		hasher.putString(params.getAnnotationExtension(), UTF8);
+		for(String sourceDesc:params.getParseAnnotationDescs()){
+			hasher.putString(sourceDesc, UTF8);
+			hasher.putString(params.getParseExtension(sourceDesc), UTF8);
+			hasher.putString(params.getParseIdAttributeType(sourceDesc), UTF8);
+		}
+		return hasher;
+	}
+
+	private String stamp() {
+		Hasher hasher = newHasher();
+		for(String fileBase:fileBases){
+			for(File file:getFiles(fileBase)){
+				hasher.putString(file.getAbsolutePath(), UTF8);
+				hasher.putLong(file.exists() ? file.length() : -1);
+				hasher.putLong(file.lastModified());
+			}
+		}
+		return hasher.hash().toString();
+	}
+
+	private String getHash() {
+		if(hash == null){
+			hash = hash();
+		}
+		return hash;
+	}
+
+	// hash of the reading parameters and the contents of the files
+	private String hash() {
+		Hasher hasher = newHasher();
+		try {
+			for(String fileBase:fileBases){
+				hasher.putString(getName(fileBase), UTF8);
+				for(File file:getFiles(fileBase)){
+					if(file.exists()){
+						byte[] bytes = Files.toByteArray(file);
+						hasher.putInt(bytes.length);
+						hasher.putBytes(bytes);
+					}else{
+						hasher.putInt(-1);
+					}
+				}
+			}
+		} catch (IOException e) {
+			if(params.getVerbosity() > 0){
+				e.printStackTrace();
+			}
+			// never matches a cache
+			return "";
+		}
+		return hasher.hash().toString();
+	}
+
+	// maps the cache file if it exists and has the same stamp or hash
+	private boolean open() {
+		if(!file.exists()){
+			return false;
+		}
+		int restampPosition = -1;
+		try {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if(buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+					return false;
+				}
+				int stampPosition = buffer.position();
+				String cachedStamp = readString(buffer);
+				String cachedHash = readString(buffer);
+				if(!cachedStamp.equals(stamp)){
+					if(!cachedHash.equals(getHash())){
+						return false;
+					}
+					// same contents with other times (e.g., copied files)
+					restampPosition = stampPosition;
+				}
+				int numRecords = buffer.getInt();
+				Map<String, int[]> index = new HashMap<String, int[]>();
+				for(int i = 0;i < numRecords;i++){
+					String name = readString(buffer);
+					int length = buffer.getInt();
+					index.put(name, new int[]{buffer.position(), length});
+					buffer.position(buffer.position() + length);
+				}
+				this.buffer = buffer;
+				this.index = index;
+			} finally {
+				randomAccessFile.close();
+			}
+		} catch (Exception e) {
+			// broken or truncated cache, rebuilt from the files
+			if(params.getVerbosity() > 0){
+				System.err.println("Corpus cache "+file+" is broken: "+e);
+			}
+			return false;
+		}
+		if(restampPosition >= 0){
+			try {
+				updateStamp(restampPosition);
+			} catch (IOException e) {
+				// checked with the contents again next time
+				if(params.getVerbosity() > 0){
+					e.printStackTrace();
+				}
+			}
+		}
+		if(params.getVerbosity() > 2){
+			System.out.println("Corpus cache "+file+" is used.");
+		}
+		return true;
+	}
+
+	// replaces the stamp of the cache file (the stamps have the same length)
+	private void updateStamp(int position) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(position);
+			byte[] bytes = stamp.getBytes(UTF8);
+			randomAccessFile.writeInt(bytes.length);
+			randomAccessFile.write(bytes);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	// reads the text, nodes and relations of document from the cache, false if they are not cached
+	public boolean read(Document document, List<Relation> relations) {
+		if(index == null || !index.containsKey(getName(document.getId()))){
+			return false;
+		}
+		int[] position = index.get(getName(document.getId()));
+		ByteBuffer record = buffer.duplicate();
+		record.position(position[0]);
+		record.limit(position[0] + position[1]);
+		List<String> symbols = new Vector<String>();
+		int textLength = record.getInt();
+		if(textLength >= 0){
+			byte[] text = new byte[textLength];
+			record.get(text);
+			document.setText(text);
+		}
+		int numNodes = record.getInt();
+		Attributes.Builder builder = new Attributes.Builder();
+		for(int i = 0;i < numNodes;i++){
+			String sourceDesc = readSymbol(record, symbols);
+			String id = readSymbol(record, symbols);
+			String type = readSymbol(record, symbols);
+			Offset offset = new Offset(record.getInt(), record.getInt());
+			int numAttributes = record.getInt();
+			for(int j = 0;j < numAttributes;j++){
+				builder.add(readSymbol(record, symbols), readSymbol(record, symbols));
+			}
+			document.addNode(new Node(params, document, offset, id, type, sourceDesc, builder.build()));
+		}
+		int numRelations = record.getInt();
+		for(int i = 0;i < numRelations;i++){
+			String id = readSymbol(record, symbols);
+			String type = readSymbol(record, symbols);
+			String sourceDesc = readSymbol(record, symbols);
+			int numArguments = record.getInt();
+			Multimap<String, String> arguments = TreeMultimap.create();
+			for(int j = 0;j < numArguments;j++){
+				arguments.put(readSymbol(record, symbols), readSymbol(record, symbols));
+			}
+			relations.add(new Relation(params, document, id, type, arguments, sourceDesc));
+		}
+		assert !record.hasRemaining() : document.getId();
+		return true;
+	}
+
+	// keeps the text, nodes and relations of document read from the files (before the trees are built)
+	public void write(Document document, Collection<Relation> relations) {
+		if(records == null){
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		Map<String, Integer> symbols = new HashMap<String, Integer>();
+		try {
+			if(document.getOffset() == null){
+				out.writeInt(-1);
+			}else{
+				byte[] text = params.getUseByte() ? document.byteText : document.utfText.getBytes(UTF8);
+				out.writeInt(text.length);
+				out.write(text);
+			}
+			out.writeInt(document.nodes.size());
+			for(Node node:document.nodes.values()){
+				writeSymbol(out, symbols, node.getSourceDesc());
+				writeSymbol(out, symbols, node.getId());
+				writeSymbol(out, symbols, node.getType());
+				out.writeInt(node.getOffset().getStart());
+				out.writeInt(node.getOffset().getEnd());
+				Attributes attributes = node.getAttributes();
+				out.writeInt(attributes.size());
+				for(int i = 0;i < attributes.size();i++){
+					writeSymbol(out, symbols, attributes.getKey(i));
+					writeSymbol(out, symbols, attributes.getValue(i));
+				}
+			}
+			out.writeInt(relations.size());
+			for(Relation relation:relations){
+				writeSymbol(out, symbols, relation.getId());
+				writeSymbol(out, symbols, relation.getType());
+				writeSymbol(out, symbols, relation.getSourceDesc());
+				out.writeInt(relation.getArguments().size());
+				for(Map.Entry<String, String> argument:relation.getArguments().entries()){
+					writeSymbol(out, symbols, argument.getKey());
+					writeSymbol(out, symbols, argument.getValue());
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		records.put(getName(document.getId()), bytes.toByteArray());
+	}
+
+	// writes the cache if it was rebuilt and releases the mapped file
+	public void close() {
+		buffer = null;
+		index = null;
+		if(records == null){
+			return;
+		}
+		if(records.size() == fileBases.size()){
+			File temporary = new File(file.getPath()+".tmp");
+			try {
+				file.getParentFile().mkdirs();
+				DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary));
+				try {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					writeString(out, stamp);
+					writeString(out, getHash());
+					out.writeInt(fileBases.size());
+					for(String fileBase:fileBases){
+						byte[] record = records.get(getName(fileBase));
+						writeString(out, getName(fileBase));
+						out.writeInt(record.length);
+						out.write(record);
+					}
+				} finally {
+					out.close();
+				}
+				file.delete();
+				if(!temporary.renameTo(file)){
+					throw new IOException("Cannot rename "+temporary+" to "+file);
+				}
+				if(params.getVerbosity() > 2){
+					System.out.println("Corpus cache "+file+" is created.");
+				}
+			} catch (IOException e) {
+				temporary.delete();
+				if(params.getVerbosity() > 0){
+					e.printStackTrace();
+				}
+			}
+		}
+		records = null;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	// a string is written the first time it appears in a record, and referred by its index after that
+	private static void writeSymbol(DataOutputStream out, Map<String, Integer> symbols, String symbol) throws IOException {
+		Integer index = symbols.get(symbol);
+		if(index != null){
+			out.writeInt(index);
+		}else{
+			out.writeInt(symbols.size());
+			symbols.put(symbol, symbols.size());
+			writeString(out, symbol);
+		}
+	}
+
+	private static String readSymbol(ByteBuffer buffer, List<String> symbols) {
+		int index = buffer.getInt();
+		if(index < symbols.size()){
+			return symbols.get(index);
+		}
+		assert index == symbols.size();
+		String symbol = Attributes.intern(readString(buffer));
+		symbols.add(symbol);
+		return symbol;
+	}
+}
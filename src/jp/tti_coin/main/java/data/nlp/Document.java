@@ -1,6 +1,7 @@
 package data.nlp;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -10,6 +11,8 @@ import java.util.Vector;
 
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import config.Parameters;
 
@@ -21,6 +24,7 @@ public class Document extends Node {
 	protected List<Sentence> sentences;
 	protected Multimap<Offset, Node> nodes;
 	protected List<Instance> instances;
+	protected String fingerprint;
 	
 	public Document(Parameters params, String id) {
 		this(params, null, null, id, "", "");
@@ -130,5 +134,32 @@ public class Document extends Node {
 		return instances;
 	}
 
+	// hash of the text and the nodes read from the files
+	public synchronized String getFingerprint() {
+		if(fingerprint == null){
+			Charset utf8 = Charset.forName("UTF-8");
+			Hasher hasher = Hashing.murmur3_128().newHasher();
+			if(byteText != null){
+				hasher.putBytes(byteText);
+			}else if(utfText != null){
+				hasher.putString(utfText, utf8);
+			}
+			for(Node node:nodes.values()){
+				hasher.putInt(node.getOffset().getStart());
+				hasher.putInt(node.getOffset().getEnd());
+				hasher.putString(node.getId(), utf8);
+				hasher.putString(node.getType(), utf8);
+				hasher.putString(node.getSourceDesc(), utf8);
+				Attributes attributes = node.getAttributes();
+				for(int i = 0;i < attributes.size();i++){
+					hasher.putString(attributes.getKey(i), utf8);
+					hasher.putString(attributes.getValue(i), utf8);
+				}
+			}
+			fingerprint = hasher.hash().toString();
+		}
+		return fingerprint;
+	}
+
 	
 }
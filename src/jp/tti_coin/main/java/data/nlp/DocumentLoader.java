@@ -0,0 +1,184 @@
+package data.nlp;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.util.concurrent.Futures;
+
+import config.Parameters;
+
+import data.Instance;
+
+// reads the documents of a directory in parallel and returns them in the order of their file names.
+// at most two documents per worker are read ahead of the consumer,
+// so the memory is bounded when the documents are not kept after they are consumed (see instances()).
+public class DocumentLoader<D extends Document> implements Iterator<D> {
+	public interface Reader<D> {
+		// reads and builds the document of fileBase (file name without the text extension), on the loader threads
+		D read(String fileBase);
+		// finishes the document on the consuming thread, in the order of the documents
+		void finish(D document);
+	}
+
+	private final List<String> fileBases;
+	private final Reader<D> reader;
+	private final Queue<Future<D>> pending;
+	private final int window;
+	private ExecutorService threadPool;
+	private int next;
+
+	public DocumentLoader(Parameters params, String baseDir, Reader<D> reader) {
+		this.fileBases = getFileBases(params, baseDir);
+		this.reader = reader;
+		this.pending = new LinkedList<Future<D>>();
+		int workers = params.getLoaderProcessors();
+		if(workers <= 0){
+			workers = params.getProcessors();
+		}
+		if(workers <= 0){
+			workers = Runtime.getRuntime().availableProcessors();
+		}
+		workers = Math.min(workers, fileBases.size());
+		if(workers > 1){
+			this.threadPool = Executors.newFixedThreadPool(workers, new ThreadFactory(){
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "loader-"+(count++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		this.window = workers > 1 ? 2 * workers : 1;
+		this.next = 0;
+	}
+
+	// files with the text extension in baseDir, sorted by their names
+	public static List<String> getFileBases(final Parameters params, String baseDir) {
+		File directory = new File(baseDir);
+		assert directory.isDirectory() : baseDir;
+		File[] files = directory.listFiles(new FilenameFilter(){
+				public boolean accept(File dir, String name) {
+					File file = new File(dir.getAbsolutePath()+File.separator+name);
+					return file.isFile() && name.endsWith(params.getTextExtension());
+				}
+			});
+		Arrays.sort(files);
+		List<String> fileBases = new Vector<String>(files.length);
+		for(File file:files){
+			fileBases.add(file.getAbsolutePath().substring(0, file.getAbsolutePath().length()-params.getTextExtension().length()));
+		}
+		return fileBases;
+	}
+
+	public int size() {
+		return fileBases.size();
+	}
+
+	private void fill() {
+		while(next < fileBases.size() && pending.size() < window){
+			final String fileBase = fileBases.get(next++);
+			if(threadPool == null){
+				pending.add(Futures.immediateFuture(reader.read(fileBase)));
+			}else{
+				pending.add(threadPool.submit(new Callable<D>(){
+					@Override
+					public D call() throws Exception {
+						return reader.read(fileBase);
+					}
+				}));
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next < fileBases.size() || !pending.isEmpty();
+	}
+
+	@Override
+	public D next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		fill();
+		Future<D> document = pending.poll();
+		if(threadPool != null){
+			// keep the workers busy while the document is consumed
+			fill();
+		}
+		try {
+			D result = document.get();
+			reader.finish(result);
+			return result;
+		} catch (InterruptedException e) {
+			shutdown();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			shutdown();
+			if(e.getCause() instanceof Error){
+				throw (Error)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if(!hasNext()){
+				shutdown();
+			}
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public void shutdown() {
+		if(threadPool != null){
+			threadPool.shutdownNow();
+			threadPool = null;
+		}
+	}
+
+	// instances of the documents in order, the documents are not kept
+	public Iterator<Instance> instances() {
+		return new Iterator<Instance>(){
+			private Iterator<Instance> current = Collections.<Instance>emptyList().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while(!current.hasNext() && DocumentLoader.this.hasNext()){
+					current = DocumentLoader.this.next().getInstances().iterator();
+				}
+				return current.hasNext();
+			}
+
+			@Override
+			public Instance next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
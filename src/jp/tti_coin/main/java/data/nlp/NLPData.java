@@ -1,5 +1,8 @@
 package data.nlp;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.List;
 
 import config.Parameters;
@@ -20,4 +23,30 @@ public abstract class NLPData extends Data {
 	@Override
 	protected abstract void load(String dirBase);
 
+	// cache of the corpus in baseDir (null if corpusCacheFolder is not set)
+	protected CorpusCache openCorpusCache(String baseDir) {
+		if(params.getCorpusCacheFolder() == null){
+			return null;
+		}
+		return new CorpusCache(params, baseDir);
+	}
+
+	// reads the parse files of fileBase and adds their nodes to document
+	protected void loadParses(Document document, String fileBase) {
+		Charset charset = params.getUseByte() ? Charset.forName("US-ASCII") : Charset.forName("UTF-8");
+		for(String sourceDesc:params.getParseAnnotationDescs()){
+			try{
+				ParseReader parseReader = new ParseReader(new File(fileBase+params.getParseExtension(sourceDesc)), charset, params.getParseIdAttributeType(sourceDesc));
+				while(parseReader.next()){
+					Node node = new Node(params, document, parseReader.getOffset(), parseReader.getId(), parseReader.getType(), sourceDesc, parseReader.getAttributes());
+					document.addNode(node);
+				}
+			} catch (IOException e) {
+				if(params.getVerbosity() > 0){
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
 }
@@ -8,6 +8,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import model.FeatureCache;
+import utils.HashToInt;
 
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
@@ -27,15 +28,20 @@ public class Node implements Comparable<Node> {
 	protected Nodes nodes;
 	protected Node headNode;
 	protected Map<String, Set<Node>> headWords;
-	protected Multimap<String, String> attributes;
+	protected Attributes attributes;
 	protected Multimap<Node, String> relations;
 	protected Multimap<Node, String> arguments;
 	protected Multimap<Node, String> wordArguments;
 	protected FeatureCache cache;
+	// hash codes of realBase and pos, see calcCodes().
+	// the codes are written before the volatile flag, so the threads seeing the flag see the codes.
+	protected long realBaseCode;
+	protected long posCode;
+	protected volatile boolean coded = false;
 	public Node(Parameters params, Document document, Offset offset, String id, String type, String sourceDesc){
-		this(params, document, offset, id, type, sourceDesc, null);
+		this(params, document, offset, id, type, sourceDesc, Attributes.EMPTY);
 	}
-	public Node(Parameters params, Document document, Offset offset, String id, String type, String sourceDesc, Multimap<String, String> attributes){
+	public Node(Parameters params, Document document, Offset offset, String id, String type, String sourceDesc, Attributes attributes){
 		this.params = params;
 		this.document = document;
 		this.offset = offset;
@@ -116,6 +122,23 @@ public class Node implements Comparable<Node> {
 	public String getPOS() {
 		return pos;
 	}
+	public void calcCodes() {
+		realBaseCode = HashToInt.code(getRealBase());
+		posCode = HashToInt.code(pos);
+		coded = true;
+	}
+	public long getRealBaseCode() {
+		if(!coded){
+			calcCodes();
+		}
+		return realBaseCode;
+	}
+	public long getPOSCode() {
+		if(!coded){
+			calcCodes();
+		}
+		return posCode;
+	}
 	public String getSourceDesc() {
 		return sourceDesc;
 	}
@@ -123,6 +146,9 @@ public class Node implements Comparable<Node> {
 		return cache;
 	}
 	public void setCache(FeatureCache cache) {
+		if(this.cache != null && this.cache != cache){
+			this.cache.clear();
+		}
 		this.cache = cache;
 	}
 	@Override
@@ -148,7 +174,7 @@ public class Node implements Comparable<Node> {
 		relations.put(node, rel);		
 		assert relations.get(node).contains(rel);
 	}
-	public Multimap<String, String> getAttributes() {
+	public Attributes getAttributes() {
 		return attributes;
 	}
 	public void setHead(Node headNode) {
@@ -0,0 +1,216 @@
+package data.nlp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// reads the nodes of a parse annotation file (e.g., .enju.so), one node per line:
+// start, end, tag and key="value" attributes, either "start\tend\ttag attributes" or "start\tend\ttag\tattributes".
+// the file is mapped and tokenized in place; keys, values and tags are decoded only the first time they are seen by the thread.
+public class ParseReader {
+	private static final ThreadLocal<SymbolCache> SYMBOLS = new ThreadLocal<SymbolCache>(){
+		@Override
+		protected SymbolCache initialValue() {
+			return new SymbolCache();
+		}
+	};
+	private final ByteBuffer buffer;
+	private final Charset charset;
+	private final String idAttributeType;
+	private final SymbolCache symbols;
+	private final Attributes.Builder builder;
+	private int position;
+	private Offset offset;
+	private String type;
+	private String id;
+	private Attributes attributes;
+
+	public ParseReader(File file, Charset charset, String idAttributeType) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			randomAccessFile.close();
+		}
+		this.charset = charset;
+		this.idAttributeType = idAttributeType;
+		this.symbols = SYMBOLS.get();
+		this.builder = new Attributes.Builder();
+		this.position = 0;
+	}
+
+	// reads the next node, false at the end of the file
+	public boolean next() {
+		int limit = buffer.limit();
+		while(position < limit){
+			int lineStart = position;
+			int lineEnd = lineStart;
+			while(lineEnd < limit && buffer.get(lineEnd) != '\n'){
+				lineEnd++;
+			}
+			position = lineEnd + 1;
+			if(parseLine(lineStart, lineEnd)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Offset getOffset() {
+		return offset;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Attributes getAttributes() {
+		return attributes;
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private int find(int start, int end, byte b) {
+		while(start < end && buffer.get(start) != b){
+			start++;
+		}
+		return start;
+	}
+
+	private int parseInt(int start, int end) {
+		int value = 0;
+		for(int i = start;i < end;i++){
+			byte b = buffer.get(i);
+			if(b < '0' || b > '9'){
+				throw new NumberFormatException("Invalid offset in a parse file: "+symbols.get(buffer, start, end, charset));
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	private boolean parseLine(int start, int end) {
+		// same as trim() and split("\t")
+		while(start < end && isSpace(buffer.get(start))){
+			start++;
+		}
+		while(end > start && isSpace(buffer.get(end - 1))){
+			end--;
+		}
+		int tab1 = find(start, end, (byte)'\t');
+		int tab2 = find(tab1 + 1, end, (byte)'\t');
+		if(tab2 >= end){
+			return false;
+		}
+		int tab3 = find(tab2 + 1, end, (byte)'\t');
+		int typeEnd, attributeStart, attributeEnd;
+		if(tab3 >= end){
+			typeEnd = find(tab2 + 1, end, (byte)' ');
+			attributeStart = Math.min(typeEnd + 1, end);
+			attributeEnd = end;
+		}else{
+			typeEnd = tab3;
+			attributeStart = tab3 + 1;
+			attributeEnd = find(attributeStart, end, (byte)'\t');
+		}
+		offset = new Offset(parseInt(start, tab1), parseInt(tab1 + 1, tab2));
+		type = symbols.get(buffer, tab2 + 1, typeEnd, charset);
+		id = "";
+		parseAttributes(attributeStart, attributeEnd);
+		assert !id.equals("") : symbols.get(buffer, start, end, charset);
+		return true;
+	}
+
+	private void parseAttributes(int start, int end) {
+		int index = start;
+		while(index < end){
+			int equal = find(index, end, (byte)'=');
+			if(equal >= end){
+				break;
+			}
+			int keyStart = index, keyEnd = equal;
+			while(keyStart < keyEnd && isSpace(buffer.get(keyStart))){
+				keyStart++;
+			}
+			while(keyEnd > keyStart && isSpace(buffer.get(keyEnd - 1))){
+				keyEnd--;
+			}
+			// skip ="
+			int valueStart = Math.min(equal + 2, end);
+			int valueEnd = valueStart;
+			while(valueEnd < end && buffer.get(valueEnd) != '"'){
+				if(buffer.get(valueEnd) == '\\' && valueEnd + 1 < end && buffer.get(valueEnd + 1) == '"'){
+					valueEnd += 2;
+				}else{
+					valueEnd++;
+				}
+			}
+			String key = symbols.get(buffer, keyStart, keyEnd, charset);
+			String value = symbols.get(buffer, valueStart, Math.min(valueEnd, end), charset);
+			if(key.equals(idAttributeType)){
+				id = value;
+			}else{
+				builder.add(key, value);
+			}
+			index = valueEnd + 1;
+		}
+		attributes = builder.build();
+	}
+
+	// strings of the byte sequences seen by a thread, cleared when it gets full
+	private static class SymbolCache {
+		private static final int CAPACITY = 1 << 16;
+		private final byte[][] keys = new byte[CAPACITY][];
+		private final String[] symbols = new String[CAPACITY];
+		private int size = 0;
+
+		public String get(ByteBuffer buffer, int start, int end, Charset charset) {
+			int hash = 1;
+			for(int i = start;i < end;i++){
+				hash = 31 * hash + buffer.get(i);
+			}
+			hash ^= hash >>> 16;
+			int slot = hash & (CAPACITY - 1);
+			int length = end - start;
+			while(keys[slot] != null){
+				byte[] key = keys[slot];
+				if(key.length == length){
+					int i = 0;
+					while(i < length && key[i] == buffer.get(start + i)){
+						i++;
+					}
+					if(i == length){
+						return symbols[slot];
+					}
+				}
+				slot = (slot + 1) & (CAPACITY - 1);
+			}
+			byte[] key = new byte[length];
+			for(int i = 0;i < length;i++){
+				key[i] = buffer.get(start + i);
+			}
+			String symbol = Attributes.intern(new String(key, charset));
+			if(size >= CAPACITY / 2){
+				Arrays.fill(keys, null);
+				Arrays.fill(symbols, null);
+				size = 0;
+				slot = hash & (CAPACITY - 1);
+			}
+			keys[slot] = key;
+			symbols[slot] = symbol;
+			size++;
+			return symbol;
+		}
+	}
+}
@@ -63,17 +63,20 @@ public class Sentence extends Nodes {
 				if(params.getParseHeadAttributeType(parseAnnotationDesc) == null){
 					parseNode.setHead(null);
 				}
-				for(Entry<String, String> attribute:parseNode.getAttributes().entries()){
-					if(currentParseNodes.containsKey(attribute.getValue())){
-						assert !attribute.getValue().isEmpty();
-						Node argument = currentParseNodes.get(attribute.getValue());
+				Attributes attributes = parseNode.getAttributes();
+				for(int i = 0;i < attributes.size();i++){
+					String key = attributes.getKey(i);
+					String value = attributes.getValue(i);
+					if(currentParseNodes.containsKey(value)){
+						assert !value.isEmpty();
+						Node argument = currentParseNodes.get(value);
 						if(params.getIgnoredAttributeTypes(parseAnnotationDesc) != null && 
-								params.getIgnoredAttributeTypes(parseAnnotationDesc).contains(attribute.getKey())){
+								params.getIgnoredAttributeTypes(parseAnnotationDesc).contains(key)){
 							continue;
-						}else if(attribute.getKey().equals(params.getParseHeadAttributeType(parseAnnotationDesc))){
+						}else if(key.equals(params.getParseHeadAttributeType(parseAnnotationDesc))){
 							parseNode.setHead(argument);
 						}else{
-							parseNode.addArgument(argument, pred+attribute.getKey());
+							parseNode.addArgument(argument, pred+key);
 						}
 					}
 				}
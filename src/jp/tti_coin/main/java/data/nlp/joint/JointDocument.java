@@ -396,5 +396,27 @@ public class JointDocument extends Document {
 	public void addRelation(Relation relation) {
 		this.relations.add(relation);	
 	}
+
+	// interns the gold labels, called in the order of the documents after buildRelations,
+	// so that the label ids do not depend on the loader threads
+	public void internLabels() {
+		for(Instance instance:instances){
+			Label label = instance.getGoldLabel();
+			int size = label.size();
+			for(int i = 0;i < size;i++){
+				LabelUnit unit = label.getLabel(i);
+				if(unit instanceof WordLabelUnit){
+					((WordLabelUnit)unit).intern();
+				}else{
+					((PairLabelUnit)unit).intern();
+				}
+			}
+		}
+	}
+
+	// relation annotations read from the files (cleared by buildRelations)
+	public List<Relation> getRelationAnnotations() {
+		return relations;
+	}
 	
 }
@@ -3,7 +3,6 @@ package data.nlp.joint;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.Vector;
 
 import utils.NICTNounSynonymsDB;
@@ -34,6 +33,9 @@ public class JointFeatureCache extends FeatureCache {
 			assert nodeFeatures.size() > 0;
 			return;
 		}
+		if(loadNodeFeatures()){
+			return;
+		}
 		nodeFeatures = new SparseFeatureVector(params);
 		nodeFeatures.add(wordFeatures(node).normalize(), "WORD");
 		for(String parseAnnotationDesc:params.getParseAnnotationDescs()){
@@ -41,7 +43,11 @@ public class JointFeatureCache extends FeatureCache {
 		}
 		nodeFeatures.compact();
 		nodeFeatures.normalize();
+		if(params.getUseFrozenFeatures()){
+			nodeFeatures.freeze();
+		}
 		assert nodeFeatures.size() > 0;
+		storeNodeFeatures();
 	}
 	
 	private StringSparseVector wordAttributeFeatures(Node headWord){
@@ -204,16 +210,7 @@ public class JointFeatureCache extends FeatureCache {
 	}
 	
 	@Override
-	public void calcPathFeatures(Node w2) {
-		if(fullPathFeatures != null && fullPathFeatures.containsKey(w2)){
-			assert fullPathFeatures.get(w2).size() > 0;
-			assert shortestPathFeatures.get(w2).size() > 0;
-			return;
-		}
-		if(fullPathFeatures == null){
-			fullPathFeatures = new TreeMap<Node, SparseFeatureVector>();
-			shortestPathFeatures = new TreeMap<Node, SparseFeatureVector>();
-		}
+	protected PathFeatures buildPathFeatures(Node w2) {
 		SparseFeatureVector fullFeatures = new SparseFeatureVector(params);
 		SparseFeatureVector simplePathFeatures = new SparseFeatureVector(params);
 		fullFeatures.add(wordFeatures(node).normalize(1./Math.sqrt(2.)), "W1Node");
@@ -228,11 +225,16 @@ public class JointFeatureCache extends FeatureCache {
 		assert fullFeatures.size() > 0;
 		fullFeatures.scale(params.getRelWeight());
 		fullFeatures.normalize();
-		fullPathFeatures.put(w2, fullFeatures);	
+		if(params.getUseFrozenFeatures()){
+			fullFeatures.freeze();
+		}
 		
 		simplePathFeatures.compact();
 		simplePathFeatures.normalize(1./Math.sqrt(3));
-		shortestPathFeatures.put(w2, simplePathFeatures);		
+		if(params.getUseFrozenFeatures()){
+			simplePathFeatures.freeze();
+		}
+		return new PathFeatures(fullFeatures, simplePathFeatures);
 	}
 	
 	private StringSparseVector ngramPathFeatures(Node w2, int N, int window, String parseAnnotationDesc){
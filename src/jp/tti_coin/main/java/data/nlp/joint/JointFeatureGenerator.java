@@ -7,6 +7,8 @@ import java.util.Vector;
 import model.FeatureGenerator;
 import model.SparseFeatureVector;
 import model.StringSparseVector;
+import utils.HashToInt;
+import utils.Metrics;
 import config.Parameters;
 import data.Instance;
 import data.Label;
@@ -14,70 +16,115 @@ import data.LabelUnit;
 import data.nlp.Node;
 
 public class JointFeatureGenerator extends FeatureGenerator {
+	private static final Metrics.Timer LOCAL_FEATURES = Metrics.timer("features.local");
+	private static final Metrics.Timer GLOBAL_FEATURES = Metrics.timer("features.global");
+	protected static final long EMPTY = HashToInt.code("");
+	protected static final long SPACE = HashToInt.code(" ");
+	protected static final long COUNT = HashToInt.code("COUNT");
+	protected static final long GLOBAL = HashToInt.code("GLOBAL");
+	protected static final long PARA = HashToInt.code("PARA");
+	protected static final long PARA_E1 = HashToInt.code("PARA-E1");
+	protected static final long PARA_E2 = HashToInt.code("PARA-E2");
+	protected static final long PATH = HashToInt.code("PATH");
+	protected static final long PROJ = HashToInt.code("PROJ");
+	protected static final long RSEQ = HashToInt.code("RSEQ");
+	protected static final long SEQ = HashToInt.code("SEQ");
+	protected static final long TRIANGLE = HashToInt.code("TRIANGLE");
+	protected static final long WORD = HashToInt.code("WORD");
+	protected static final long WORDPAIR = HashToInt.code("WORDPAIR");
+	// reusable buffer for the normalized n-gram features (one per thread)
+	private final ThreadLocal<StringSparseVector> scratch = new ThreadLocal<StringSparseVector>(){
+		@Override
+		protected StringSparseVector initialValue() {
+			return new StringSparseVector(params);
+		}
+	};
 	
 	public JointFeatureGenerator(Parameters params) {
 		super(params);
 	}
 	
+	protected StringSparseVector getScratch() {
+		StringSparseVector vector = scratch.get();
+		vector.clear();
+		return vector;
+	}
+	
 	@Override
 	public void init() {}
 	
 	@Override
 	public SparseFeatureVector calculateFeature(Instance instance, Label y, int lastIndex, int target, LabelUnit candidateLabelUnit, boolean local) {
 		//TODO cache strings
+		long start = Metrics.start();
 		SparseFeatureVector fv = new SparseFeatureVector(params);
 		if(instance.getSequence().get(target) instanceof Word){
 			Word word = (Word)instance.getSequence().get(target);
-			String candidateLabel = ((WordLabelUnit)candidateLabelUnit).getLabel();
+			long candidateLabel = ((WordLabelUnit)candidateLabelUnit).getLabelCode();
 			assert word.getWord().getCache() != null: word.getWord().getId()+":"+word.getWord().getRealBase();
 			fv.add(word.getWord().getCache().getNodeFeatures(), candidateLabel);
-			if(params.getUseGlobalFeatures() && !local){
-				SparseFeatureVector globalFv = calcWordGlobalFeatures(word, instance, y, lastIndex, (WordLabelUnit)candidateLabelUnit);
-				assert params.getAverageNumWords() > 0.;
-				globalFv.scale(params.getGlobalWeight());
-				fv.add(globalFv, "GLOBAL");
-			}
 		}else{
 			assert instance.getSequence().get(target) instanceof Pair;
 			Pair pair = (Pair)instance.getSequence().get(target);
 			PairLabelUnit candidatePairLabelUnit = (PairLabelUnit)candidateLabelUnit;
 			Node w1 = pair.getW1().getWord();
 			Node w2 = pair.getW2().getWord();
-			fv.add(w1.getCache().getFullPathFeatures(w2), candidatePairLabelUnit.getLabel().concat("PATH"));
-			if(params.getUseGlobalFeatures() && !local){
-				SparseFeatureVector globalFv = calcPairGlobalFeatures(pair, instance, y, lastIndex, candidatePairLabelUnit);
-				assert params.getAverageNumWords() > 0.;
-				globalFv.scale(params.getGlobalWeight());
-				fv.add(globalFv, "GLOBAL");
-			}
+			fv.add(w1.getCache().getFullPathFeatures(w2), HashToInt.concat(candidatePairLabelUnit.getLabelCode(), PATH));
 		}			
+		LOCAL_FEATURES.stop(start);
+		if(!local){
+			fv.add(calculateGlobalFeature(instance, y, lastIndex, target, candidateLabelUnit));
+		}
 		assert fv.size() > 0;
 		return fv;
 	}
 	
+	@Override
+	public SparseFeatureVector calculateGlobalFeature(Instance instance, Label y, int lastIndex, int target, LabelUnit candidateLabelUnit) {
+		SparseFeatureVector fv = new SparseFeatureVector(params);
+		if(!params.getUseGlobalFeatures()){
+			return fv;
+		}
+		long start = Metrics.start();
+		SparseFeatureVector globalFv;
+		if(instance.getSequence().get(target) instanceof Word){
+			Word word = (Word)instance.getSequence().get(target);
+			globalFv = calcWordGlobalFeatures(word, instance, y, lastIndex, (WordLabelUnit)candidateLabelUnit);
+		}else{
+			assert instance.getSequence().get(target) instanceof Pair;
+			Pair pair = (Pair)instance.getSequence().get(target);
+			globalFv = calcPairGlobalFeatures(pair, instance, y, lastIndex, (PairLabelUnit)candidateLabelUnit);
+		}
+		assert params.getAverageNumWords() > 0.;
+		globalFv.scale(params.getGlobalWeight());
+		fv.add(globalFv, GLOBAL);
+		GLOBAL_FEATURES.stop(start);
+		return fv;
+	}
+	
 
-	protected void addBigramToFV(StringSparseVector fv, String label1, String base1, String pos1, String label2, String base2, String pos2){
-		StringSparseVector bigramFv = new StringSparseVector(params);
-		bigramFv.add(label1.concat(base1).concat(label2).concat(base2), 1.);
-		bigramFv.add(label1.concat(base1).concat(label2), 1.);
-		bigramFv.add(label1.concat(label2).concat(base2), 1.);
-		bigramFv.add(label1.concat(pos1).concat(label2).concat(pos2), 1.);
-		bigramFv.add(label1.concat(pos1).concat(label2), 1.);
-		bigramFv.add(label1.concat(label2).concat(pos2), 1.);
-		bigramFv.add(label1.concat(label2), 1.);
+	protected void addBigramToFV(StringSparseVector fv, long label1, long base1, long pos1, long label2, long base2, long pos2){
+		StringSparseVector bigramFv = getScratch();
+		bigramFv.add(HashToInt.concat(label1, base1, label2, base2), 1.);
+		bigramFv.add(HashToInt.concat(label1, base1, label2), 1.);
+		bigramFv.add(HashToInt.concat(label1, label2, base2), 1.);
+		bigramFv.add(HashToInt.concat(label1, pos1, label2, pos2), 1.);
+		bigramFv.add(HashToInt.concat(label1, pos1, label2), 1.);
+		bigramFv.add(HashToInt.concat(label1, label2, pos2), 1.);
+		bigramFv.add(HashToInt.concat(label1, label2), 1.);
 		bigramFv.normalize(1.);
 		fv.add(bigramFv);
 	}
 	
-	protected void addTrigramToFV(StringSparseVector fv, String label1, String base1, String pos1, String label2, String base2, String pos2, String label3, String base3, String pos3){
-		StringSparseVector trigramFv = new StringSparseVector(params);
-		trigramFv.add(label1.concat(label2).concat(label3), 1.);
-		trigramFv.add(label1.concat(base1).concat(label2).concat(label3), 1.);
-		trigramFv.add(label1.concat(label2).concat(base2).concat(label3), 1.);
-		trigramFv.add(label1.concat(label2).concat(label3).concat(base3), 1.);
-		trigramFv.add(label1.concat(pos1).concat(label2).concat(label3), 1.);
-		trigramFv.add(label1.concat(label2).concat(pos2).concat(label3), 1.);
-		trigramFv.add(label1.concat(label2).concat(label3).concat(pos3), 1.);
+	protected void addTrigramToFV(StringSparseVector fv, long label1, long base1, long pos1, long label2, long base2, long pos2, long label3, long base3, long pos3){
+		StringSparseVector trigramFv = getScratch();
+		trigramFv.add(HashToInt.concat(label1, label2, label3), 1.);
+		trigramFv.add(HashToInt.concat(label1, base1, label2, label3), 1.);
+		trigramFv.add(HashToInt.concat(label1, label2, base2, label3), 1.);
+		trigramFv.add(HashToInt.concat(label1, label2, label3, base3), 1.);
+		trigramFv.add(HashToInt.concat(label1, pos1, label2, label3), 1.);
+		trigramFv.add(HashToInt.concat(label1, label2, pos2, label3), 1.);
+		trigramFv.add(HashToInt.concat(label1, label2, label3, pos3), 1.);
 		trigramFv.normalize(1.);
 		fv.add(trigramFv);
 	}
@@ -88,9 +135,9 @@ public class JointFeatureGenerator extends FeatureGenerator {
 			return words;
 		}
 		int targetId = word.getId();
-		if(candidateLabelUnit.getPosition().equals("U")){
+		if(candidateLabelUnit.getPositionId() == WordLabelUnit.U_ID){
 			words.add(word);
-		}else if(candidateLabelUnit.getPosition().equals("L")){
+		}else if(candidateLabelUnit.getPositionId() == WordLabelUnit.L_ID){
 			words.add(word);
 			boolean found = false;
 			for(int i = targetId - 1;i >= 0;--i){
@@ -98,18 +145,18 @@ public class JointFeatureGenerator extends FeatureGenerator {
 				if(seqIndex >= lastIndex){
 					break;
 				}
-				String pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPosition();
-				if(pos.equals("B")){
+				int pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPositionId();
+				if(pos == WordLabelUnit.B_ID){
 					words.add(0, word);
 					found = true;
-				}else if(pos.equals("I")){
+				}else if(pos == WordLabelUnit.I_ID){
 					words.add(0, word);
 				}
 			}
 			if(!found){
 				words.clear();
 			}			
-		}else if(candidateLabelUnit.getPosition().equals("I")){
+		}else if(candidateLabelUnit.getPositionId() == WordLabelUnit.I_ID){
 			words.add(word);
 			boolean leftFound = false;
 			for(int i = targetId - 1;i >= 0;--i){
@@ -117,11 +164,11 @@ public class JointFeatureGenerator extends FeatureGenerator {
 				if(seqIndex >= lastIndex){
 					break;
 				}
-				String pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPosition();
-				if(pos.equals("B")){
+				int pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPositionId();
+				if(pos == WordLabelUnit.B_ID){
 					words.add(0, word);
 					leftFound = true;
-				}else if(pos.equals("I")){
+				}else if(pos == WordLabelUnit.I_ID){
 					words.add(0, word);
 				}
 			}
@@ -135,11 +182,11 @@ public class JointFeatureGenerator extends FeatureGenerator {
 					if(seqIndex >= lastIndex){
 						break;
 					}
-					String pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPosition();
-					if(pos.equals("L")){
+					int pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPositionId();
+					if(pos == WordLabelUnit.L_ID){
 						words.add(word);
 						rightFound = true;
-					}else if(pos.equals("I")){
+					}else if(pos == WordLabelUnit.I_ID){
 						words.add(word);
 					}
 				}	
@@ -147,7 +194,7 @@ public class JointFeatureGenerator extends FeatureGenerator {
 					words.clear();
 				}
 			}
-		}else if(candidateLabelUnit.getPosition().equals("B")){
+		}else if(candidateLabelUnit.getPositionId() == WordLabelUnit.B_ID){
 			boolean found = false;
 			int nwords = ((JointInstance)instance).getNumWords();
 			for(int i = targetId + 1;i < nwords;++i){
@@ -155,11 +202,11 @@ public class JointFeatureGenerator extends FeatureGenerator {
 				if(seqIndex >= lastIndex){
 					break;
 				}
-				String pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPosition();
-				if(pos.equals("L")){
+				int pos = ((WordLabelUnit)y.getLabel(seqIndex)).getPositionId();
+				if(pos == WordLabelUnit.L_ID){
 					words.add(word);
 					found = true;
-				}else if(pos.equals("I")){
+				}else if(pos == WordLabelUnit.I_ID){
 					words.add(word);
 				}
 			}	
@@ -170,13 +217,15 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		return words;
 	}
 	
-	protected String entityString(List<Word> entityWords){
-		StringBuffer sb = new StringBuffer();
+	protected long entityCode(List<Word> entityWords){
+		long code = EMPTY;
 		for(Word entityWord:entityWords){
-			sb.append(entityWord.getWord().getRealBase());
-			sb.append(" ");
+			if(code != EMPTY){
+				code = HashToInt.concat(code, SPACE);
+			}
+			code = HashToInt.concat(code, entityWord.getWord().getRealBaseCode());
 		}
-		return sb.toString().trim();
+		return code;
 	}
 		
 	protected SparseFeatureVector calcWordGlobalFeatures(Word word, Instance instance, Label y, int lastIndex, WordLabelUnit candidateLabelUnit){
@@ -184,9 +233,9 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		StringSparseVector wordPairFv = new StringSparseVector(params);
 		StringSparseVector wordFv = new StringSparseVector(params);
 		
-		String candidateLabel = candidateLabelUnit.getLabel();
-		String wBase = word.getWord().getRealBase();
-		String wPOS = word.getWord().getPOS();
+		long candidateLabel = candidateLabelUnit.getLabelCode();
+		long wBase = word.getWord().getRealBaseCode();
+		long wPOS = word.getWord().getPOSCode();
 		
 		int[] contextWords = new int[4];
 		Arrays.fill(contextWords, -1);
@@ -199,31 +248,31 @@ public class JointFeatureGenerator extends FeatureGenerator {
 				}
 				Pair pair = (Pair)instance.getSequence().get(i);
 				if(pair.getW1().getId() == word.getId()){
-					String pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabel();					
-					wordPairFv.add(candidateLabel.concat(pairLabel), 1.);
-					wordPairFv.add(candidateLabel.concat(wBase).concat(pairLabel), 1.);
+					long pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabelCode();					
+					wordPairFv.add(HashToInt.concat(candidateLabel, pairLabel), 1.);
+					wordPairFv.add(HashToInt.concat(candidateLabel, wBase, pairLabel), 1.);
 					if(params.getUseFullFeatures()){
 						// w-rel-w
 						int w2Idx = ((JointInstance)instance).getWord(pair.getW2().getId());
 						if(w2Idx <= lastIndex){
-							String w2Base = pair.getW2().getWord().getRealBase();
-							String w2Label = ((WordLabelUnit)y.getLabel(w2Idx)).getLabel();
-							wordPairFv.add(candidateLabel.concat(pairLabel).concat(w2Label), 1.);
-							wordPairFv.add(candidateLabel.concat(wBase).concat(pairLabel).concat(w2Label).concat(w2Base), 1.);
+							long w2Base = pair.getW2().getWord().getRealBaseCode();
+							long w2Label = ((WordLabelUnit)y.getLabel(w2Idx)).getLabelCode();
+							wordPairFv.add(HashToInt.concat(candidateLabel, pairLabel, w2Label), 1.);
+							wordPairFv.add(HashToInt.concat(candidateLabel, wBase, pairLabel, w2Label, w2Base), 1.);
 						}
 					}
 				}else if(pair.getW2().getId() == word.getId()){
-					String pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabel();
-					wordPairFv.add(pairLabel.concat(candidateLabel), 1.);
-					wordPairFv.add(pairLabel.concat(wBase).concat(candidateLabel), 1.);
+					long pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabelCode();
+					wordPairFv.add(HashToInt.concat(pairLabel, candidateLabel), 1.);
+					wordPairFv.add(HashToInt.concat(pairLabel, wBase, candidateLabel), 1.);
 					if(params.getUseFullFeatures()){
 						// w-rel-w
 						int w1Idx = ((JointInstance)instance).getWord(pair.getW1().getId());
 						if(w1Idx <= lastIndex){
-							String w1Base = pair.getW1().getWord().getRealBase();
-							String w1Label = ((WordLabelUnit)y.getLabel(w1Idx)).getLabel();
-							wordPairFv.add(w1Label.concat(pairLabel).concat(candidateLabel), 1.);
-							wordPairFv.add(w1Base.concat(w1Label).concat(pairLabel).concat(candidateLabel).concat(wBase), 1.);
+							long w1Base = pair.getW1().getWord().getRealBaseCode();
+							long w1Label = ((WordLabelUnit)y.getLabel(w1Idx)).getLabelCode();
+							wordPairFv.add(HashToInt.concat(w1Label, pairLabel, candidateLabel), 1.);
+							wordPairFv.add(HashToInt.concat(w1Base, w1Label, pairLabel, candidateLabel, wBase), 1.);
 						}
 					}
 				}
@@ -234,13 +283,13 @@ public class JointFeatureGenerator extends FeatureGenerator {
 				if(w2.getId() == word.getId() - 2){
 					contextWords[0] = i;
 				}if(w2.getId() == word.getId() - 1){
-					String wordLabel = ((WordLabelUnit)y.getLabel(i)).getLabel();
+					long wordLabel = ((WordLabelUnit)y.getLabel(i)).getLabelCode();
 					contextWords[1] = i;
-					addBigramToFV(wordFv, wordLabel, w2.getWord().getRealBase(), w2.getWord().getPOS(), candidateLabel, wBase, wPOS);				
+					addBigramToFV(wordFv, wordLabel, w2.getWord().getRealBaseCode(), w2.getWord().getPOSCode(), candidateLabel, wBase, wPOS);				
 				}else if(word.getId() == w2.getId() - 1){
-					String wordLabel = ((WordLabelUnit)y.getLabel(i)).getLabel();
+					long wordLabel = ((WordLabelUnit)y.getLabel(i)).getLabelCode();
 					contextWords[2] = i;
-					addBigramToFV(wordFv, candidateLabel, wBase, wPOS, wordLabel, w2.getWord().getRealBase(), w2.getWord().getPOS());
+					addBigramToFV(wordFv, candidateLabel, wBase, wPOS, wordLabel, w2.getWord().getRealBaseCode(), w2.getWord().getPOSCode());
 				}else if(word.getId() == w2.getId() - 2){
 					contextWords[3] = i;
 				}
@@ -250,42 +299,42 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		List<Word> entityWords = getEntityWords(word, instance, y, lastIndex, candidateLabelUnit);
 		if(entityWords.size() > 0){
 			if(params.getUseFullFeatures()){
-				String entString = entityString(entityWords);
-				String candidateLabelType = candidateLabelUnit.getType();
-				wordFv.add(candidateLabelType.concat(entString), 1.);
+				long entString = entityCode(entityWords);
+				long candidateLabelType = candidateLabelUnit.getTypeCode();
+				wordFv.add(HashToInt.concat(candidateLabelType, entString), 1.);
 				Word lastWord = entityWords.get(entityWords.size() - 1);
 				for(int i = 0;i <= lastIndex;i++){
 					if(y.getLabel(i) instanceof PairLabelUnit){
 						if(y.getLabel(i).isNegative())continue;
 						Pair pair = (Pair)instance.getSequence().get(i);
 						if(pair.getW1().getId() == lastWord.getId()){
-							String pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabel();
-							wordPairFv.add(candidateLabelType.concat(pairLabel), 1.);
-							wordPairFv.add(candidateLabelType.concat(entString).concat(pairLabel), 1.);
+							long pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabelCode();
+							wordPairFv.add(HashToInt.concat(candidateLabelType, pairLabel), 1.);
+							wordPairFv.add(HashToInt.concat(candidateLabelType, entString, pairLabel), 1.);
 							// ent-rel-ent
 							int w2Idx = ((JointInstance)instance).getWord(pair.getW2().getId());
 							if(w2Idx <= lastIndex){
 								List<Word> e2Words = getEntityWords(pair.getW2(), instance, y, lastIndex, (WordLabelUnit)y.getLabel(w2Idx));
 								if(e2Words.size() > 0){
-									String e2String = entityString(e2Words);
-									String w2LabelType = ((WordLabelUnit)y.getLabel(w2Idx)).getType();
-									wordPairFv.add(candidateLabelType.concat(pairLabel).concat(w2LabelType), 1.);
-									wordPairFv.add(candidateLabelType.concat(entString).concat(pairLabel).concat(w2LabelType).concat(e2String), 1.);
+									long e2String = entityCode(e2Words);
+									long w2LabelType = ((WordLabelUnit)y.getLabel(w2Idx)).getTypeCode();
+									wordPairFv.add(HashToInt.concat(candidateLabelType, pairLabel, w2LabelType), 1.);
+									wordPairFv.add(HashToInt.concat(candidateLabelType, entString, pairLabel, w2LabelType, e2String), 1.);
 								}
 							}
 						}else if(pair.getW2().getId() == lastWord.getId()){
-							String pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabel();
-							wordPairFv.add(pairLabel.concat(candidateLabelType), 1.);
-							wordPairFv.add(pairLabel.concat(candidateLabelType).concat(entString), 1.);
+							long pairLabel = ((PairLabelUnit)y.getLabel(i)).getLabelCode();
+							wordPairFv.add(HashToInt.concat(pairLabel, candidateLabelType), 1.);
+							wordPairFv.add(HashToInt.concat(pairLabel, candidateLabelType, entString), 1.);
 							// ent-rel-ent
 							int w1Idx = ((JointInstance)instance).getWord(pair.getW1().getId());
 							if(w1Idx <= lastIndex){
 								List<Word> e1Words = getEntityWords(pair.getW1(), instance, y, lastIndex, (WordLabelUnit)y.getLabel(w1Idx));
 								if(e1Words.size() > 0){
-									String e1String = entityString(e1Words);
-									String w1LabelType = ((WordLabelUnit)y.getLabel(w1Idx)).getType();
-									wordPairFv.add(w1LabelType.concat(pairLabel).concat(candidateLabelType), 1.);
-									wordPairFv.add(w1LabelType.concat(e1String).concat(pairLabel).concat(candidateLabelType).concat(entString), 1.);
+									long e1String = entityCode(e1Words);
+									long w1LabelType = ((WordLabelUnit)y.getLabel(w1Idx)).getTypeCode();
+									wordPairFv.add(HashToInt.concat(w1LabelType, pairLabel, candidateLabelType), 1.);
+									wordPairFv.add(HashToInt.concat(w1LabelType, e1String, pairLabel, candidateLabelType, entString), 1.);
 								}
 							}
 						}
@@ -295,61 +344,61 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		}		
 		if(contextWords[0] >= 0 && contextWords[1] >= 0){
 			Word w0 = (Word)instance.getSequence().get(contextWords[0]);
-			String l0 = ((WordLabelUnit)y.getLabel(contextWords[0])).getLabel();
+			long l0 = ((WordLabelUnit)y.getLabel(contextWords[0])).getLabelCode();
 			Word w1 = (Word)instance.getSequence().get(contextWords[1]);
-			String l1 = ((WordLabelUnit)y.getLabel(contextWords[1])).getLabel();
-			addTrigramToFV(wordFv, l0, w0.getWord().getRealBase(), w0.getWord().getPOS(), l1, w1.getWord().getRealBase(), w1.getWord().getPOS(), candidateLabel, wBase, wPOS);			
+			long l1 = ((WordLabelUnit)y.getLabel(contextWords[1])).getLabelCode();
+			addTrigramToFV(wordFv, l0, w0.getWord().getRealBaseCode(), w0.getWord().getPOSCode(), l1, w1.getWord().getRealBaseCode(), w1.getWord().getPOSCode(), candidateLabel, wBase, wPOS);			
 		}
 		if(contextWords[1] >= 0 && contextWords[2] >= 0){
 			Word w1 = (Word)instance.getSequence().get(contextWords[1]);
-			String l1 = ((WordLabelUnit)y.getLabel(contextWords[1])).getLabel();
+			long l1 = ((WordLabelUnit)y.getLabel(contextWords[1])).getLabelCode();
 			Word w2 = (Word)instance.getSequence().get(contextWords[2]);
-			String l2 = ((WordLabelUnit)y.getLabel(contextWords[2])).getLabel();
-			addTrigramToFV(wordFv, l1, w1.getWord().getRealBase(), w1.getWord().getPOS(), candidateLabel, wBase, wPOS, l2, w2.getWord().getRealBase(), w2.getWord().getPOS());	
+			long l2 = ((WordLabelUnit)y.getLabel(contextWords[2])).getLabelCode();
+			addTrigramToFV(wordFv, l1, w1.getWord().getRealBaseCode(), w1.getWord().getPOSCode(), candidateLabel, wBase, wPOS, l2, w2.getWord().getRealBaseCode(), w2.getWord().getPOSCode());	
 		}
 		if(contextWords[2] >= 0 && contextWords[3] >= 0){
 			Word w2 = (Word)instance.getSequence().get(contextWords[2]);
-			String l2 = ((WordLabelUnit)y.getLabel(contextWords[2])).getLabel();
+			long l2 = ((WordLabelUnit)y.getLabel(contextWords[2])).getLabelCode();
 			Word w3 = (Word)instance.getSequence().get(contextWords[3]);
-			String l3 = ((WordLabelUnit)y.getLabel(contextWords[3])).getLabel();
-			addTrigramToFV(wordFv, candidateLabel, wBase, wPOS, l2, w2.getWord().getRealBase(), w2.getWord().getPOS(), l3, w3.getWord().getRealBase(), w3.getWord().getPOS());
+			long l3 = ((WordLabelUnit)y.getLabel(contextWords[3])).getLabelCode();
+			addTrigramToFV(wordFv, candidateLabel, wBase, wPOS, l2, w2.getWord().getRealBaseCode(), w2.getWord().getPOSCode(), l3, w3.getWord().getRealBaseCode(), w3.getWord().getPOSCode());
 		}	
-		globalFv.add(wordFv, "WORD");
+		globalFv.add(wordFv, WORD);
 		wordPairFv.mult(params.getRelWeight());
-		globalFv.add(wordPairFv, "WORDPAIR");
+		globalFv.add(wordPairFv, WORDPAIR);
 		return globalFv;		
 	}
 	
-	protected void addSecondOrderInfoToFV(StringSparseVector fv, String label1, String base1, String pos1, String label2, String header){
-		StringSparseVector secondOrderInfoFv = new StringSparseVector(params);
-		secondOrderInfoFv.add(header.concat(label1).concat(base1).concat(label2), 1.);
-		secondOrderInfoFv.add(header.concat(label1).concat(pos1).concat(label2), 1.);
-		secondOrderInfoFv.add(header.concat(label1).concat(label2), 1.);
+	protected void addSecondOrderInfoToFV(StringSparseVector fv, long label1, long base1, long pos1, long label2, long header){
+		StringSparseVector secondOrderInfoFv = getScratch();
+		secondOrderInfoFv.add(HashToInt.concat(header, label1, base1, label2), 1.);
+		secondOrderInfoFv.add(HashToInt.concat(header, label1, pos1, label2), 1.);
+		secondOrderInfoFv.add(HashToInt.concat(header, label1, label2), 1.);
 		secondOrderInfoFv.normalize(1.);
 		fv.add(secondOrderInfoFv);
 	}
 	
 
-	protected void addTriangleToFV(StringSparseVector fv, String label1, String base1, String pos1, String label2, String base2, String pos2, String label3, String base3, String pos3){
-		StringSparseVector triangleFv = new StringSparseVector(params);
-		triangleFv.add(label1.concat(label2).concat(label3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(base1).concat(label2).concat(label3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(label2).concat(base2).concat(label3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(label2).concat(label3).concat(base3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(pos1).concat(label2).concat(label3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(label2).concat(pos2).concat(label3).concat("TRIANGLE"), 1.);
-		triangleFv.add(label1.concat(label2).concat(label3).concat(pos3).concat("TRIANGLE"), 1.);
-		triangleFv.add("TRIANGLE", 1.);
+	protected void addTriangleToFV(StringSparseVector fv, long label1, long base1, long pos1, long label2, long base2, long pos2, long label3, long base3, long pos3){
+		StringSparseVector triangleFv = getScratch();
+		triangleFv.add(HashToInt.concat(label1, label2, label3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, base1, label2, label3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, label2, base2, label3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, label2, label3, base3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, pos1, label2, label3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, label2, pos2, label3, TRIANGLE), 1.);
+		triangleFv.add(HashToInt.concat(label1, label2, label3, pos3, TRIANGLE), 1.);
+		triangleFv.add(TRIANGLE, 1.);
 		triangleFv.normalize(1.);
 		fv.add(triangleFv);
 	}
 	
 
-	protected void addParallelInfoToFV(SparseFeatureVector fv, String wBase, String wPOS, Node w1, String label1, Node w2, String label2, String header){
+	protected void addParallelInfoToFV(SparseFeatureVector fv, long wBase, long wPOS, Node w1, long label1, Node w2, long label2, long header){
 		SparseFeatureVector paraFv = new SparseFeatureVector(params);
-		paraFv.add(w1.getCache().getShortestPathFeatures(w2), header.concat(label1).concat(wBase).concat(label2));
-		paraFv.add(w1.getCache().getShortestPathFeatures(w2), header.concat(label1).concat(wPOS).concat(label2));
-		paraFv.add(w1.getCache().getShortestPathFeatures(w2), header.concat(label1).concat(label2));
+		paraFv.add(w1.getCache().getShortestPathFeatures(w2), HashToInt.concat(header, label1, wBase, label2));
+		paraFv.add(w1.getCache().getShortestPathFeatures(w2), HashToInt.concat(header, label1, wPOS, label2));
+		paraFv.add(w1.getCache().getShortestPathFeatures(w2), HashToInt.concat(header, label1, label2));
 		paraFv.normalize(1.);
 		fv.add(paraFv);
 	}
@@ -363,7 +412,7 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		StringSparseVector counterFv = new StringSparseVector(params);
 		StringSparseVector wordPairFv = new StringSparseVector(params);
 
-		String candidateLabel = candidateLabelUnit.getLabel();
+		long candidateLabel = candidateLabelUnit.getLabelCode();
 		Word w1 = pair.getW1();
 		Word w2 = pair.getW2();		
 
@@ -371,125 +420,125 @@ public class JointFeatureGenerator extends FeatureGenerator {
 		int w1Index = jInstance.getWord(w1.getId());
 		int w2Index = jInstance.getWord(w2.getId());
 
-		String w1Base = w1.getWord().getRealBase();
-		String w1POS = w1.getWord().getPOS();
-		String w2Base = w2.getWord().getRealBase();
-		String w2POS = w2.getWord().getPOS();
+		long w1Base = w1.getWord().getRealBaseCode();
+		long w1POS = w1.getWord().getPOSCode();
+		long w2Base = w2.getWord().getRealBaseCode();
+		long w2POS = w2.getWord().getPOSCode();
 
 		for(int i = 0;i <= lastIndex;i++){
 			if(y.getLabel(i).isNegative())continue;
 			if(y.getLabel(i) instanceof PairLabelUnit){
 				if(!params.getUseGlobalRelationFeatures())continue;
 				PairLabelUnit adjLabelUnit = (PairLabelUnit)y.getLabel(i);
-				String adjLabel = adjLabelUnit.getLabel();
+				long adjLabel = adjLabelUnit.getLabelCode();
 				Pair adjPair = (Pair)instance.getSequence().get(i);
 				Word adjW1 = adjPair.getW1();
 				Word adjW2 = adjPair.getW2();
 				if(adjW1.getId() == w1.getId()){
 					if(adjW2.getId() < w2.getId()){
-						addSecondOrderInfoToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, "PARA-E1");
-						addParallelInfoToFV(parallelFv, w1Base, w1POS, adjW2.getWord(), adjLabel, w2.getWord(), candidateLabel, "PARA-E1");
+						addSecondOrderInfoToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, PARA_E1);
+						addParallelInfoToFV(parallelFv, w1Base, w1POS, adjW2.getWord(), adjLabel, w2.getWord(), candidateLabel, PARA_E1);
 						int triangleIndex = jInstance.getWordPair(adjW2.getId(), w2.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, w2Base, w2POS, thirdLabelUnit.getLabel(), adjW2.getWord().getRealBase(), adjW2.getWord().getPOS());
+								addTriangleToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, w2Base, w2POS, thirdLabelUnit.getLabelCode(), adjW2.getWord().getRealBaseCode(), adjW2.getWord().getPOSCode());
 							}
 						}
 					}else{
-						addSecondOrderInfoToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, "PARA-E1");
-						addParallelInfoToFV(parallelFv, w1Base, w1POS, w2.getWord(), candidateLabel, adjW2.getWord(), adjLabel, "PARA-E1");
+						addSecondOrderInfoToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, PARA_E1);
+						addParallelInfoToFV(parallelFv, w1Base, w1POS, w2.getWord(), candidateLabel, adjW2.getWord(), adjLabel, PARA_E1);
 						int triangleIndex = jInstance.getWordPair(w2.getId(), adjW2.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, adjW2.getWord().getRealBase(), adjW2.getWord().getPOS(), thirdLabelUnit.getLabel(), w2Base, w2POS);
+								addTriangleToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, adjW2.getWord().getRealBaseCode(), adjW2.getWord().getPOSCode(), thirdLabelUnit.getLabelCode(), w2Base, w2POS);
 							}
 						}
 					}
 				}else if(adjW2.getId() == w1.getId()){
 					if(adjW1.getId() < w2.getId()){
-						addParallelInfoToFV(parallelFv, w1Base, w1POS, adjW1.getWord(), adjLabel, w2.getWord(), candidateLabel, "SEQ");
+						addParallelInfoToFV(parallelFv, w1Base, w1POS, adjW1.getWord(), adjLabel, w2.getWord(), candidateLabel, SEQ);
 						int triangleIndex = jInstance.getWordPair(adjW1.getId(), w2.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, w2Base, w2POS, thirdLabelUnit.getLabel(), adjW1.getWord().getRealBase(), adjW1.getWord().getPOS());
+								addTriangleToFV(counterFv, adjLabel, w1Base, w1POS, candidateLabel, w2Base, w2POS, thirdLabelUnit.getLabelCode(), adjW1.getWord().getRealBaseCode(), adjW1.getWord().getPOSCode());
 							}
 						}
 					}else{
-						addParallelInfoToFV(parallelFv, w1Base, w1POS, w2.getWord(), adjLabel, adjW1.getWord(), candidateLabel, "RSEQ");
+						addParallelInfoToFV(parallelFv, w1Base, w1POS, w2.getWord(), adjLabel, adjW1.getWord(), candidateLabel, RSEQ);
 						int triangleIndex = jInstance.getWordPair(w2.getId(), adjW1.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, adjW1.getWord().getRealBase(), adjW1.getWord().getPOS(), thirdLabelUnit.getLabel(), w2Base, w2POS);
+								addTriangleToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, adjW1.getWord().getRealBaseCode(), adjW1.getWord().getPOSCode(), thirdLabelUnit.getLabelCode(), w2Base, w2POS);
 							}
 						}
 					}
-					addSecondOrderInfoToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, "SEQ");
+					addSecondOrderInfoToFV(counterFv, candidateLabel, w1Base, w1POS, adjLabel, SEQ);
 				}else if(adjW2.getId() == w2.getId()){
 					if(adjW1.getId() < w1.getId()){
-						addParallelInfoToFV(parallelFv, w2Base, w2POS, adjW1.getWord(), adjLabel, w1.getWord(), candidateLabel, "PARA-E2");
-						addSecondOrderInfoToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, "PARA-E2");
+						addParallelInfoToFV(parallelFv, w2Base, w2POS, adjW1.getWord(), adjLabel, w1.getWord(), candidateLabel, PARA_E2);
+						addSecondOrderInfoToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, PARA_E2);
 						int triangleIndex = jInstance.getWordPair(adjW1.getId(), w1.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, w1Base, w1POS, thirdLabelUnit.getLabel(), adjW1.getWord().getRealBase(), adjW1.getWord().getPOS());
+								addTriangleToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, w1Base, w1POS, thirdLabelUnit.getLabelCode(), adjW1.getWord().getRealBaseCode(), adjW1.getWord().getPOSCode());
 							}
 						}
 					}else{
-						addParallelInfoToFV(parallelFv, w2Base, w2POS, w1.getWord(), candidateLabel, adjW1.getWord(), adjLabel, "PARA-E2");
-						addSecondOrderInfoToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, "PARA-E2");
+						addParallelInfoToFV(parallelFv, w2Base, w2POS, w1.getWord(), candidateLabel, adjW1.getWord(), adjLabel, PARA_E2);
+						addSecondOrderInfoToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, PARA_E2);
 						int triangleIndex = jInstance.getWordPair(w1.getId(), adjW1.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, adjW1.getWord().getRealBase(), adjW1.getWord().getPOS(), thirdLabelUnit.getLabel(), w1Base, w1POS);
+								addTriangleToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, adjW1.getWord().getRealBaseCode(), adjW1.getWord().getPOSCode(), thirdLabelUnit.getLabelCode(), w1Base, w1POS);
 							}
 						}
 					}
 				}else if(adjW1.getId() == w2.getId()){
 					if(w1.getId() < adjW2.getId()){
-						addParallelInfoToFV(parallelFv, w2Base, w2POS, w1.getWord(), candidateLabel, adjW2.getWord(), adjLabel, "SEQ");
+						addParallelInfoToFV(parallelFv, w2Base, w2POS, w1.getWord(), candidateLabel, adjW2.getWord(), adjLabel, SEQ);
 						int triangleIndex = jInstance.getWordPair(w1.getId(), adjW2.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, adjW2.getWord().getRealBase(), adjW2.getWord().getPOS(), thirdLabelUnit.getLabel(), w1Base, w1POS);
+								addTriangleToFV(counterFv, candidateLabel, w2Base, w2POS, adjLabel, adjW2.getWord().getRealBaseCode(), adjW2.getWord().getPOSCode(), thirdLabelUnit.getLabelCode(), w1Base, w1POS);
 							}
 						}
 					}else{
-						addParallelInfoToFV(parallelFv, w2Base, w2POS, adjW2.getWord(), candidateLabel, w1.getWord(), adjLabel, "RSEQ");
+						addParallelInfoToFV(parallelFv, w2Base, w2POS, adjW2.getWord(), candidateLabel, w1.getWord(), adjLabel, RSEQ);
 						int triangleIndex = jInstance.getWordPair(adjW2.getId(), w1.getId());
 						if(triangleIndex <= lastIndex){
 							PairLabelUnit thirdLabelUnit = ((PairLabelUnit)y.getLabel(triangleIndex));
 							if(!thirdLabelUnit.isNegative()){
-								addTriangleToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, w1Base, w1POS, thirdLabelUnit.getLabel(), adjW2.getWord().getRealBase(), adjW2.getWord().getPOS());
+								addTriangleToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, w1Base, w1POS, thirdLabelUnit.getLabelCode(), adjW2.getWord().getRealBaseCode(), adjW2.getWord().getPOSCode());
 							}
 						}
 					}
-					addSecondOrderInfoToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, "SEQ");
+					addSecondOrderInfoToFV(counterFv, adjLabel, w2Base, w2POS, candidateLabel, SEQ);
 				}else{
 					if(adjW1.getId() < w1.getId() && w1.getId() < adjW2.getId() && adjW2.getId() < w2.getId()){
-						counterFv.add("PROJ".concat(adjLabel).concat(candidateLabel), 1.);
+						counterFv.add(HashToInt.concat(PROJ, adjLabel, candidateLabel), 1.);
 					}else if(w1.getId() < adjW1.getId() && adjW1.getId() < w2.getId() && w2.getId() < adjW2.getId()){
-						counterFv.add("PROJ".concat(candidateLabel).concat(adjLabel), 1.);
+						counterFv.add(HashToInt.concat(PROJ, candidateLabel, adjLabel), 1.);
 					}
 				}
 			}else{
 				if(w1Index == i){
 					assert y.getLabel(i) instanceof WordLabelUnit;
-					String w1Label = ((WordLabelUnit)y.getLabel(i)).getLabel();
-					wordPairFv.add(w1Label.concat(candidateLabel), 1.);
-					wordPairFv.add(w1Label.concat(w1Base).concat(candidateLabel), 1.);
+					long w1Label = ((WordLabelUnit)y.getLabel(i)).getLabelCode();
+					wordPairFv.add(HashToInt.concat(w1Label, candidateLabel), 1.);
+					wordPairFv.add(HashToInt.concat(w1Label, w1Base, candidateLabel), 1.);
 				}
 				if(w2Index == i){
 					assert y.getLabel(i) instanceof WordLabelUnit;
-					String w2Label = ((WordLabelUnit)y.getLabel(i)).getLabel();
-					wordPairFv.add(candidateLabel.concat(w2Label), 1.);
-					wordPairFv.add(candidateLabel.concat(w2Base).concat(w2Label), 1.);
+					long w2Label = ((WordLabelUnit)y.getLabel(i)).getLabelCode();
+					wordPairFv.add(HashToInt.concat(candidateLabel, w2Label), 1.);
+					wordPairFv.add(HashToInt.concat(candidateLabel, w2Base, w2Label), 1.);
 				}
 			}
 		}
@@ -498,35 +547,35 @@ public class JointFeatureGenerator extends FeatureGenerator {
 			int w2Idx = ((JointInstance)instance).getWord(pair.getW2().getId());
 			if(w1Idx <= lastIndex && w2Idx <= lastIndex){
 				// w-rel-w
-				String w1Label = ((WordLabelUnit)y.getLabel(w1Idx)).getLabel();
-				String w2Label = ((WordLabelUnit)y.getLabel(w2Idx)).getLabel();
-				wordPairFv.add(w1Label.concat(candidateLabel).concat(w2Label), 1.);
-				wordPairFv.add(w1Label.concat(w1Base).concat(candidateLabel).concat(w2Label).concat(w2Base), 1.);
+				long w1Label = ((WordLabelUnit)y.getLabel(w1Idx)).getLabelCode();
+				long w2Label = ((WordLabelUnit)y.getLabel(w2Idx)).getLabelCode();
+				wordPairFv.add(HashToInt.concat(w1Label, candidateLabel, w2Label), 1.);
+				wordPairFv.add(HashToInt.concat(w1Label, w1Base, candidateLabel, w2Label, w2Base), 1.);
 				List<Word> e1Words = getEntityWords(pair.getW1(), instance, y, lastIndex, (WordLabelUnit)y.getLabel(w1Idx));
-				String e1String = "", e2String = "", w1LabelType = "", w2LabelType = "";
+				long e1String = EMPTY, e2String = EMPTY, w1LabelType = EMPTY, w2LabelType = EMPTY;
 				if(e1Words.size() != 0){
-					e1String = entityString(e1Words);
-					w1LabelType = ((WordLabelUnit)y.getLabel(w1Idx)).getType();
-					wordPairFv.add(w1LabelType.concat(candidateLabel), 1.);
-					wordPairFv.add(w1LabelType.concat(e1String).concat(candidateLabel), 1.);
+					e1String = entityCode(e1Words);
+					w1LabelType = ((WordLabelUnit)y.getLabel(w1Idx)).getTypeCode();
+					wordPairFv.add(HashToInt.concat(w1LabelType, candidateLabel), 1.);
+					wordPairFv.add(HashToInt.concat(w1LabelType, e1String, candidateLabel), 1.);
 				}
 				List<Word> e2Words = getEntityWords(pair.getW2(), instance, y, lastIndex, (WordLabelUnit)y.getLabel(w2Idx));
 				if(e2Words.size() != 0){
-					e2String = entityString(e2Words);
-					w2LabelType = ((WordLabelUnit)y.getLabel(w2Idx)).getType();
-					wordPairFv.add(candidateLabel.concat(w2LabelType), 1.);
-					wordPairFv.add(candidateLabel.concat(w2LabelType).concat(e2String), 1.);
+					e2String = entityCode(e2Words);
+					w2LabelType = ((WordLabelUnit)y.getLabel(w2Idx)).getTypeCode();
+					wordPairFv.add(HashToInt.concat(candidateLabel, w2LabelType), 1.);
+					wordPairFv.add(HashToInt.concat(candidateLabel, w2LabelType, e2String), 1.);
 				}
 				// ent-rel-ent
 				if(e1Words.size() != 0 && e2Words.size() != 0){	
-					wordPairFv.add(w1LabelType.concat(candidateLabel).concat(w2LabelType), 1.);
-					wordPairFv.add(w1LabelType.concat(e1String).concat(candidateLabel).concat(w2LabelType).concat(e2String), 1.);
+					wordPairFv.add(HashToInt.concat(w1LabelType, candidateLabel, w2LabelType), 1.);
+					wordPairFv.add(HashToInt.concat(w1LabelType, e1String, candidateLabel, w2LabelType, e2String), 1.);
 				}
 			}
 		}
-		globalFv.add(parallelFv, "PARA");
-		globalFv.add(counterFv, "COUNT");
-		globalFv.add(wordPairFv, "WORDPAIR");
+		globalFv.add(parallelFv, PARA);
+		globalFv.add(counterFv, COUNT);
+		globalFv.add(wordPairFv, WORDPAIR);
 		globalFv.scale(params.getRelWeight());
 		return globalFv;		
 	}
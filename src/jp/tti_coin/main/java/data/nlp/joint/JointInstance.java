@@ -9,6 +9,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.TreeMultimap;
 
+import utils.Metrics;
 import config.Parameters;
 import model.Model;
 import data.Instance;
@@ -19,6 +20,7 @@ import data.SequenceUnit;
 import data.nlp.Node;
 
 public class JointInstance extends Instance {
+	private static final Metrics.Timer CACHE_FEATURES = Metrics.timer("features.cache");
 	private int[] words;
 	private int[][] wordPairs;
 	
@@ -143,7 +145,7 @@ public class JointInstance extends Instance {
 					values.put(new EntFirstMeasure(0, Double.POSITIVE_INFINITY, 0, word.getId()), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -160,7 +162,7 @@ public class JointInstance extends Instance {
 					values.put(new EntFirstMeasure(1+Math.abs(pair.getW1().getId()-pair.getW2().getId()), Double.POSITIVE_INFINITY, Math.abs(pair.getW1().getId()-pair.getW2().getId()), pairIdx), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -210,7 +212,7 @@ public class JointInstance extends Instance {
 					values.put(new EntFirstMeasure(0, Double.POSITIVE_INFINITY, 0, word.getId()), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -227,7 +229,7 @@ public class JointInstance extends Instance {
 					values.put(new EntFirstMeasure(1, Double.POSITIVE_INFINITY, Math.abs(pair.getW1().getId()-pair.getW2().getId()), pairIdx), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -338,7 +340,7 @@ public class JointInstance extends Instance {
 					values.put(new Measure(Double.POSITIVE_INFINITY, 0, word.getId()), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -355,7 +357,7 @@ public class JointInstance extends Instance {
 					values.put(new Measure(Double.POSITIVE_INFINITY, Math.abs(pair.getW1().getId()-pair.getW2().getId()), pairIdx), target);					
 				}else{
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -421,7 +423,7 @@ public class JointInstance extends Instance {
 					List<Double> scores = new Vector<Double>();
 					Collection<LabelUnit> labels = word.getPossibleLabels(y, this);
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -434,7 +436,7 @@ public class JointInstance extends Instance {
 					Collection<LabelUnit> labels = pair.getPossibleLabels(y, this);
 					int pairIdx = (pair.getW1().getId() + 1) * words.length + pair.getW2().getId() + 1;
 					for(LabelUnit label:labels){
-						double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+						double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 						scores.add(score);
 					}
 					int size = scores.size();
@@ -536,7 +538,7 @@ public class JointInstance extends Instance {
 				Word word = (Word)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:word.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -551,7 +553,7 @@ public class JointInstance extends Instance {
 				Pair pair = (Pair)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:pair.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -594,7 +596,7 @@ public class JointInstance extends Instance {
 				Word word = (Word)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:word.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -609,7 +611,7 @@ public class JointInstance extends Instance {
 				Pair pair = (Pair)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:pair.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -685,7 +687,7 @@ public class JointInstance extends Instance {
 				Word word = (Word)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:word.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -700,7 +702,7 @@ public class JointInstance extends Instance {
 				Pair pair = (Pair)sequence.get(index);
 				List<Double> scores = new Vector<Double>();
 				for(LabelUnit label:pair.getPossibleLabels(new Label(params), this)){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+					double score = model.evaluateLocal(this, index, label, test);
 					scores.add(score);
 				}
 				int size = scores.size();
@@ -737,6 +739,7 @@ public class JointInstance extends Instance {
 
 	@Override
 	public void cacheFeatures() {
+		long start = Metrics.start();
 		for(int i = 0;i < size();i++){
 			if(sequence.get(i) instanceof Pair){
 				Pair pair = (Pair)sequence.get(i);
@@ -756,11 +759,13 @@ public class JointInstance extends Instance {
 			if(sequence.get(i) instanceof Word){
 				Node w = ((Word)sequence.get(i)).getWord();
 				if(w.getCache() == null){
+					w.calcCodes();
 					w.setCache(new JointFeatureCache(params, w));
 					w.getCache().calcNodeFeatures();
 				}				
 			}
 		}
+		CACHE_FEATURES.stop(start);
 	}
 
 	public Collection<LabelUnit> getCandidateLabels(Label label, int index) {
@@ -777,54 +782,54 @@ public class JointInstance extends Instance {
 	}
 	
 	
-	public String getGoldType(Label label, int id){
-		String goldPosition = ((WordLabelUnit)getGoldLabel().getLabel(getWord(id))).getPosition();
+	public int getGoldType(Label label, int id){
+		int goldPosition = ((WordLabelUnit)getGoldLabel().getLabel(getWord(id))).getPositionId();
 		int size = label.size();
-		if(goldPosition.equals("B")){
+		if(goldPosition == WordLabelUnit.B_ID){
 			for(int i = id+1;;++i){
-				String pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPosition();					
+				int pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPositionId();					
 				int wIdx = getWord(i);
 				if(wIdx < size){
-					return ((WordLabelUnit)label.getLabel(wIdx)).getType();
+					return ((WordLabelUnit)label.getLabel(wIdx)).getTypeId();
 				}
-				if(pos.equals("L")){
+				if(pos == WordLabelUnit.L_ID){
 					break;
 				}
 			}
-		}else if(goldPosition.equals("L")){
+		}else if(goldPosition == WordLabelUnit.L_ID){
 			for(int i = id-1;;--i){
-				String pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPosition();					
+				int pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPositionId();					
 				int wIdx = getWord(i);
 				if(wIdx < size){
-					return ((WordLabelUnit)label.getLabel(wIdx)).getType();
+					return ((WordLabelUnit)label.getLabel(wIdx)).getTypeId();
 				}
-				if(pos.equals("B")){
+				if(pos == WordLabelUnit.B_ID){
 					break;
 				}
 			}				
-		}else if(goldPosition.equals("I")){
+		}else if(goldPosition == WordLabelUnit.I_ID){
 			for(int i = id-1;;--i){
-				String pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPosition();						
+				int pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPositionId();						
 				int wIdx = getWord(i);
 				if(wIdx < size){
-					return ((WordLabelUnit)label.getLabel(wIdx)).getType();
+					return ((WordLabelUnit)label.getLabel(wIdx)).getTypeId();
 				}
-				if(pos.equals("B")){
+				if(pos == WordLabelUnit.B_ID){
 					break;
 				}
 			}
 			for(int i = id+1;;++i){
-				String pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPosition();
+				int pos = ((WordLabelUnit)getGoldLabel().getLabel(getWord(i))).getPositionId();
 				int wIdx = getWord(i);
 				if(wIdx < size){
-					return ((WordLabelUnit)label.getLabel(wIdx)).getType();
+					return ((WordLabelUnit)label.getLabel(wIdx)).getTypeId();
 				}
-				if(pos.equals("L")){
+				if(pos == WordLabelUnit.L_ID){
 					break;
 				}
 			}
 		}
-		return "";
+		return WordLabelUnit.NONE;
 	}
 
 	@Override
@@ -22,5 +22,6 @@ public class JointPredict {
 		Model model = Model.create(params, fg);
 		model.load(params.getModelFile());
 		sl.predict(model, test);
+		infer.shutdown();
 	}
 }
@@ -24,6 +24,7 @@ public class JointTrain {
 		StructuredLearning sl = new StructuredLearning(params, infer, evaluator); 
 		FeatureGenerator fg = new JointFeatureGenerator(params);
 		Model model = sl.learn(train, fg, dev);
+		infer.shutdown();
 		if(model != null){
 			model.save(params.getModelFile());
 		}
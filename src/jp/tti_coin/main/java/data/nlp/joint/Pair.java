@@ -47,14 +47,14 @@ public class Pair extends SequenceUnit {
 	
 	public Collection<LabelUnit> getPossibleLabels(Label label, JointInstance instance) {
 		int w1Idx = instance.getWord(w1.getId());
-		String w1Type = "";
+		int w1Type = WordLabelUnit.NONE;
 		int w2Idx = instance.getWord(w2.getId());
-		String w2Type = "";
+		int w2Type = WordLabelUnit.NONE;
 		if(params.getUseGoldEntitySpan()){
-			String goldW1Position = ((WordLabelUnit)instance.getGoldLabel().getLabel(w1Idx)).getPosition();
-			String goldW2Position = ((WordLabelUnit)instance.getGoldLabel().getLabel(w2Idx)).getPosition();
-			if(!(goldW1Position.equals("U") || goldW1Position.equals("L")) ||
-					!(goldW2Position.equals("U") || goldW2Position.equals("L"))){
+			int goldW1Position = ((WordLabelUnit)instance.getGoldLabel().getLabel(w1Idx)).getPositionId();
+			int goldW2Position = ((WordLabelUnit)instance.getGoldLabel().getLabel(w2Idx)).getPositionId();
+			if(!(goldW1Position == WordLabelUnit.U_ID || goldW1Position == WordLabelUnit.L_ID) ||
+					!(goldW2Position == WordLabelUnit.U_ID || goldW2Position == WordLabelUnit.L_ID)){
 				Set<LabelUnit> labels = new TreeSet<LabelUnit>();
 				labels.add(getNegativeClassLabel());
 				return labels;				
@@ -64,75 +64,65 @@ public class Pair extends SequenceUnit {
 		}
 		if(w1Idx < label.size()){
 			assert label.getLabel(w1Idx) instanceof WordLabelUnit;
-			String position = ((WordLabelUnit)label.getLabel(w1Idx)).getPosition();
-			if(position.equals(WordLabelUnit.B) || position.equals(WordLabelUnit.I) || position.equals(WordLabelUnit.O)){
+			int position = ((WordLabelUnit)label.getLabel(w1Idx)).getPositionId();
+			if(position == WordLabelUnit.B_ID || position == WordLabelUnit.I_ID || position == WordLabelUnit.O_ID){
 				Set<LabelUnit> labels = new TreeSet<LabelUnit>();
 				labels.add(getNegativeClassLabel());
 				return labels;
 			}			
-			w1Type = ((WordLabelUnit)label.getLabel(w1Idx)).getType();
+			w1Type = ((WordLabelUnit)label.getLabel(w1Idx)).getTypeId();
 		}
 		if(w1.getId() < instance.getNumWords() - 1){
 			int nw1Idx = instance.getWord(w1.getId() + 1);
 			if(nw1Idx < label.size()){
-				String nextPosition = ((WordLabelUnit)label.getLabel(nw1Idx)).getPosition();
-				if(nextPosition.equals(WordLabelUnit.I) || nextPosition.equals(WordLabelUnit.L)){
+				int nextPosition = ((WordLabelUnit)label.getLabel(nw1Idx)).getPositionId();
+				if(nextPosition == WordLabelUnit.I_ID || nextPosition == WordLabelUnit.L_ID){
 					Set<LabelUnit> labels = new TreeSet<LabelUnit>();
 					labels.add(getNegativeClassLabel());
 					return labels;				
 				}
 			}
 		}		
-		if(w1Type.equals("") && w1.getId() > 0){
+		if(w1Type == WordLabelUnit.NONE && w1.getId() > 0){
 			int pw1Idx = instance.getWord(w1.getId() - 1);
 			if(pw1Idx < label.size()){
 				WordLabelUnit unit = (WordLabelUnit)label.getLabel(pw1Idx);
-				if(unit.getPosition().equals(WordLabelUnit.B)||unit.getPosition().equals(WordLabelUnit.I)){
-					w1Type = unit.getType();
+				if(unit.getPositionId() == WordLabelUnit.B_ID||unit.getPositionId() == WordLabelUnit.I_ID){
+					w1Type = unit.getTypeId();
 				}
 			}
 		}
 		if(w2Idx < label.size()){
 			assert label.getLabel(w2Idx) instanceof WordLabelUnit;
-			String position = ((WordLabelUnit)label.getLabel(w2Idx)).getPosition();
-			if(position.equals(WordLabelUnit.B) || position.equals(WordLabelUnit.I) || position.equals(WordLabelUnit.O)){
+			int position = ((WordLabelUnit)label.getLabel(w2Idx)).getPositionId();
+			if(position == WordLabelUnit.B_ID || position == WordLabelUnit.I_ID || position == WordLabelUnit.O_ID){
 				Set<LabelUnit> labels = new TreeSet<LabelUnit>();
 				labels.add(getNegativeClassLabel());
 				return labels;
 			}
-			w2Type = ((WordLabelUnit)label.getLabel(w2Idx)).getType();
+			w2Type = ((WordLabelUnit)label.getLabel(w2Idx)).getTypeId();
 		}
 		if(w2.getId() < instance.getNumWords() - 1){
 			int nw2Idx = instance.getWord(w2.getId() + 1);
 			if(nw2Idx < label.size()){
-				String nextPosition = ((WordLabelUnit)label.getLabel(nw2Idx)).getPosition();
-				if(nextPosition.equals(WordLabelUnit.I) || nextPosition.equals(WordLabelUnit.L)){
+				int nextPosition = ((WordLabelUnit)label.getLabel(nw2Idx)).getPositionId();
+				if(nextPosition == WordLabelUnit.I_ID || nextPosition == WordLabelUnit.L_ID){
 					Set<LabelUnit> labels = new TreeSet<LabelUnit>();
 					labels.add(getNegativeClassLabel());
 					return labels;				
 				}
 			}
 		}
-		if(w2Type.equals("") && w2.getId() > 0){
+		if(w2Type == WordLabelUnit.NONE && w2.getId() > 0){
 			int pw2Idx = instance.getWord(w2.getId() - 1);
 			if(pw2Idx < label.size()){
 				WordLabelUnit unit = (WordLabelUnit)label.getLabel(pw2Idx);
-				if(unit.getPosition().equals(WordLabelUnit.B)||unit.getPosition().equals(WordLabelUnit.I)){
-					w2Type = unit.getType();
+				if(unit.getPositionId() == WordLabelUnit.B_ID||unit.getPositionId() == WordLabelUnit.I_ID){
+					w2Type = unit.getTypeId();
 				}
 			}
 		}
-		String type = ":";
-		if(params.getUseRelationTypeFilter()){
-			type = w1Type+":"+w2Type;
-		}
-		if(!params.getPossibleLabels().containsKey(type)){
-			Set<LabelUnit> labels = new TreeSet<LabelUnit>();
-			labels.add(getNegativeClassLabel());
-			return labels;
-		}
-				
-		return params.getPossibleLabels(type);
+		return params.getPairPossibleLabels(w1Type, w2Type);
 	}
 
 }
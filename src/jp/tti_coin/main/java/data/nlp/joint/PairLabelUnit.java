@@ -3,11 +3,20 @@ package data.nlp.joint;
 import java.util.Collection;
 import java.util.Vector;
 
+import utils.HashToInt;
+import utils.SymbolTable;
 import config.Parameters;
 import data.LabelUnit;
 
 public class PairLabelUnit implements LabelUnit {
+	public static final SymbolTable LABELS = new SymbolTable();
+	// label not interned yet
+	private static final int UNINTERNED = -1;
+	private static final PairLabelUnit NEGATIVE = new PairLabelUnit(new Vector<String>());
 	String label;
+	private int labelId = UNINTERNED;
+	private boolean negative;
+	private long labelCode;
 	public PairLabelUnit(Collection<String> rels){
 		StringBuffer sb = new StringBuffer();
 		if(rels.size() == 0){
@@ -20,25 +29,38 @@ public class PairLabelUnit implements LabelUnit {
 			}
 		}
 		this.label = sb.toString();
+		init();
 	}
 	
 	public PairLabelUnit(String label) {
 		this.label = label;
+		init();
+	}
+
+	private void init() {
+		this.negative = label.startsWith(Parameters.getNegativeClassLabel());
+		this.labelCode = HashToInt.code(label);
 	}
 
 	@Override
 	public int compareTo(LabelUnit lu) {
 		if(!(lu instanceof PairLabelUnit))return 1;
+		// ids depend on the order the labels are seen, so the labels are ordered by their strings
 		return label.compareTo(((PairLabelUnit)lu).label);
 	}
 
+	// interns the label, see JointDocument.internLabels()
+	public void intern() {
+		getLabelId();
+	}
+
 	@Override
 	public boolean isNegative() {
-		return label.startsWith(Parameters.getNegativeClassLabel());
+		return negative;
 	}
 	
 	public static LabelUnit getNegativeClassLabelUnit() {
-		return new PairLabelUnit(new Vector<String>());
+		return NEGATIVE;
 	}
 
 	public String getType(){
@@ -53,6 +75,20 @@ public class PairLabelUnit implements LabelUnit {
 		return label;
 	}
 	
+	// the label is interned when its id is first used, as the types of WordLabelUnit
+	public int getLabelId(){
+		int id = labelId;
+		if(id == UNINTERNED){
+			id = LABELS.getId(label);
+			labelId = id;
+		}
+		return id;
+	}
+	
+	public long getLabelCode(){
+		return labelCode;
+	}
+	
 	@Override
 	public String toString() {		
 		return getLabel();
@@ -67,6 +103,11 @@ public class PairLabelUnit implements LabelUnit {
 		if(this.isNegative() && labelUnit.isNegative()){
 			return true;
 		}
-		return getLabel().equals(labelUnit.getLabel());
+		return getLabelId() == labelUnit.getLabelId();
+	}
+
+	@Override
+	public int hashCode() {
+		return negative ? -1 : getLabelId();
 	}
 }
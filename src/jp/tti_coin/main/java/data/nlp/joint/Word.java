@@ -1,5 +1,6 @@
 package data.nlp.joint;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
@@ -80,18 +81,18 @@ public class Word extends SequenceUnit {
 			labels = new TreeSet<LabelUnit>(params.getPossibleLabels().get(getType()));
 		}
 		if(params.getUseGoldEntitySpan()){
-			String goldPosition = ((WordLabelUnit)instance.getGoldLabel().getLabel(instance.getWord(id))).getPosition();
+			int goldPosition = ((WordLabelUnit)instance.getGoldLabel().getLabel(instance.getWord(id))).getPositionId();
 			for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 				WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-				if(!unit.getPosition().equals(goldPosition)){
+				if(unit.getPositionId() != goldPosition){
 					unitIt.remove();
 				}
 			}
-			String goldType = instance.getGoldType(label, id);
-			if(!goldType.equals("")){
+			int goldType = instance.getGoldType(label, id);
+			if(goldType != WordLabelUnit.NONE){
 				for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 					WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-					if(!unit.getType().equals(goldType)){
+					if(unit.getTypeId() != goldType){
 						unitIt.remove();
 					}
 				}
@@ -103,8 +104,8 @@ public class Word extends SequenceUnit {
 			if(relLabelUnits.size() != 0){
 				for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 					WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-					if(unit.getPosition().equals(WordLabelUnit.I) || 
-						unit.getPosition().equals(WordLabelUnit.L)){
+					if(unit.getPositionId() == WordLabelUnit.I_ID || 
+						unit.getPositionId() == WordLabelUnit.L_ID){
 						unitIt.remove();
 					}
 				}
@@ -112,15 +113,15 @@ public class Word extends SequenceUnit {
 			}
 			if(prevWordIndex < size){				
 				assert label.getLabel(prevWordIndex) instanceof WordLabelUnit;
-				String position = ((WordLabelUnit)label.getLabel(prevWordIndex)).getPosition();
-				String type = ((WordLabelUnit)label.getLabel(prevWordIndex)).getType();
-				if(position.equals(WordLabelUnit.B) || position.equals(WordLabelUnit.I)){
+				int position = ((WordLabelUnit)label.getLabel(prevWordIndex)).getPositionId();
+				int type = ((WordLabelUnit)label.getLabel(prevWordIndex)).getTypeId();
+				if(position == WordLabelUnit.B_ID || position == WordLabelUnit.I_ID){
 					for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 						WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-						if(!unit.getType().equals(type) || 
-								unit.getPosition().equals(WordLabelUnit.B) || 
-								unit.getPosition().equals(WordLabelUnit.U) || 
-								unit.getPosition().equals(WordLabelUnit.O) ){
+						if(unit.getTypeId() != type || 
+								unit.getPositionId() == WordLabelUnit.B_ID || 
+								unit.getPositionId() == WordLabelUnit.U_ID || 
+								unit.getPositionId() == WordLabelUnit.O_ID ){
 							unitIt.remove();
 						}
 					}
@@ -128,8 +129,8 @@ public class Word extends SequenceUnit {
 				}else{
 					for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 						WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-						if(unit.getPosition().equals(WordLabelUnit.I) || 
-								unit.getPosition().equals(WordLabelUnit.L)){
+						if(unit.getPositionId() == WordLabelUnit.I_ID || 
+								unit.getPositionId() == WordLabelUnit.L_ID){
 							unitIt.remove();
 						}
 					}
@@ -139,13 +140,13 @@ public class Word extends SequenceUnit {
 			if(id > 1){
 				int pprevWordIndex = instance.getWord(id - 2);
 				if(pprevWordIndex < size){
-					String position = ((WordLabelUnit)label.getLabel(pprevWordIndex)).getPosition();
-					String type = ((WordLabelUnit)label.getLabel(pprevWordIndex)).getType();
-					if(position.equals(WordLabelUnit.B)||position.equals(WordLabelUnit.I)){
+					int position = ((WordLabelUnit)label.getLabel(pprevWordIndex)).getPositionId();
+					int type = ((WordLabelUnit)label.getLabel(pprevWordIndex)).getTypeId();
+					if(position == WordLabelUnit.B_ID||position == WordLabelUnit.I_ID){
 						for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 							WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-							if((unit.getPosition().equals(WordLabelUnit.L)||unit.getPosition().equals(WordLabelUnit.I)) && 
-									!unit.getType().equals(type)){
+							if((unit.getPositionId() == WordLabelUnit.L_ID||unit.getPositionId() == WordLabelUnit.I_ID) && 
+									unit.getTypeId() != type){
 								unitIt.remove();
 							}
 						}
@@ -156,8 +157,8 @@ public class Word extends SequenceUnit {
 		}else if(id == 0){
 			for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 				WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-				if(unit.getPosition().equals(WordLabelUnit.I) || 
-						unit.getPosition().equals(WordLabelUnit.L)){
+				if(unit.getPositionId() == WordLabelUnit.I_ID || 
+						unit.getPositionId() == WordLabelUnit.L_ID){
 					unitIt.remove();
 				}
 			}
@@ -167,15 +168,15 @@ public class Word extends SequenceUnit {
 			int nextWordIndex = instance.getWord(id + 1);
 			Collection<LabelUnit> relLabelUnits = ((Word)instance.getSequence().get(nextWordIndex)).getRelWordLabels(label, instance);
 			if(relLabelUnits.size() != 0){
-				Set<String> possibleTypes = new TreeSet<String>();
+				BitSet possibleTypes = new BitSet(WordLabelUnit.TYPES.size());
 				for(LabelUnit relLabelUnit:relLabelUnits){
-					possibleTypes.add(((WordLabelUnit)relLabelUnit).getType());				
+					possibleTypes.set(((WordLabelUnit)relLabelUnit).getTypeId());				
 				}
 				for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 					WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-					if((unit.getPosition().equals(WordLabelUnit.B) || 
-						unit.getPosition().equals(WordLabelUnit.I)) && 
-						!possibleTypes.contains(unit.getType())){
+					if((unit.getPositionId() == WordLabelUnit.B_ID || 
+						unit.getPositionId() == WordLabelUnit.I_ID) && 
+						!possibleTypes.get(unit.getTypeId())){
 						unitIt.remove();
 					}
 				}
@@ -183,15 +184,15 @@ public class Word extends SequenceUnit {
 			}
 			if(nextWordIndex < size){
 				assert label.getLabel(nextWordIndex) instanceof WordLabelUnit;
-				String position = ((WordLabelUnit)label.getLabel(nextWordIndex)).getPosition();
-				String type = ((WordLabelUnit)label.getLabel(nextWordIndex)).getType();
-				if(position.equals(WordLabelUnit.I) || position.equals(WordLabelUnit.L)){
+				int position = ((WordLabelUnit)label.getLabel(nextWordIndex)).getPositionId();
+				int type = ((WordLabelUnit)label.getLabel(nextWordIndex)).getTypeId();
+				if(position == WordLabelUnit.I_ID || position == WordLabelUnit.L_ID){
 					for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 						WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-						if(!unit.getType().equals(type) || 
-								unit.getPosition().equals(WordLabelUnit.L) || 
-								unit.getPosition().equals(WordLabelUnit.U) || 
-								unit.getPosition().equals(WordLabelUnit.O) ){
+						if(unit.getTypeId() != type || 
+								unit.getPositionId() == WordLabelUnit.L_ID || 
+								unit.getPositionId() == WordLabelUnit.U_ID || 
+								unit.getPositionId() == WordLabelUnit.O_ID ){
 							unitIt.remove();
 						}
 					}
@@ -199,8 +200,8 @@ public class Word extends SequenceUnit {
 				}else{
 					for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 						WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-						if(unit.getPosition().equals(WordLabelUnit.B) || 
-								unit.getPosition().equals(WordLabelUnit.I)){
+						if(unit.getPositionId() == WordLabelUnit.B_ID || 
+								unit.getPositionId() == WordLabelUnit.I_ID){
 							unitIt.remove();
 						}
 					}
@@ -210,14 +211,14 @@ public class Word extends SequenceUnit {
 			if(id < instance.getNumWords() - 2){
 				int nNextWordIndex = instance.getWord(id + 2);
 				if(nNextWordIndex < size){
-					String position = ((WordLabelUnit)label.getLabel(nNextWordIndex)).getPosition();
-					String type = ((WordLabelUnit)label.getLabel(nNextWordIndex)).getType();
-					if(position.equals(WordLabelUnit.L) || position.equals(WordLabelUnit.I)){
+					int position = ((WordLabelUnit)label.getLabel(nNextWordIndex)).getPositionId();
+					int type = ((WordLabelUnit)label.getLabel(nNextWordIndex)).getTypeId();
+					if(position == WordLabelUnit.L_ID || position == WordLabelUnit.I_ID){
 						//B-type, O, I-type, U-*, L-*
 						for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 							WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-							if((unit.getPosition().equals(WordLabelUnit.B)||unit.getPosition().equals(WordLabelUnit.I)) && 
-									!unit.getType().equals(type)){
+							if((unit.getPositionId() == WordLabelUnit.B_ID||unit.getPositionId() == WordLabelUnit.I_ID) && 
+									unit.getTypeId() != type){
 								unitIt.remove();
 							}
 						}					
@@ -228,8 +229,8 @@ public class Word extends SequenceUnit {
 			// L-*, O, U-*
 			for(Iterator<LabelUnit> unitIt=labels.iterator();unitIt.hasNext();){
 				WordLabelUnit unit = (WordLabelUnit)unitIt.next();
-				if(unit.getPosition().equals(WordLabelUnit.B) || 
-						unit.getPosition().equals(WordLabelUnit.I)){
+				if(unit.getPositionId() == WordLabelUnit.B_ID || 
+						unit.getPositionId() == WordLabelUnit.I_ID){
 					unitIt.remove();
 				}
 			}
@@ -1,5 +1,7 @@
 package data.nlp.joint;
 
+import utils.HashToInt;
+import utils.SymbolTable;
 import config.Parameters;
 import data.LabelUnit;
 
@@ -10,55 +12,115 @@ public class WordLabelUnit implements LabelUnit {
 	public static final String O = "O";
 	public static final String U = "U";
 
-	private String position; 
-	private String type; 
-	
+	public static final SymbolTable POSITIONS = new SymbolTable(B, I, L, O, U);
+	public static final SymbolTable TYPES = new SymbolTable(Parameters.getNegativeClassLabel());
+	public static final int B_ID = POSITIONS.getId(B);
+	public static final int I_ID = POSITIONS.getId(I);
+	public static final int L_ID = POSITIONS.getId(L);
+	public static final int O_ID = POSITIONS.getId(O);
+	public static final int U_ID = POSITIONS.getId(U);
+	public static final int NEGATIVE_TYPE_ID = TYPES.getId(Parameters.getNegativeClassLabel());
+	// no type
+	public static final int NONE = -1;
+	// type not interned yet
+	private static final int UNINTERNED = -2;
+
+	private static final WordLabelUnit NEGATIVE = new WordLabelUnit(O, Parameters.getNegativeClassLabel());
+
+	private String position;
+	private String type;
+	private String label;
+	private int positionId;
+	private int typeId = UNINTERNED;
+	private boolean negative;
+	private long labelCode;
+	private long typeCode;
+
 	public WordLabelUnit(String position, String type){
 		this.position = position;
 		this.type = type;
+		init();
 	}
-	
+
 	public WordLabelUnit(String value) {
 		String[] attrs = value.split("-", 2);
 		assert attrs.length == 2 && attrs[0].length() == 1;
 		this.position = attrs[0];
 		this.type = attrs[1];
+		init();
+	}
+
+	private void init() {
+		this.label = position+"-"+type;
+		this.positionId = POSITIONS.getId(position);
+		this.negative = type.equals(Parameters.getNegativeClassLabel());
+		this.labelCode = HashToInt.code(label);
+		this.typeCode = HashToInt.code(type);
 	}
 
 	@Override
 	public int compareTo(LabelUnit lu) {
 		if(!(lu instanceof WordLabelUnit))return -1;
+		// ids depend on the order the labels are seen, so the labels are ordered by their strings
 		int comp = this.position.compareTo(((WordLabelUnit)lu).position);
 		if(comp != 0)return comp;
 		return type.compareTo(((WordLabelUnit)lu).type);
 	}
 
+	// interns the type, see JointDocument.internLabels()
+	public void intern() {
+		getTypeId();
+	}
+
 	@Override
 	public boolean isNegative() {
-		return this.type.equals(Parameters.getNegativeClassLabel());
+		return negative;
 	}
 
 	public String getPosition() {
 		return position;
 	}
-	
+
 	public String getType(){
 		return type;
 	}
-	
+
+	public int getPositionId() {
+		return positionId;
+	}
+
+	// the type is interned when its id is first used, so that the units built on the loader threads
+	// get their ids in the order of the documents (a race only looks up the same id twice)
+	public int getTypeId(){
+		int id = typeId;
+		if(id == UNINTERNED){
+			id = TYPES.getId(type);
+			typeId = id;
+		}
+		return id;
+	}
+
 	public String getLabel(){
-		return position+"-"+type;
+		return label;
+	}
+
+	public long getLabelCode(){
+		return labelCode;
+	}
+
+	public long getTypeCode(){
+		return typeCode;
 	}
 
 	public static LabelUnit getNegativeClassLabelUnit() {
-		return new WordLabelUnit(O, Parameters.getNegativeClassLabel());
+		return NEGATIVE;
 	}
-	
+
 	@Override
-	public String toString() {		
+	public String toString() {
 		return getLabel();
 	}
-	
+
 	@Override
 	public boolean equals(Object unit) {
 		if(!(unit instanceof WordLabelUnit)){
@@ -68,6 +130,14 @@ public class WordLabelUnit implements LabelUnit {
 		if(this.isNegative() && labelUnit.isNegative()){
 			return true;
 		}
-		return getLabel().equals(labelUnit.getLabel());
+		return positionId == labelUnit.positionId && getTypeId() == labelUnit.getTypeId();
+	}
+
+	@Override
+	public int hashCode() {
+		if(isNegative()){
+			return NEGATIVE_TYPE_ID;
+		}
+		return positionId * 31 + getTypeId();
 	}
 }
@@ -98,7 +98,7 @@ public class PipelineEvaluator extends Evaluator {
 	}
 	
 	
-	public void evaluateAll(Model nerModel, Model relModel, Data valid){
+	public void evaluateAll(final Model nerModel, final Model relModel, final Data valid){
 		int ws_correct = 0;
 		int wt_sum = 0;
 		int wt_match = 0, wcorrect = 0, wpred = 0, wgold = 0;
@@ -118,10 +118,15 @@ public class PipelineEvaluator extends Evaluator {
 		Map<String, Counter> wpcounters = new TreeMap<String, Counter>();
 		
 		
+		List<State> bestStates = decodeAll(valid.size(), new DecodeTask(){
+			@Override
+			public State decode(int index) {
+				return ((PipelineInference)getInference()).inferBestState(nerModel, relModel, valid.getInstance(index), true, false).get(0);
+			}
+		});
 		for(int idx = 0;idx < valid.size();idx++){
-			Instance instance = valid.getInstance(idx); 
-			List<State> yStarStates = ((PipelineInference)getInference()).inferBestState(nerModel, relModel, instance, true, false);
-			instance = yStarStates.get(0).getInstance();
+			State yStarState = bestStates.get(idx);
+			Instance instance = yStarState.getInstance();
 			boolean wmatch = true;
 			boolean pmatch = true;
 			Multimap<String, Offset> goldEntities = TreeMultimap.create();
@@ -130,12 +135,12 @@ public class PipelineEvaluator extends Evaluator {
 			Map<String, Tuple<String, Offset>> predIdEntityMap = new TreeMap<String, Tuple<String, Offset>>();
 			
 			getEntities(goldEntities, goldIdEntityMap, instance, instance.getGoldLabel());
-			getEntities(predEntities, predIdEntityMap, instance, yStarStates.get(0).getLabel());
+			getEntities(predEntities, predIdEntityMap, instance, yStarState.getLabel());
 			
 			for(int i = 0;i < instance.size();i++){
 				if(instance.getSequence().get(i) instanceof Word){
 					String goldLabel = ((WordLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel().split("\\|")[0];
-					String predLabel = ((WordLabelUnit)yStarStates.get(0).getLabel().getLabel(i)).getLabel().split("\\|")[0];
+					String predLabel = ((WordLabelUnit)yStarState.getLabel().getLabel(i)).getLabel().split("\\|")[0];
 					if(!wcounters.containsKey(goldLabel)){
 						wcounters.put(goldLabel, new Counter());
 					}
@@ -144,8 +149,8 @@ public class PipelineEvaluator extends Evaluator {
 					}
 					wcounters.get(goldLabel).gold++;
 					wcounters.get(predLabel).pred++;
-					if(instance.getGoldLabel().getLabel(i).equals(yStarStates.get(0).getLabel().getLabel(i))){
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+					if(instance.getGoldLabel().getLabel(i).equals(yStarState.getLabel().getLabel(i))){
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							wcorrect++;
 							wpred++;
 							wgold++;
@@ -154,9 +159,9 @@ public class PipelineEvaluator extends Evaluator {
 						wt_match++;
 					}else{
 						wmatch = false;
-						assert !yStarStates.get(0).getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative():
-							((WordLabelUnit)yStarStates.get(0).getLabel().getLabel(i)).getLabel()+":"+((WordLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel();
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						assert !yStarState.getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative():
+							((WordLabelUnit)yStarState.getLabel().getLabel(i)).getLabel()+":"+((WordLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel();
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							wpred++;
 						}
 						if(!instance.getGoldLabel().getLabel(i).isNegative()){
@@ -167,7 +172,7 @@ public class PipelineEvaluator extends Evaluator {
 				}else if(instance.getSequence().get(i) instanceof Pair){						
 					PairLabelUnit goldLabelUnit = (PairLabelUnit)instance.getGoldLabel().getLabel(i);
 					String goldType = goldLabelUnit.getType();
-					PairLabelUnit predLabelUnit = (PairLabelUnit)yStarStates.get(0).getLabel().getLabel(i);
+					PairLabelUnit predLabelUnit = (PairLabelUnit)yStarState.getLabel().getLabel(i);
 					String predType = predLabelUnit.getType();
 					if(!pcounters.containsKey(goldType)){
 						pcounters.put(goldType, new Counter());
@@ -177,8 +182,8 @@ public class PipelineEvaluator extends Evaluator {
 					}
 					pcounters.get(goldType).gold++;
 					pcounters.get(predType).pred++;
-					if(instance.getGoldLabel().getLabel(i).equals(yStarStates.get(0).getLabel().getLabel(i))){
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+					if(instance.getGoldLabel().getLabel(i).equals(yStarState.getLabel().getLabel(i))){
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							pcorrect++;
 							ppred++;
 							pgold++;
@@ -187,9 +192,9 @@ public class PipelineEvaluator extends Evaluator {
 						pt_match++;
 					}else{
 						pmatch = false;
-						assert !yStarStates.get(0).getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative():
-							((PairLabelUnit)yStarStates.get(0).getLabel().getLabel(i)).getLabel()+":"+((PairLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel();
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						assert !yStarState.getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative():
+							((PairLabelUnit)yStarState.getLabel().getLabel(i)).getLabel()+":"+((PairLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel();
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							ppred++;
 						}
 						if(!instance.getGoldLabel().getLabel(i).isNegative()){
@@ -214,18 +219,18 @@ public class PipelineEvaluator extends Evaluator {
 					wpcounters.get(goldType).gold++;
 					wpcounters.get(predType).pred++;
 					assert instance.getGoldLabel().getLabel(i).isNegative() || (goldE1 != null && goldE2 != null);
-					assert yStarStates.get(0).getLabel().getLabel(i).isNegative() || (predE1 != null && predE2 != null);
-					if(instance.getGoldLabel().getLabel(i).equals(yStarStates.get(0).getLabel().getLabel(i)) &&
+					assert yStarState.getLabel().getLabel(i).isNegative() || (predE1 != null && predE2 != null);
+					if(instance.getGoldLabel().getLabel(i).equals(yStarState.getLabel().getLabel(i)) &&
 							((goldE1 == predE1) || (goldE1 != null && predE1 != null && goldE1.getT1().equals(predE1.getT1()) && goldE1.getT2().equals(predE1.getT2()))) && 
 							((goldE2 == predE2) || (goldE2 != null && predE2 != null && goldE2.getT1().equals(predE2.getT1()) && goldE2.getT2().equals(predE2.getT2())))){
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							wpcorrect++;
 							wppred++;
 							wpgold++;
 						}
 						wpcounters.get(goldType).correct++;
 					}else{
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						if(!yStarState.getLabel().getLabel(i).isNegative()){
 							wppred++;
 						}
 						if(!instance.getGoldLabel().getLabel(i).isNegative()){
@@ -357,123 +362,137 @@ public class PipelineEvaluator extends Evaluator {
 		return goldLabels;
 	}
 
-	public void predict(Model nerModel, Model relModel, Data test) {
+	public void predict(final Model nerModel, final Model relModel, Data test) {
 		assert test instanceof JointData;
+		final List<Document> documents = ((JointData)test).getDocuments();
+		final String[] logs = new String[documents.size()];
+		parallelFor(documents.size(), new IndexTask(){
+			@Override
+			public void run(int index) {
+				logs[index] = predict(nerModel, relModel, documents.get(index));
+			}
+		});
+		for(String log:logs){
+			System.out.print(log);
+		}
+	}
+	
+	private String predict(Model nerModel, Model relModel, Document document) {
+		StringBuilder log = new StringBuilder();
 		try {
-			for(Document document:((JointData)test).getDocuments()){
-				int nodeId = 0;
-				int relationId = 0;
-				BufferedWriter annotationWriter = null;
-				if(params.getUseByte()){
-					annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("US-ASCII"));
-				}else{
-					annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("UTF-8"));
+			int nodeId = 0;
+			int relationId = 0;
+			BufferedWriter annotationWriter = null;
+			if(params.getUseByte()){
+				annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("US-ASCII"));
+			}else{
+				annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("UTF-8"));
+			}
+			for(Instance instance:document.getInstances()){
+				instance.cacheFeatures();
+				List<State> yStarStates = ((PipelineInference)getInference()).inferBestState(nerModel, relModel, instance, true, false);					
+				//annotationWriter.write(String.format("%s\t%s %d %d\t%s\n", node.getId(), node.getType(), node.getOffset().getStart(), node.getOffset().getEnd(), node.getText()));						
+				
+				Map<Node, LabelUnit> nodeLabels = new TreeMap<Node, LabelUnit>();
+				for(int i = 0;i < instance.size();i++){
+					if(instance.getSequence().get(i) instanceof Word){
+						nodeLabels.put(((Word)instance.getSequence().get(i)).getWord(), yStarStates.get(0).getLabel().getLabel(i));
+					}
 				}
-				for(Instance instance:document.getInstances()){
-					instance.cacheFeatures();
-					List<State> yStarStates = ((PipelineInference)getInference()).inferBestState(nerModel, relModel, instance, true, false);					
-					//annotationWriter.write(String.format("%s\t%s %d %d\t%s\n", node.getId(), node.getType(), node.getOffset().getStart(), node.getOffset().getEnd(), node.getText()));						
-					
-					Map<Node, LabelUnit> nodeLabels = new TreeMap<Node, LabelUnit>();
-					for(int i = 0;i < instance.size();i++){
-						if(instance.getSequence().get(i) instanceof Word){
-							nodeLabels.put(((Word)instance.getSequence().get(i)).getWord(), yStarStates.get(0).getLabel().getLabel(i));
-						}
+				int start = 0;
+				int end = 0;
+				Map<Node, Integer> nodeIds = new TreeMap<Node, Integer>();
+				Map<Integer, String> nodeStrings = new TreeMap<Integer, String>();
+				for(Node node:nodeLabels.keySet()){
+					if(nodeLabels.get(node).isNegative())continue;
+					String position = ((WordLabelUnit)nodeLabels.get(node)).getPosition();
+					if(position.equals(WordLabelUnit.B) || position.equals(WordLabelUnit.U)){
+						start = node.getOffset().getStart();
 					}
-					int start = 0;
-					int end = 0;
-					Map<Node, Integer> nodeIds = new TreeMap<Node, Integer>();
-					Map<Integer, String> nodeStrings = new TreeMap<Integer, String>();
-					for(Node node:nodeLabels.keySet()){
-						if(nodeLabels.get(node).isNegative())continue;
-						String position = ((WordLabelUnit)nodeLabels.get(node)).getPosition();
-						if(position.equals(WordLabelUnit.B) || position.equals(WordLabelUnit.U)){
-							start = node.getOffset().getStart();
-						}
-						if(position.equals(WordLabelUnit.L) || position.equals(WordLabelUnit.U)){
-							end = node.getOffset().getEnd();
-							nodeId++;
-							String type = ((WordLabelUnit)nodeLabels.get(node)).getType();
-							annotationWriter.write(String.format("T%d\t%s %d %d\t%s\n", nodeId, type, start, end, node.getDocument().getText(new Offset(start, end))));						
-							nodeIds.put(node, nodeId);
-							nodeStrings.put(nodeId, String.format("%s-%d-%d", type, start, end));
-						}
+					if(position.equals(WordLabelUnit.L) || position.equals(WordLabelUnit.U)){
+						end = node.getOffset().getEnd();
+						nodeId++;
+						String type = ((WordLabelUnit)nodeLabels.get(node)).getType();
+						writeAnnotation(annotationWriter, String.format("T%d\t%s %d %d\t%s\n", nodeId, type, start, end, node.getDocument().getText(new Offset(start, end))));						
+						nodeIds.put(node, nodeId);
+						nodeStrings.put(nodeId, String.format("%s-%d-%d", type, start, end));
 					}
-					
-					Map<Node, String> goldNodeStrings = getGoldNodeStrings(instance);
-					Set<String> goldRelStrings = new TreeSet<String>();
-					for(int i = 0;i < instance.size();i++){
-						if(!(instance.getSequence().get(i) instanceof Pair)){
-							continue;
-						}
-						if(!instance.getGoldLabel().getLabel(i).isNegative()){
-							Pair pair = (Pair)instance.getSequence().get(i);
-							PairLabelUnit labelUnit = (PairLabelUnit)instance.getGoldLabel().getLabel(i);
-							String[] labels = labelUnit.getLabel().split("\\|");
-							Node w1 = pair.getW1().getWord();
-							Node w2 = pair.getW2().getWord();
-							for(int j = 0;j < labels.length;j++){
-								if(labels[j].isEmpty())continue;
-								String[] label = labels[j].split(":");
-								assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
-								String w1String = goldNodeStrings.get(w1);
-								String w2String = goldNodeStrings.get(w2);
-								if(params.getVerbosity() > 3){
-									if(label[0].compareTo(label[2]) < 0){
-										goldRelStrings.add(String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[0], w1String, label[2], w2String));
-									}else{
-										goldRelStrings.add(String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[2], w2String, label[0], w1String));
-									}								
-								}
+				}
+				
+				Map<Node, String> goldNodeStrings = getGoldNodeStrings(instance);
+				Set<String> goldRelStrings = new TreeSet<String>();
+				for(int i = 0;i < instance.size();i++){
+					if(!(instance.getSequence().get(i) instanceof Pair)){
+						continue;
+					}
+					if(!instance.getGoldLabel().getLabel(i).isNegative()){
+						Pair pair = (Pair)instance.getSequence().get(i);
+						PairLabelUnit labelUnit = (PairLabelUnit)instance.getGoldLabel().getLabel(i);
+						String[] labels = labelUnit.getLabel().split("\\|");
+						Node w1 = pair.getW1().getWord();
+						Node w2 = pair.getW2().getWord();
+						for(int j = 0;j < labels.length;j++){
+							if(labels[j].isEmpty())continue;
+							String[] label = labels[j].split(":");
+							assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
+							String w1String = goldNodeStrings.get(w1);
+							String w2String = goldNodeStrings.get(w2);
+							if(params.getVerbosity() > 3){
+								if(label[0].compareTo(label[2]) < 0){
+									goldRelStrings.add(String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[0], w1String, label[2], w2String));
+								}else{
+									goldRelStrings.add(String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[2], w2String, label[0], w1String));
+								}								
 							}
 						}
-					}	
-					
-					for(int i = 0;i < instance.size();i++){
-						if(!(instance.getSequence().get(i) instanceof Pair)){
-							continue;
-						}
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
-							Pair pair = (Pair)instance.getSequence().get(i);
-							PairLabelUnit labelUnit = (PairLabelUnit)yStarStates.get(0).getLabel().getLabel(i);
-							String[] labels = labelUnit.getLabel().split("\\|");
-							Node w1, w2;
-							w1 = pair.getW1().getWord();
-							w2 = pair.getW2().getWord();
-							for(int j = 0;j < labels.length;j++){
-								if(labels[j].isEmpty())continue;
-								relationId++;
-								String[] label = labels[j].split(":");
-								assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
-								int w1Id = nodeIds.get(w1);
-								int w2Id = nodeIds.get(w2);
-								annotationWriter.write(String.format("R%d\t%s %s:T%d %s:T%d\t\n", relationId, label[1], label[0], w1Id, label[2], w2Id));
-								if(params.getVerbosity() > 3){
-									String relString = "";
-									if(label[0].compareTo(label[2]) < 0){
-										relString = String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[0], nodeStrings.get(w1Id), label[2], nodeStrings.get(w2Id));
-									}else{
-										relString = String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[2], nodeStrings.get(w2Id), label[0], nodeStrings.get(w1Id));
-									}						
-									if(goldRelStrings.contains(relString)){
-										System.out.println("TP "+relString);
-										goldRelStrings.remove(relString);
-									}else{
-										System.out.println("FP "+relString);
-									}
+					}
+				}	
+				
+				for(int i = 0;i < instance.size();i++){
+					if(!(instance.getSequence().get(i) instanceof Pair)){
+						continue;
+					}
+					if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						Pair pair = (Pair)instance.getSequence().get(i);
+						PairLabelUnit labelUnit = (PairLabelUnit)yStarStates.get(0).getLabel().getLabel(i);
+						String[] labels = labelUnit.getLabel().split("\\|");
+						Node w1, w2;
+						w1 = pair.getW1().getWord();
+						w2 = pair.getW2().getWord();
+						for(int j = 0;j < labels.length;j++){
+							if(labels[j].isEmpty())continue;
+							relationId++;
+							String[] label = labels[j].split(":");
+							assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
+							int w1Id = nodeIds.get(w1);
+							int w2Id = nodeIds.get(w2);
+							writeAnnotation(annotationWriter, String.format("R%d\t%s %s:T%d %s:T%d\t\n", relationId, label[1], label[0], w1Id, label[2], w2Id));
+							if(params.getVerbosity() > 3){
+								String relString = "";
+								if(label[0].compareTo(label[2]) < 0){
+									relString = String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[0], nodeStrings.get(w1Id), label[2], nodeStrings.get(w2Id));
+								}else{
+									relString = String.format("REL %s %s %s:%s %s:%s", document.getId(), label[1], label[2], nodeStrings.get(w2Id), label[0], nodeStrings.get(w1Id));
+								}						
+								if(goldRelStrings.contains(relString)){
+									log.append("TP ").append(relString).append("\n");
+									goldRelStrings.remove(relString);
+								}else{
+									log.append("FP ").append(relString).append("\n");
 								}
 							}
 						}
 					}
-					for(String relString:goldRelStrings){
-						System.out.println("FN "+relString);
-					}
 				}
-				annotationWriter.close();
+				for(String relString:goldRelStrings){
+					log.append("FN ").append(relString).append("\n");
+				}
 			}
+			annotationWriter.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		return log.toString();
 	}
 
 	@Override
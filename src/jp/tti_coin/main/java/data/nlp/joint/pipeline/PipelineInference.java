@@ -1,15 +1,13 @@
 package data.nlp.joint.pipeline;
 
+import inference.Beam;
+import inference.Candidate;
 import inference.Inference;
 import inference.State;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import config.Parameters;
 import model.Model;
@@ -23,49 +21,50 @@ public class PipelineInference extends Inference {
 	
 	private List<State> getNextStatesParallel(List<State> beamStates, Model nerModel, Model relModel, int beamSize, boolean test){
 		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
-		List<State> newBeamStates = new Vector<State>();
-		for(State currentState:beamStates){
-			tasks.addAll(((PipelineState)currentState).getNextBestStatesTasks(newBeamStates, nerModel, relModel, beamSize, test));
+		Beam<State> beam = new Beam<State>(beamSize);
+		for(int i = 0;i < beamStates.size();i++){
+			tasks.addAll(((PipelineState)beamStates.get(i)).getNextBestStatesTasks(beam, i, nerModel, relModel, test));
 		}		
-		try {
-			ExecutorService threadPool;
-			if(params.getProcessors() > 0){
-				threadPool = Executors.newFixedThreadPool(params.getProcessors());
-			}else{
-				threadPool = Executors.newCachedThreadPool();
-			}
-			threadPool.invokeAll(tasks);
-			threadPool.shutdown();
-			threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);		
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} 
-		Collections.sort(newBeamStates);
+		invokeTasks(tasks);
+		List<State> newBeamStates = beam.toList();
 		assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
-		if(newBeamStates.size() > beamSize){
-			newBeamStates = newBeamStates.subList(0, beamSize);
-		}
 		assert newBeamStates.size() <= beamSize;
 		return newBeamStates;
 	}
 	
+	private List<State> getNextStatesLazy(List<State> beamStates, Model nerModel, Model relModel, int beamSize, boolean test){
+		Beam<Candidate> beam = new Beam<Candidate>(beamSize);
+		if(params.getUseParallel()){
+			List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+			for(int i = 0;i < beamStates.size();i++){
+				tasks.addAll(((PipelineState)beamStates.get(i)).getNextBestCandidatesTasks(beam, i, nerModel, relModel, test));
+			}
+			invokeTasks(tasks);
+		}else{
+			for(int i = 0;i < beamStates.size();i++){
+				assert beamStates.get(i).hasNextState();
+				((PipelineState)beamStates.get(i)).addNextBestCandidates(beam, i, nerModel, relModel, test);
+			}
+		}
+		return materialize(beam);
+	}
+	
 	private List<State> getNextStates(List<State> beamStates, Model nerModel, Model relModel, int beamSize, boolean test){
+		if(params.getUseLazyExpansion()){
+			return getNextStatesLazy(beamStates, nerModel, relModel, beamSize, test);
+		}
 		if(params.getUseParallel()){
 			return getNextStatesParallel(beamStates, nerModel, relModel, beamSize, test);
 		}
-		List<State> newBeamStates = new Vector<State>();
-		for(State currentState:beamStates){
+		Beam<State> beam = new Beam<State>(beamSize);
+		for(int i = 0;i < beamStates.size();i++){
+			PipelineState currentState = (PipelineState)beamStates.get(i);
 			assert currentState.hasNextState();
 			// select next beam
-			List<PipelineState> nextStates = ((PipelineState)currentState).getNextBestStates(nerModel, relModel, beamSize, test);
-			newBeamStates.addAll(nextStates);
-			Collections.sort(newBeamStates);
-			assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
-			if(newBeamStates.size() > beamSize){
-				newBeamStates = newBeamStates.subList(0, beamSize);
-			}
-			assert newBeamStates.size() <= beamSize;
+			currentState.addNextBestStates(beam, i, nerModel, relModel, test);
 		}
+		List<State> newBeamStates = beam.toList();
+		assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
 		assert newBeamStates.size() <= beamSize;
 		return newBeamStates;
 	}
@@ -101,13 +100,8 @@ public class PipelineInference extends Inference {
 				assert currentState != null;
 				// select next beam
 				List<State> nextStates = getNextStates(beamStates.subList(0, 1), nerModel, relModel, beamSize, false);
-				beamStates.remove(currentState);
-				beamStates.addAll(nextStates);
-				Collections.sort(beamStates);
+				beamStates = mergeBeam(beamStates.subList(1, beamStates.size()), nextStates, beamSize);
 				assert beamStates.size() < 2 || beamStates.get(0).getScore() + beamStates.get(0).getMargin() >= beamStates.get(1).getScore()+beamStates.get(1).getMargin();
-				if(beamStates.size() > beamSize){
-					beamStates = beamStates.subList(0, beamSize);
-				}
 				double violate = beamStates.get(0).getScore() + beamStates.get(0).getMargin() - beamStates.get(0).getInstance().getGoldScore(beamStates.get(0).getIndex());
 				if(violate >= maxViolatingScore){
 					maxViolatingState = beamStates.get(0);
@@ -171,13 +165,8 @@ public class PipelineInference extends Inference {
 				assert currentState != null;
 				// select next beam
 				List<State> nextStates = getNextStates(beamStates.subList(0, 1), nerModel, relModel, beamSize, test);
-				beamStates.remove(currentState);
-				beamStates.addAll(nextStates);
-				Collections.sort(beamStates);
+				beamStates = mergeBeam(beamStates.subList(1, beamStates.size()), nextStates, beamSize);
 				assert beamStates.size() < 2 || beamStates.get(0).getScore() + beamStates.get(0).getMargin() >= beamStates.get(1).getScore()+beamStates.get(1).getMargin();
-				if(beamStates.size() > beamSize){
-					beamStates = beamStates.subList(0, beamSize);
-				}
 				// check early update
 				if(params.useEarlyUpdate() && !test){
 					boolean earlyUpdate = true;
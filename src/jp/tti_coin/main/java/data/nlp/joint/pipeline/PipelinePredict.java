@@ -22,5 +22,6 @@ public class PipelinePredict {
 		Model relModel = Model.create(params, fg);
 		relModel.load(params.getModelFile()+".1");
 		sl.predict(nerModel, relModel, test);
+		infer.shutdown();
 	}
 }
@@ -1,9 +1,10 @@
 package data.nlp.joint.pipeline;
 
+import inference.Beam;
+import inference.Candidate;
 import inference.State;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.Callable;
@@ -90,7 +91,7 @@ public class PipelineState extends State {
 	}
 	
 
-	public Collection<Callable<Void>> getNextBestStatesTasks(final List<State> newBeamStates, final Model nerModel, final Model relModel, final int beamSize, final boolean test) {
+	public Collection<Callable<Void>> getNextBestStatesTasks(final Beam<State> beam, final int parentIndex, final Model nerModel, final Model relModel, final boolean test) {
 		assert !params.getUseDynamicSort();
 		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
 		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
@@ -98,7 +99,9 @@ public class PipelineState extends State {
 		final SparseFeatureVector goldFv = null;
 		final LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
 		assert !params.useSCW();
+		int candidateIndex = 0;
 		for(final LabelUnit candidateLabel:candidateLabels){
+			final long order = Beam.order(parentIndex, candidateIndex++);
 			tasks.add(new Callable<Void>(){
 				@Override
 				public Void call() throws Exception {
@@ -124,14 +127,19 @@ public class PipelineState extends State {
 						}	
 					}
 					if(nextState == null){
-						nextState = new PipelineState(currentState);					
-						SparseFeatureVector nextFv = model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel);
+						// the features are needed only for the dynamic margin of SCW
+						SparseFeatureVector nextFv = params.useSCW() ? model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel) : null;
 						// calculate update score 
-						double localScore = model.evaluate(nextFv, test);
+						double localScore = nextFv != null ? model.evaluate(nextFv, test) : model.evaluate(instance, label, index+1, candidateLabel, test);
+						// test has no margin, so the state cannot enter the full beam
+						if(test && !beam.accepts(currentState.score + localScore + currentState.margin, order)){
+							return null;
+						}
 						// calculate next state
+						nextState = new PipelineState(currentState);
 						nextState.update(model, localScore, goldFv, nextFv, candidateLabel, correct);
 					}
-					newBeamStates.add(nextState);
+					beam.offer(nextState, order);
 					return null;
 				}
 			});
@@ -140,14 +148,22 @@ public class PipelineState extends State {
 	}
 	
 	public List<PipelineState> getNextBestStates(Model nerModel, Model relModel, int beamSize, boolean test) {
+		Beam<PipelineState> beam = new Beam<PipelineState>(beamSize);
+		addNextBestStates(beam, 0, nerModel, relModel, test);
+		assert beam.size() > 0;
+		return beam.toList();
+	}
+	
+	public void addNextBestStates(Beam<? super PipelineState> beam, int parentIndex, Model nerModel, Model relModel, boolean test) {
 		SparseFeatureVector goldFv = null;
 		assert !params.getUseDynamicSort();
-		List<PipelineState> nextStates = new Vector<PipelineState>();
 		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
 		LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
 		assert !params.useSCW();
+		int candidateIndex = 0;
 		for(LabelUnit candidateLabel:candidateLabels){
 			assert candidateLabel.getClass().equals(goldLabel.getClass());
+			long order = Beam.order(parentIndex, candidateIndex++);
 			boolean correct = this.correct;
 			PipelineState nextState = null;
 			Model model = null;
@@ -170,28 +186,76 @@ public class PipelineState extends State {
 				}
 			}
 			if(nextState == null){
-				nextState = new PipelineState(this);
-				SparseFeatureVector nextFv = model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel);
+				// the features are needed only for the dynamic margin of SCW
+				SparseFeatureVector nextFv = params.useSCW() ? model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel) : null;
 				// calculate update score 
-				double localScore = model.evaluate(nextFv, test);
+				double localScore = nextFv != null ? model.evaluate(nextFv, test) : model.evaluate(instance, label, index+1, candidateLabel, test);
+				// test has no margin, so the state cannot enter the full beam
+				if(test && !beam.accepts(score + localScore + margin, order)){
+					continue;
+				}
 				// calculate next state
+				nextState = new PipelineState(this);
 				nextState.update(model, localScore, goldFv, nextFv, candidateLabel, correct);
 				assert nextState.index < nextState.instance.getSequence().size();
 			}
-			nextStates.add(nextState);
-			Collections.sort(nextStates);
-			// store #beamSize states
-			if(nextStates.size() >= beamSize){
-				nextStates = nextStates.subList(0, beamSize);
-			}
+			beam.offer(nextState, order);
+		}
+	}
+	
+	public Collection<Callable<Void>> getNextBestCandidatesTasks(final Beam<Candidate> beam, final int parentIndex, final Model nerModel, final Model relModel, final boolean test) {
+		assert !params.getUseDynamicSort();
+		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
+		final LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
+		assert !params.useSCW();
+		int candidateIndex = 0;
+		for(final LabelUnit candidateLabel:candidateLabels){
+			final long order = Beam.order(parentIndex, candidateIndex++);
+			tasks.add(new Callable<Void>(){
+				@Override
+				public Void call() throws Exception {
+					Model model = candidateLabel instanceof WordLabelUnit ? nerModel : relModel;
+					beam.offer(getCandidate(model, candidateLabel, goldLabel, test), order);
+					return null;
+				}
+			});
 		}
-		assert nextStates.size() > 0;
-		return nextStates;		
+		return tasks;
+	}
+	
+	public void addNextBestCandidates(Beam<Candidate> beam, int parentIndex, Model nerModel, Model relModel, boolean test) {
+		assert !params.getUseDynamicSort();
+		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
+		LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
+		assert !params.useSCW();
+		int candidateIndex = 0;
+		for(LabelUnit candidateLabel:candidateLabels){
+			assert candidateLabel.getClass().equals(goldLabel.getClass());
+			Model model = candidateLabel instanceof WordLabelUnit ? nerModel : relModel;
+			beam.offer(getCandidate(model, candidateLabel, goldLabel, test), Beam.order(parentIndex, candidateIndex++));
+		}
+	}
+	
+	@Override
+	protected PipelineState materialize(Candidate candidate) {
+		assert candidate.getParent() == this;
+		PipelineState nextState = new PipelineState(this);
+		if(candidate.isGold()){
+			nextState.updateGold(candidate.getLabelUnit());
+		}else{
+			nextState.update(candidate.getLocalScore(), candidate.getMargin(), candidate.getLabelUnit(), candidate.isCorrect());
+		}
+		return nextState;
 	}
 	
 	private void update(Model model, double localScore, SparseFeatureVector goldFv, SparseFeatureVector nextFv, LabelUnit candidateLabel, boolean correct) {
+		update(localScore, calculateMargin(model, candidateLabel, goldFv, nextFv), candidateLabel, correct);
+	}
+	
+	private void update(double localScore, double margin, LabelUnit candidateLabel, boolean correct) {
 		this.score += localScore;
-		this.margin = calculateMargin(model, candidateLabel, goldFv, nextFv);
+		this.margin = margin;
 		this.label.add(candidateLabel);
 		this.correct = correct;
 		this.index++;
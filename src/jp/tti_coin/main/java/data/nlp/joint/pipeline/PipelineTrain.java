@@ -26,6 +26,7 @@ public class PipelineTrain {
 		FeatureGenerator fg = new PipelineFeatureGenerator(params);
 		List<Model> models = new Vector<Model>();
 		sl.learn(models, train, fg, dev);
+		infer.shutdown();
 		if(models.size() != 0){
 			for(int i = 0;i < models.size();i++){
 				models.get(i).save(params.getModelFile()+"."+i);
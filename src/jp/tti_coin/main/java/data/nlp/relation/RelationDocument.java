@@ -143,5 +143,10 @@ public class RelationDocument extends Document {
 	public void addRelation(Relation relation) {
 		this.relations.add(relation);	
 	}
+
+	// relation annotations read from the files (cleared by buildRelations)
+	public List<Relation> getRelationAnnotations() {
+		return relations;
+	}
 	
 }
@@ -58,17 +58,17 @@ public class RelationEvaluator extends Evaluator {
 		int t_sum = 0;
 		int t_match = 0, correct = 0, pred = 0, gold = 0;
 		Map<String, Counter> counters = new TreeMap<String, Counter>();
+		List<State> bestStates = inferBestStates(model, valid);
 		for(int idx = 0;idx < valid.size();idx++){
-			Instance instance = valid.getInstance(idx); 
-			List<State> yStarStates = getInference().inferBestState(model, instance, true);
-			instance = yStarStates.get(0).getInstance();
-			if(yStarStates.get(0).getLabel().equals(instance.getGoldLabel())){
+			State yStarState = bestStates.get(idx);
+			Instance instance = yStarState.getInstance();
+			if(yStarState.getLabel().equals(instance.getGoldLabel())){
 				s_correct++;
 			}
 			for(int i = 0;i < instance.size();i++){
 				//TODO: label format
 				String goldLabel = ((RelationLabelUnit)instance.getGoldLabel().getLabel(i)).getLabel().split("\\|")[0];
-				String predLabel = ((RelationLabelUnit)yStarStates.get(0).getLabel().getLabel(i)).getLabel().split("\\|")[0];
+				String predLabel = ((RelationLabelUnit)yStarState.getLabel().getLabel(i)).getLabel().split("\\|")[0];
 				if(!counters.containsKey(goldLabel)){
 					counters.put(goldLabel, new Counter());
 				}
@@ -77,8 +77,8 @@ public class RelationEvaluator extends Evaluator {
 				}
 				counters.get(goldLabel).gold++;
 				counters.get(predLabel).pred++;
-				if(instance.getGoldLabel().getLabel(i).equals(yStarStates.get(0).getLabel().getLabel(i))){
-					if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+				if(instance.getGoldLabel().getLabel(i).equals(yStarState.getLabel().getLabel(i))){
+					if(!yStarState.getLabel().getLabel(i).isNegative()){
 						correct++;
 						pred++;
 						gold++;
@@ -86,8 +86,8 @@ public class RelationEvaluator extends Evaluator {
 					counters.get(goldLabel).correct++;
 					t_match++;
 				}else{
-					assert !yStarStates.get(0).getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative(); 
-					if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+					assert !yStarState.getLabel().getLabel(i).isNegative() || !instance.getGoldLabel().getLabel(i).isNegative(); 
+					if(!yStarState.getLabel().getLabel(i).isNegative()){
 						pred++;
 					}
 					if(!instance.getGoldLabel().getLabel(i).isNegative()){
@@ -113,49 +113,57 @@ public class RelationEvaluator extends Evaluator {
 	}
 
 	@Override
-	public void predict(Model model, Data test) {
+	public void predict(final Model model, Data test) {
 		assert test instanceof RelationData;
+		final List<Document> documents = ((RelationData)test).getDocuments();
+		parallelFor(documents.size(), new IndexTask(){
+			@Override
+			public void run(int index) {
+				predict(model, documents.get(index));
+			}
+		});
+	}
+	
+	private void predict(Model model, Document document) {
 		try {
-			for(Document document:((RelationData)test).getDocuments()){
-				int relationId = 0;
-				BufferedWriter annotationWriter = null;
-				if(params.getUseByte()){
-					annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("US-ASCII"));
-				}else{
-					annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("UTF-8"));
+			int relationId = 0;
+			BufferedWriter annotationWriter = null;
+			if(params.getUseByte()){
+				annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("US-ASCII"));
+			}else{
+				annotationWriter = Files.newWriter(new File(document.getId()+params.getPredAnnotationExtension()), Charset.forName("UTF-8"));
+			}
+			for(Instance instance:document.getInstances()){
+				instance.cacheFeatures();
+				List<State> yStarStates = getInference().inferBestState(model, instance, true);
+				for(Node node:((RelationInstance)instance).getSentence().getGoldEntities().values()){
+					writeAnnotation(annotationWriter, String.format("%s\t%s %d %d\t%s\n", node.getId(), node.getType(), node.getOffset().getStart(), node.getOffset().getEnd(), node.getText()));						
 				}
-				for(Instance instance:document.getInstances()){
-					instance.cacheFeatures();
-					List<State> yStarStates = getInference().inferBestState(model, instance, true);
-					for(Node node:((RelationInstance)instance).getSentence().getGoldEntities().values()){
-						annotationWriter.write(String.format("%s\t%s %d %d\t%s\n", node.getId(), node.getType(), node.getOffset().getStart(), node.getOffset().getEnd(), node.getText()));						
-					}
-					for(int i = 0;i < instance.size();i++){
-						if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
-							EntityPair pair = (EntityPair)instance.getSequence().get(i);
-							RelationLabelUnit labelUnit = (RelationLabelUnit)yStarStates.get(0).getLabel().getLabel(i);
-							String[] labels = labelUnit.getLabel().split("\\|");
-							assert labels.length >= 3: labelUnit.getLabel();
-							Node e1, e2;
-							if(labelUnit.isReverse()){
-								e1 = pair.getE2();
-								e2 = pair.getE1();			
-							}else{
-								e1 = pair.getE1();
-								e2 = pair.getE2();
-							}	
-							for(int j = 0;j < labels.length - 2;j++){
-								relationId++;
-								String[] label = labels[j].split(":");
-								assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
-								annotationWriter.write(String.format("R%d\t%s %s:%s %s:%s\t\n", relationId, label[1], label[0], e1.getId(), label[2], e2.getId()));
-							}
+				for(int i = 0;i < instance.size();i++){
+					if(!yStarStates.get(0).getLabel().getLabel(i).isNegative()){
+						EntityPair pair = (EntityPair)instance.getSequence().get(i);
+						RelationLabelUnit labelUnit = (RelationLabelUnit)yStarStates.get(0).getLabel().getLabel(i);
+						String[] labels = labelUnit.getLabel().split("\\|");
+						assert labels.length >= 3: labelUnit.getLabel();
+						Node e1, e2;
+						if(labelUnit.isReverse()){
+							e1 = pair.getE2();
+							e2 = pair.getE1();			
+						}else{
+							e1 = pair.getE1();
+							e2 = pair.getE2();
+						}	
+						for(int j = 0;j < labels.length - 2;j++){
+							relationId++;
+							String[] label = labels[j].split(":");
+							assert label.length == 3: labels[j]+","+labelUnit.getLabel()+","+j+","+labels;
+							writeAnnotation(annotationWriter, String.format("R%d\t%s %s:%s %s:%s\t\n", relationId, label[1], label[0], e1.getId(), label[2], e2.getId()));
 						}
 					}
-					instance.clearCachedFeatures();
 				}
-				annotationWriter.close();
+				instance.clearCachedFeatures();
 			}
+			annotationWriter.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
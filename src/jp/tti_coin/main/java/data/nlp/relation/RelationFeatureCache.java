@@ -3,7 +3,6 @@ package data.nlp.relation;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.Vector;
 
 import utils.NICTNounSynonymsDB;
@@ -34,6 +33,9 @@ public class RelationFeatureCache extends FeatureCache {
 			assert nodeFeatures.size() > 0;
 			return;
 		}
+		if(loadNodeFeatures()){
+			return;
+		}
 		nodeFeatures = new SparseFeatureVector(params);
 		for(String parseAnnotationDesc:params.getParseAnnotationDescs()){
 			nodeFeatures.add(wordFeatures(parseAnnotationDesc).normalize(), "HEADWORD"+parseAnnotationDesc);			
@@ -46,6 +48,10 @@ public class RelationFeatureCache extends FeatureCache {
 		assert nodeFeatures.size() > 0;
 		nodeFeatures.compact();
 		nodeFeatures.normalize();
+		if(params.getUseFrozenFeatures()){
+			nodeFeatures.freeze();
+		}
+		storeNodeFeatures();
 	}
 	
 	private StringSparseVector wordAttributeFeatures(Node headWord){
@@ -113,16 +119,7 @@ public class RelationFeatureCache extends FeatureCache {
 	}
 
 	@Override
-	public void calcPathFeatures(Node e2) {
-		if(fullPathFeatures != null && fullPathFeatures.containsKey(e2)){
-			assert fullPathFeatures.get(e2).size() > 0;
-			assert shortestPathFeatures.get(e2).size() > 0;
-			return;
-		}
-		if(fullPathFeatures == null){
-			fullPathFeatures = new TreeMap<Node, SparseFeatureVector>();
-			shortestPathFeatures = new TreeMap<Node, SparseFeatureVector>();
-		}
+	protected PathFeatures buildPathFeatures(Node e2) {
 		SparseFeatureVector fullFeatures = new SparseFeatureVector(params);
 		SparseFeatureVector simplePathFeatures = new SparseFeatureVector(params);
 		fullFeatures.add(node.getCache().getNodeFeatures(), "E1Node");
@@ -142,14 +139,18 @@ public class RelationFeatureCache extends FeatureCache {
 		}
 		fullFeatures.compact();
 		assert fullFeatures.size() > 0;
-		
-		fullPathFeatures.put(e2, fullFeatures);
+		if(params.getUseFrozenFeatures()){
+			fullFeatures.freeze();
+		}
 		
 		simplePathFeatures.compact();
 		simplePathFeatures.normalize();
 		assert simplePathFeatures.size() > 0;
+		if(params.getUseFrozenFeatures()){
+			simplePathFeatures.freeze();
+		}
 		
-		shortestPathFeatures.put(e2, simplePathFeatures);
+		return new PathFeatures(fullFeatures, simplePathFeatures);
 	}
 	
 	private StringSparseVector ngramPathFeatures(Node e2, int N, int window, String parseAnnotationDesc){
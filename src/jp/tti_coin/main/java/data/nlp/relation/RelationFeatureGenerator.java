@@ -6,6 +6,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import utils.HashToInt;
+import utils.Metrics;
 
 import model.FeatureGenerator;
 import model.SparseFeatureVector;
@@ -17,6 +18,8 @@ import data.LabelUnit;
 import data.nlp.Node;
 
 public class RelationFeatureGenerator extends FeatureGenerator {
+	private static final Metrics.Timer LOCAL_FEATURES = Metrics.timer("features.local");
+	private static final Metrics.Timer GLOBAL_FEATURES = Metrics.timer("features.global");
 	private HashToInt h2i;
 	//pre-calc values
 	private Map<String, Integer> typeKeys;
@@ -57,6 +60,7 @@ public class RelationFeatureGenerator extends FeatureGenerator {
 
 	@Override
 	public SparseFeatureVector calculateFeature(Instance instance, Label y, int lastIndex, int target, LabelUnit candidateLabelUnit, boolean local) {
+		long start = Metrics.start();
 		SparseFeatureVector fv = new SparseFeatureVector(params);
 		EntityPair pair = (EntityPair)instance.getSequence().get(target);
 		String candidateLabel = ((RelationLabelUnit)candidateLabelUnit).getLabel();
@@ -74,8 +78,11 @@ public class RelationFeatureGenerator extends FeatureGenerator {
 		}else{
 			fv.add(e1.getCache().getFullPathFeatures(e2), h2i.mapToInt(candidateLabel.concat("Path")));
 		}
+		LOCAL_FEATURES.stop(start);
 		if(params.getUseGlobalFeatures() && !local){
+			start = Metrics.start();
 			fv.add(calcGlobalFeatures(e1, e2, instance, y, lastIndex, (RelationLabelUnit)candidateLabelUnit), GLOBAL_KEY);
+			GLOBAL_FEATURES.stop(start);
 		}
 		assert fv.size() > 0;
 		fv.normalize(); 
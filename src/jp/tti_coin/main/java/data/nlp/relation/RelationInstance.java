@@ -9,6 +9,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.TreeMultimap;
 
+import utils.Metrics;
 import model.Model;
 import config.Parameters;
 import data.Instance;
@@ -20,6 +21,7 @@ import data.nlp.Node;
 import data.nlp.Sentence;
 
 public class RelationInstance extends Instance {
+	private static final Metrics.Timer CACHE_FEATURES = Metrics.timer("features.cache");
 	private Sentence sentence;
 	public RelationInstance(Parameters params, Sequence sequence,
 			Label goldLabel, Sentence sentence) {
@@ -42,6 +44,7 @@ public class RelationInstance extends Instance {
 
 	@Override
 	public void cacheFeatures() {
+		long start = Metrics.start();
 		for(int i = 0;i < size();i++){
 			EntityPair pair = (EntityPair)sequence.get(i);
 			if(pair.getE1().getCache() == null){
@@ -63,6 +66,7 @@ public class RelationInstance extends Instance {
 			pair.getE1().getCache().calcPathFeatures(pair.getE2());
 			pair.getE2().getCache().calcPathFeatures(pair.getE1());
 		}
+		CACHE_FEATURES.stop(start);
 	}
 	
 	private class Distance implements Comparable<Distance> {
@@ -179,7 +183,7 @@ public class RelationInstance extends Instance {
 			int offset = pair.getE1().getOffset().getEnd() + pair.getE2().getOffset().getEnd();
 			if(possibleLabels.size() > 1){
 				for(LabelUnit label:possibleLabels){
-					double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, y, currentIndex - 1, target, label), test);
+					double score = model.evaluate(this, y, currentIndex - 1, target, label, test);
 					scores.add(score);
 				}
 
@@ -247,7 +251,7 @@ public class RelationInstance extends Instance {
 			}
 			List<Double> scores = new Vector<Double>();
 			for(LabelUnit label:pair.getPossibleLabels()){
-				double score = model.evaluate(model.getFeatureGenerator().calculateFeature(this, null, index, label, true), test);
+				double score = model.evaluateLocal(this, index, label, test);
 				scores.add(score);
 			}
 			
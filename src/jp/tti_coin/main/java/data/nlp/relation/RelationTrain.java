@@ -24,6 +24,7 @@ public class RelationTrain {
 		StructuredLearning sl = new StructuredLearning(params, infer, evaluator); 
 		FeatureGenerator fg = new RelationFeatureGenerator(params);
 		Model model = sl.learn(train, fg, dev);
+		infer.shutdown();
 		if(model != null){
 			model.save(params.getModelFile());
 		}
@@ -1,6 +1,14 @@
 package eval;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import utils.Metrics;
 
 import config.Parameters;
 import inference.Inference;
@@ -9,19 +17,113 @@ import model.Model;
 import data.Data;
 
 public abstract class Evaluator {
+	private static final Metrics.Timer WRITE_ANNOTATION = Metrics.timer("annotation.write");
 	protected Parameters params;
 	protected Inference infer;
+	private ForkJoinPool pool;
+	
+	protected interface IndexTask {
+		void run(int index);
+	}
+	
+	private static class IndexAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final IndexTask task;
+		private final int start;
+		private final int end;
+		
+		public IndexAction(IndexTask task, int start, int end){
+			this.task = task;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if(end - start == 1){
+				task.run(start);
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new IndexAction(task, start, middle), new IndexAction(task, middle, end));
+		}
+	}
 	
 	public Evaluator(Parameters params, Inference infer){
 		this.params = params;
 		this.infer = infer;
 	}
+	
+	private synchronized ForkJoinPool getPool(){
+		if(pool == null){
+			if(params.getProcessors() > 0){
+				pool = new ForkJoinPool(params.getProcessors());
+			}else{
+				pool = new ForkJoinPool();
+			}
+		}
+		return pool;
+	}
+	
+	// runs task for 0..size-1, across the fork-join pool in parallel prediction mode
+	protected void parallelFor(int size, IndexTask task){
+		if(!params.getUseParallelPrediction() || size < 2){
+			for(int index = 0;index < size;index++){
+				task.run(index);
+			}
+			return;
+		}
+		getPool().invoke(new IndexAction(task, 0, size));
+	}
+	
+	// decodes the best state of an instance
+	protected interface DecodeTask {
+		State decode(int index);
+	}
+	
+	// best states of 0..size-1. in parallel prediction mode they are decoded at once across the pool
+	// and only the best states are kept, otherwise each state is decoded when it is read.
+	protected List<State> decodeAll(int size, final DecodeTask task){
+		if(!params.getUseParallelPrediction() || size < 2){
+			final int n = size;
+			return new AbstractList<State>(){
+				@Override
+				public State get(int index) {
+					return task.decode(index);
+				}
+				@Override
+				public int size() {
+					return n;
+				}
+			};
+		}
+		final Vector<State> states = new Vector<State>();
+		states.setSize(size);
+		parallelFor(size, new IndexTask(){
+			@Override
+			public void run(int index) {
+				states.set(index, task.decode(index));
+			}
+		});
+		return states;
+	}
+	
+	protected List<State> inferBestStates(final Model model, final Data data){
+		return decodeAll(data.size(), new DecodeTask(){
+			@Override
+			public State decode(int index) {
+				return getInference().inferBestState(model, data.getInstance(index), true).get(0);
+			}
+		});
+	}
+	
 	public void evaluate(Model model, Data valid){
 		if(params.getVerbosity() == 0)return;
 		int correct = 0;
+		List<State> bestStates = inferBestStates(model, valid);
 		for(int idx = 0;idx < valid.size();idx++){
-			List<State> yStarStates = getInference().inferBestState(model, valid.getInstance(idx), true);
-			if(yStarStates.get(0).getLabel().equals(yStarStates.get(0).getGoldLabel())){
+			State yStarState = bestStates.get(idx);
+			if(yStarState.getLabel().equals(yStarState.getGoldLabel())){
 				correct++;
 			}
 		}
@@ -31,4 +133,11 @@ public abstract class Evaluator {
 		return infer;
 	}
 	abstract public void predict(Model model, Data test);
+	
+	// writes a line of the predicted annotations
+	protected static void writeAnnotation(Writer writer, String line) throws IOException {
+		long start = Metrics.start();
+		writer.write(line);
+		WRITE_ANNOTATION.stop(start);
+	}
 }
@@ -0,0 +1,141 @@
+package inference;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+
+// bounded beam of states or candidates ranked by score + margin, kept as a min-heap of the best k.
+// ties are broken by a caller-supplied order (smaller is better), so that the result
+// does not depend on the insertion order of parallel workers.
+public class Beam<T extends Scored> {
+	private final int capacity;
+	private final Scored[] items;
+	private final double[] keys;
+	private final long[] orders;
+	private int size;
+
+	public Beam(int capacity){
+		assert capacity > 0;
+		this.capacity = capacity;
+		this.items = new Scored[capacity];
+		this.keys = new double[capacity];
+		this.orders = new long[capacity];
+		this.size = 0;
+	}
+
+	public static long order(int parent, int candidate){
+		return ((long)parent << 32) | (candidate & 0xFFFFFFFFL);
+	}
+
+	private static double key(Scored item){
+		return item.getScore() + item.getMargin();
+	}
+
+	// true if i is worse than j
+	private boolean worse(int i, int j){
+		if(keys[i] != keys[j]){
+			return keys[i] < keys[j];
+		}
+		return orders[i] > orders[j];
+	}
+
+	private static boolean worse(double key1, long order1, double key2, long order2){
+		if(key1 != key2){
+			return key1 < key2;
+		}
+		return order1 > order2;
+	}
+
+	public synchronized boolean accepts(double key, long order){
+		return size < capacity || worse(keys[0], orders[0], key, order);
+	}
+
+	public synchronized boolean offer(T item, long order){
+		double key = key(item);
+		if(size < capacity){
+			items[size] = item;
+			keys[size] = key;
+			orders[size] = order;
+			up(size++);
+			return true;
+		}
+		if(!worse(keys[0], orders[0], key, order)){
+			return false;
+		}
+		items[0] = item;
+		keys[0] = key;
+		orders[0] = order;
+		down(0);
+		return true;
+	}
+
+	private void swap(int i, int j){
+		Scored item = items[i];
+		items[i] = items[j];
+		items[j] = item;
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		long order = orders[i];
+		orders[i] = orders[j];
+		orders[j] = order;
+	}
+
+	private void up(int i){
+		while(i > 0){
+			int parent = (i - 1) >>> 1;
+			if(!worse(i, parent)){
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void down(int i){
+		while(true){
+			int child = 2 * i + 1;
+			if(child >= size){
+				break;
+			}
+			if(child + 1 < size && worse(child + 1, child)){
+				child++;
+			}
+			if(!worse(child, i)){
+				break;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	public synchronized int size(){
+		return size;
+	}
+
+	// items from the best to the worst
+	@SuppressWarnings("unchecked")
+	public synchronized List<T> toList(){
+		Integer[] index = new Integer[size];
+		for(int i = 0;i < size;i++){
+			index[i] = i;
+		}
+		Arrays.sort(index, new Comparator<Integer>(){
+			@Override
+			public int compare(Integer i, Integer j) {
+				if(worse(j, i)){
+					return -1;
+				}else if(worse(i, j)){
+					return 1;
+				}
+				return 0;
+			}
+		});
+		List<T> list = new Vector<T>(size);
+		for(int i = 0;i < size;i++){
+			list.add((T)items[index[i]]);
+		}
+		return list;
+	}
+}
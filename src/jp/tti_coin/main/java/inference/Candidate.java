@@ -0,0 +1,58 @@
+package inference;
+
+import data.LabelUnit;
+
+// a scored expansion of a state, which is materialized only if it survives the beam
+public class Candidate implements Scored {
+	private final State parent;
+	private final LabelUnit labelUnit;
+	private final double score;
+	private final double localScore;
+	private final double margin;
+	private final boolean correct;
+	private final boolean gold;
+
+	public Candidate(State parent, LabelUnit labelUnit, double score, double localScore, double margin, boolean correct, boolean gold){
+		this.parent = parent;
+		this.labelUnit = labelUnit;
+		this.score = score;
+		this.localScore = localScore;
+		this.margin = margin;
+		this.correct = correct;
+		this.gold = gold;
+	}
+
+	@Override
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public double getMargin() {
+		return margin;
+	}
+
+	public State getParent() {
+		return parent;
+	}
+
+	public LabelUnit getLabelUnit() {
+		return labelUnit;
+	}
+
+	public double getLocalScore() {
+		return localScore;
+	}
+
+	public boolean isCorrect() {
+		return correct;
+	}
+
+	public boolean isGold() {
+		return gold;
+	}
+
+	public State getState() {
+		return parent.materialize(this);
+	}
+}
@@ -6,55 +6,168 @@ import java.util.List;
 import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import utils.MersenneTwister;
+import utils.Metrics;
 import config.Parameters;
 import model.Model;
 import data.Instance;
 
 public class Inference {
+	private static final Metrics.Timer EXPAND = Metrics.timer("inference.expand");
+	private static final Metrics.Histogram BEAM = Metrics.histogram("inference.beam");
 	protected Parameters params;
-	protected final Random rand;
+	private ExecutorService executor;
 	
 	public Inference(Parameters params){
 		this.params = params;
-		this.rand = new MersenneTwister(0);
 	}
 	
-	private List<State> getNextStatesParallel(List<State> beamStates, Model model, int beamSize, boolean test){
-		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
-		List<State> newBeamStates = new Vector<State>();
-		for(State currentState:beamStates){
-			tasks.addAll(currentState.getNextBestStatesTasks(newBeamStates, model, beamSize, test));
-		}		
+	private int getNumWorkers(){
+		int workers = params.getInferenceProcessors();
+		if(workers <= 0){
+			workers = params.getProcessors();
+		}
+		if(workers <= 0){
+			workers = Runtime.getRuntime().availableProcessors();
+		}
+		return workers;
+	}
+	
+	protected synchronized ExecutorService getExecutor(){
+		if(executor == null){
+			executor = Executors.newFixedThreadPool(getNumWorkers(), new ThreadFactory(){
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "inference-"+(count++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	protected void invokeTasks(final List<Callable<Void>> tasks){
+		int workers = Math.min(getNumWorkers(), tasks.size());
+		if(workers == 0){
+			return;
+		}
+		// one batch per worker instead of one task per candidate
+		List<Callable<Void>> batches = new Vector<Callable<Void>>(workers);
+		int batchSize = (tasks.size() + workers - 1) / workers;
+		for(int start = 0;start < tasks.size();start += batchSize){
+			final List<Callable<Void>> batch = tasks.subList(start, Math.min(start + batchSize, tasks.size()));
+			batches.add(new Callable<Void>(){
+				@Override
+				public Void call() throws Exception {
+					for(Callable<Void> task:batch){
+						task.call();
+					}
+					return null;
+				}
+			});
+		}
 		try {
-			ExecutorService threadPool;
-			if(params.getProcessors() > 0){
-				threadPool = Executors.newFixedThreadPool(params.getProcessors());
-			}else{
-				threadPool = Executors.newCachedThreadPool();
+			if(batches.size() == 1){
+				batches.get(0).call();
+				return;
+			}
+			for(Future<Void> future:getExecutor().invokeAll(batches)){
+				future.get();
 			}
-			threadPool.invokeAll(tasks);
-			threadPool.shutdown();
-			threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);		
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
-		} 
-		Collections.sort(newBeamStates);
-		assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
-		if(newBeamStates.size() > beamSize){
-			newBeamStates = newBeamStates.subList(0, beamSize);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	public synchronized void shutdown(){
+		if(executor == null){
+			return;
 		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		executor = null;
+	}
+	
+	private List<State> getNextStatesParallel(List<State> beamStates, Model model, int beamSize, boolean test){
+		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+		Beam<State> beam = new Beam<State>(beamSize);
+		for(int i = 0;i < beamStates.size();i++){
+			tasks.addAll(beamStates.get(i).getNextBestStatesTasks(beam, i, model, test));
+		}		
+		invokeTasks(tasks);
+		List<State> newBeamStates = beam.toList();
+		assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
 		assert newBeamStates.size() <= beamSize;
 		return newBeamStates;
 	}
 	
-	private List<State> getNextStates(List<State> beamStates, Model model, int beamSize, boolean test){
+	// selects the next beam from scored candidates and builds states only for the selected ones
+	private List<State> getNextStatesLazy(List<State> beamStates, Model model, int beamSize, boolean test){
+		Beam<Candidate> beam = new Beam<Candidate>(beamSize);
+		if(params.getUseParallel()){
+			List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+			for(int i = 0;i < beamStates.size();i++){
+				tasks.addAll(beamStates.get(i).getNextBestCandidatesTasks(beam, i, model, test));
+			}
+			invokeTasks(tasks);
+		}else{
+			for(int i = 0;i < beamStates.size();i++){
+				assert beamStates.get(i).hasNextState();
+				beamStates.get(i).addNextBestCandidates(beam, i, model, test);
+			}
+		}
+		return materialize(beam);
+	}
+	
+	protected List<State> materialize(Beam<Candidate> beam){
+		List<State> states = new Vector<State>();
+		for(Candidate candidate:beam.toList()){
+			states.add(candidate.getState());
+		}
+		return states;
+	}
+	
+	// random numbers for the epsilon exploration of one decoding (null if there is none).
+	// each decoding has its own generator seeded by the instance and the training step,
+	// so the result does not depend on the order the instances are decoded in.
+	private Random createRandom(Model model, Instance instance, boolean test){
+		if(test || params.getEpsilon() <= 0.){
+			return null;
+		}
+		return new MersenneTwister(((long)model.getTrainStep() << 32) | instance.getIndex());
+	}
+	
+	// one step of the beam search
+	private List<State> getNextStates(List<State> beamStates, Model model, int beamSize, boolean test, Random rand){
+		long start = Metrics.start();
+		List<State> nextStates = expandBeam(beamStates, model, beamSize, test, rand);
+		EXPAND.stop(start);
+		BEAM.record(nextStates.size());
+		return nextStates;
+	}
+	
+	private List<State> expandBeam(List<State> beamStates, Model model, int beamSize, boolean test, Random rand){
 		List<State> newBeamStates = new Vector<State>();
-		if(!test && rand.nextDouble() < params.getEpsilon()){
+		if(rand != null && rand.nextDouble() < params.getEpsilon()){
 			for(State currentState:beamStates){
 				assert currentState.hasNextState();
 				// select next beam
@@ -68,26 +181,38 @@ public class Inference {
 			}
 			Collections.sort(newBeamStates);
 		}else{
+			if(params.getUseLazyExpansion() && !params.useSCW()){
+				return getNextStatesLazy(beamStates, model, beamSize, test);
+			}
 			if(params.getUseParallel()){
 				return getNextStatesParallel(beamStates, model, beamSize, test);
 			}
-			for(State currentState:beamStates){
+			Beam<State> beam = new Beam<State>(beamSize);
+			for(int i = 0;i < beamStates.size();i++){
+				State currentState = beamStates.get(i);
 				assert currentState.hasNextState();
 				// select next beam
-				List<State> nextStates = currentState.getNextBestStates(model, beamSize, test);
-				newBeamStates.addAll(nextStates);
-				Collections.sort(newBeamStates);
-				assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
-				if(newBeamStates.size() > beamSize){
-					newBeamStates = newBeamStates.subList(0, beamSize);
-				}
-				assert newBeamStates.size() <= beamSize;
+				currentState.addNextBestStates(beam, i, model, test);
 			}
+			newBeamStates = beam.toList();
+			assert newBeamStates.size() < 2 || newBeamStates.get(0).getScore() + newBeamStates.get(0).getMargin() >= newBeamStates.get(1).getScore()+newBeamStates.get(1).getMargin():newBeamStates.get(0).getScore()+":"+newBeamStates.get(1).getScore();
 		}
 		assert newBeamStates.size() <= beamSize;
 		return newBeamStates;
 	}
 	
+	// best k of the remaining states followed by the new states
+	protected List<State> mergeBeam(List<State> states, List<State> nextStates, int beamSize){
+		Beam<State> beam = new Beam<State>(beamSize);
+		for(int i = 0;i < states.size();i++){
+			beam.offer(states.get(i), i);
+		}
+		for(int i = 0;i < nextStates.size();i++){
+			beam.offer(nextStates.get(i), states.size()+i);
+		}
+		return beam.toList();
+	}
+	
 	public State findMaxViolatingState(Model model, Instance instance){
 		if(params.useSort() && params.getUseGlobalFeatures()){
 			instance.sort(model, false);
@@ -105,6 +230,7 @@ public class Inference {
 		instance.setGoldScores(scores);
 		double maxViolatingScore = 0.;
 		State maxViolatingState = null;
+		Random rand = createRandom(model, instance, false);
 		int beamSize = params.getBeamSize();
 		List<State> beamStates = new Vector<State>();
 		beamStates.add(new State(params, instance, false));
@@ -118,14 +244,9 @@ public class Inference {
 				}
 				assert currentState != null;
 				// select next beam
-				List<State> nextStates = getNextStates(beamStates.subList(0, 1), model, beamSize, false);
-				beamStates.remove(currentState);
-				beamStates.addAll(nextStates);
-				Collections.sort(beamStates);
+				List<State> nextStates = getNextStates(beamStates.subList(0, 1), model, beamSize, false, rand);
+				beamStates = mergeBeam(beamStates.subList(1, beamStates.size()), nextStates, beamSize);
 				assert beamStates.size() < 2 || beamStates.get(0).getScore() + beamStates.get(0).getMargin() >= beamStates.get(1).getScore()+beamStates.get(1).getMargin();
-				if(beamStates.size() > beamSize){
-					beamStates = beamStates.subList(0, beamSize);
-				}
 				double violate = beamStates.get(0).getScore() + beamStates.get(0).getMargin() - beamStates.get(0).getInstance().getGoldScore(beamStates.get(0).getIndex());
 				if(violate >= maxViolatingScore){
 					maxViolatingState = beamStates.get(0);
@@ -136,7 +257,7 @@ public class Inference {
 		}else{
 			int size = instance.size();
 			for(int i = 0;i < size;i++){
-				beamStates = getNextStates(beamStates, model, beamSize, false);
+				beamStates = getNextStates(beamStates, model, beamSize, false, rand);
 				double violate = beamStates.get(0).getScore() + beamStates.get(0).getMargin() - beamStates.get(0).getInstance().getGoldScore(beamStates.get(0).getIndex());
 				if(violate >= maxViolatingScore){
 					maxViolatingState = beamStates.get(0);
@@ -171,6 +292,7 @@ public class Inference {
 			}
 			instance.setGoldScores(scores);
 		}
+		Random rand = createRandom(model, instance, test);
 		int beamSize = params.getBeamSize();
 		List<State> beamStates = new Vector<State>();	
 		beamStates.add(new State(params, instance, test));
@@ -184,14 +306,9 @@ public class Inference {
 				}
 				assert currentState != null;
 				// select next beam
-				List<State> nextStates = getNextStates(beamStates.subList(0, 1), model, beamSize, test);
-				beamStates.remove(currentState);
-				beamStates.addAll(nextStates);
-				Collections.sort(beamStates);
+				List<State> nextStates = getNextStates(beamStates.subList(0, 1), model, beamSize, test, rand);
+				beamStates = mergeBeam(beamStates.subList(1, beamStates.size()), nextStates, beamSize);
 				assert beamStates.size() < 2 || beamStates.get(0).getScore() + beamStates.get(0).getMargin() >= beamStates.get(1).getScore()+beamStates.get(1).getMargin();
-				if(beamStates.size() > beamSize){
-					beamStates = beamStates.subList(0, beamSize);
-				}
 				// check early update
 				if(params.useEarlyUpdate() && !test){
 					boolean earlyUpdate = true;
@@ -208,7 +325,7 @@ public class Inference {
 		}else{
 			int size = instance.size();
 			for(int i = 0;i < size;i++){
-				beamStates = getNextStates(beamStates, model, beamSize, test);
+				beamStates = getNextStates(beamStates, model, beamSize, test, rand);
 				//System.err.println(beamStates.get(0).getLabel().getLabel(i).toString()+":"+instance.getGoldLabel().getLabel(i).toString());
 				// check early update
 				if(params.useEarlyUpdate() && !test){
@@ -0,0 +1,6 @@
+package inference;
+
+public interface Scored {
+	public double getScore();
+	public double getMargin();
+}
@@ -16,7 +16,7 @@ import model.SCWModel;
 import model.SparseFeatureVector;
 import model.Model;
 
-public class State implements Comparable<State> {
+public class State implements Comparable<State>, Scored {
 	protected Parameters params;
 	protected Instance instance;
 	protected Label label;
@@ -109,16 +109,21 @@ public class State implements Comparable<State> {
 			diffFv.compact();
 			return Math.sqrt(scwModel.getConfidence(diffFv)) * scwModel.getPhi();
 		}else{
-			LabelUnit goldLabel = this.instance.getGoldLabel().getLabel(this.index+1);
-			if(candidateLabel.equals(goldLabel)){
-				// Manhattan distance
-				return margin;
+			return calculateStaticMargin(candidateLabel);
+		}
+	}
+	
+	// margin that does not depend on features (not for SCW)
+	protected double calculateStaticMargin(LabelUnit candidateLabel){
+		LabelUnit goldLabel = this.instance.getGoldLabel().getLabel(this.index+1);
+		if(candidateLabel.equals(goldLabel)){
+			// Manhattan distance
+			return margin;
+		}else{
+			if(params.getUseWeightedMargin()){
+				return margin+params.getMargin()*this.instance.getData().getLabelImportance(goldLabel);
 			}else{
-				if(params.getUseWeightedMargin()){
-					return margin+params.getMargin()*this.instance.getData().getLabelImportance(goldLabel);
-				}else{
-					return margin+params.getMargin();
-				}
+				return margin+params.getMargin();
 			}
 		}
 	}
@@ -137,22 +142,8 @@ public class State implements Comparable<State> {
 	}
 	
 
-	public Collection<Callable<Void>> getNextBestStatesTasks(final List<State> newBeamStates, final Model model, final int beamSize, final boolean test) {
-		SparseFeatureVector nextGoldFv = null;
-		if(params.getUseDynamicSort()){
-			instance.sort(model, this.label, index+1, test);
-			if(!test){
-				LabelUnit nextLabel = instance.getGoldLabel().getLabel(index+1);
-				nextGoldFv = model.getFeatureGenerator().calculateFeature(instance, instance.getGoldLabel(), index+1, nextLabel);
-				// calculate update score 
-				double localGoldScore = model.evaluate(nextGoldFv, false);
-				if(index == -1){
-					instance.setGoldScore(index+1, localGoldScore);
-				}else{
-					instance.setGoldScore(index+1, instance.getGoldScore(index)+localGoldScore);
-				}
-			}
-		}
+	public Collection<Callable<Void>> getNextBestStatesTasks(final Beam<State> beam, final int parentIndex, final Model model, final boolean test) {
+		SparseFeatureVector nextGoldFv = prepareNextStates(model, test);
 		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
 		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
 		final State currentState = this;
@@ -167,7 +158,9 @@ public class State implements Comparable<State> {
 		}else{
 			goldFv = null;
 		}
+		int candidateIndex = 0;
 		for(final LabelUnit candidateLabel:candidateLabels){
+			final long order = Beam.order(parentIndex, candidateIndex++);
 			tasks.add(new Callable<Void>(){
 				@Override
 				public Void call() throws Exception {
@@ -180,21 +173,27 @@ public class State implements Comparable<State> {
 								// gold ==> skip 
 								nextState = new State(currentState);
 								nextState.updateGold(goldLabel);
-								assert Math.abs(nextState.getScore()-(currentState.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), test))) < 1e-7;
+								// the gold scores are computed before the decoding, and Hogwild updates the weights during it
+								assert params.getUseHogwild() || Math.abs(nextState.getScore()-(currentState.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), test))) < 1e-7;
 							}	
 						}else{
 							correct = false;
 						}	
 					}
 					if(nextState == null){
-						nextState = new State(currentState);					
-						SparseFeatureVector nextFv = model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel);
+						// the features are needed only for the dynamic margin of SCW
+						SparseFeatureVector nextFv = params.useSCW() ? model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel) : null;
 						// calculate update score 
-						double localScore = model.evaluate(nextFv, test);
+						double localScore = nextFv != null ? model.evaluate(nextFv, test) : model.evaluate(instance, label, index+1, candidateLabel, test);
+						// test has no margin, so the state cannot enter the full beam
+						if(test && !beam.accepts(currentState.score + localScore + currentState.margin, order)){
+							return null;
+						}
 						// calculate next state
+						nextState = new State(currentState);
 						nextState.update(model, localScore, goldFv, nextFv, candidateLabel, correct);
 					}
-					newBeamStates.add(nextState);
+					beam.offer(nextState, order);
 					return null;
 				}
 			});
@@ -234,7 +233,7 @@ public class State implements Comparable<State> {
 						// gold ==> skip 
 						nextState = new State(this);
 						nextState.updateGold(goldLabel);
-						assert Math.abs(nextState.getScore()-(this.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), false))) < 1e-7;
+						assert params.getUseHogwild() || Math.abs(nextState.getScore()-(this.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), false))) < 1e-7;
 					}
 				}else{
 					correct = false;
@@ -242,9 +241,10 @@ public class State implements Comparable<State> {
 			}
 			if(nextState == null){
 				nextState = new State(this);
-				SparseFeatureVector nextFv = model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel);
+				// the features are needed only for the dynamic margin of SCW
+				SparseFeatureVector nextFv = params.useSCW() ? model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel) : null;
 				// calculate update score 
-				double localScore = model.evaluate(nextFv, false);
+				double localScore = nextFv != null ? model.evaluate(nextFv, false) : model.evaluate(instance, label, index+1, candidateLabel, false);
 				// calculate next state
 				nextState.update(model, localScore, goldFv, nextFv, candidateLabel, correct);
 				assert nextState.index < nextState.instance.getSequence().size();
@@ -261,29 +261,23 @@ public class State implements Comparable<State> {
 	
 	
 	public List<State> getNextBestStates(Model model, int beamSize, boolean test) {
-		SparseFeatureVector goldFv = null;
-		if(params.getUseDynamicSort()){
-			instance.sort(model, this.label, index+1, test);
-			if(!test){
-				LabelUnit nextLabel = instance.getGoldLabel().getLabel(index+1);
-				goldFv = model.getFeatureGenerator().calculateFeature(instance, instance.getGoldLabel(), index+1, nextLabel);
-				// calculate update score 
-				double localGoldScore = model.evaluate(goldFv, false);
-				if(index == -1){
-					instance.setGoldScore(index+1, localGoldScore);
-				}else{
-					instance.setGoldScore(index+1, instance.getGoldScore(index)+localGoldScore);
-				}
-			}
-		}
-		List<State> nextStates = new Vector<State>();
+		Beam<State> beam = new Beam<State>(beamSize);
+		addNextBestStates(beam, 0, model, test);
+		assert beam.size() > 0;
+		return beam.toList();
+	}
+	
+	public void addNextBestStates(Beam<State> beam, int parentIndex, Model model, boolean test) {
+		SparseFeatureVector goldFv = prepareNextStates(model, test);
 		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
 		LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
 		if(!test && params.useSCW() && goldFv == null){
 			goldFv = model.getFeatureGenerator().calculateFeature(instance, instance.getGoldLabel(), index+1, goldLabel);
 		}
+		int candidateIndex = 0;
 		for(LabelUnit candidateLabel:candidateLabels){
 			assert candidateLabel.getClass().equals(goldLabel.getClass());
+			long order = Beam.order(parentIndex, candidateIndex++);
 			boolean correct = this.correct;
 			State nextState = null;
 			if(!test && correct){
@@ -293,35 +287,121 @@ public class State implements Comparable<State> {
 						// gold ==> skip 
 						nextState = new State(this);
 						nextState.updateGold(goldLabel);
-						assert Math.abs(nextState.getScore()-(this.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), test))) < 1e-7;
+						assert params.getUseHogwild() || Math.abs(nextState.getScore()-(this.getScore()+model.evaluate(model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel), test))) < 1e-7;
 					}
 				}else{
 					correct = false;
 				}
 			}
 			if(nextState == null){
-				nextState = new State(this);
-				SparseFeatureVector nextFv = model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel);
+				// the features are needed only for the dynamic margin of SCW
+				SparseFeatureVector nextFv = params.useSCW() ? model.getFeatureGenerator().calculateFeature(instance, label, index+1, candidateLabel) : null;
 				// calculate update score 
-				double localScore = model.evaluate(nextFv, test);
+				double localScore = nextFv != null ? model.evaluate(nextFv, test) : model.evaluate(instance, label, index+1, candidateLabel, test);
+				// test has no margin, so the state cannot enter the full beam
+				if(test && !beam.accepts(score + localScore + margin, order)){
+					continue;
+				}
 				// calculate next state
+				nextState = new State(this);
 				nextState.update(model, localScore, goldFv, nextFv, candidateLabel, correct);
 				assert nextState.index < nextState.instance.getSequence().size();
 			}
-			nextStates.add(nextState);
-			Collections.sort(nextStates);
-			// store #beamSize states
-			if(nextStates.size() >= beamSize){
-				nextStates = nextStates.subList(0, beamSize);
-			}
+			beam.offer(nextState, order);
 		}	
-		assert nextStates.size() > 0;
-		return nextStates;		
+	}
+	
+	// sorts the rest of the sequence and sets the next gold score if needed, returns the next gold features
+	protected SparseFeatureVector prepareNextStates(Model model, boolean test) {
+		SparseFeatureVector nextGoldFv = null;
+		if(params.getUseDynamicSort()){
+			instance.sort(model, this.label, index+1, test);
+			if(!test){
+				LabelUnit nextLabel = instance.getGoldLabel().getLabel(index+1);
+				nextGoldFv = model.getFeatureGenerator().calculateFeature(instance, instance.getGoldLabel(), index+1, nextLabel);
+				// calculate update score 
+				double localGoldScore = model.evaluate(nextGoldFv, false);
+				if(index == -1){
+					instance.setGoldScore(index+1, localGoldScore);
+				}else{
+					instance.setGoldScore(index+1, instance.getGoldScore(index)+localGoldScore);
+				}
+			}
+		}
+		return nextGoldFv;
+	}
+	
+	public Collection<Callable<Void>> getNextBestCandidatesTasks(final Beam<Candidate> beam, final int parentIndex, final Model model, final boolean test) {
+		assert !params.useSCW();
+		prepareNextStates(model, test);
+		List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
+		final LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
+		int candidateIndex = 0;
+		for(final LabelUnit candidateLabel:candidateLabels){
+			final long order = Beam.order(parentIndex, candidateIndex++);
+			tasks.add(new Callable<Void>(){
+				@Override
+				public Void call() throws Exception {
+					beam.offer(getCandidate(model, candidateLabel, goldLabel, test), order);
+					return null;
+				}
+			});
+		}
+		return tasks;
+	}
+	
+	public void addNextBestCandidates(Beam<Candidate> beam, int parentIndex, Model model, boolean test) {
+		assert !params.useSCW();
+		prepareNextStates(model, test);
+		Collection<LabelUnit> candidateLabels = instance.getCandidateLabels(this.label, index+1);
+		LabelUnit goldLabel = instance.getGoldLabel().getLabel(index+1);
+		int candidateIndex = 0;
+		for(LabelUnit candidateLabel:candidateLabels){
+			assert candidateLabel.getClass().equals(goldLabel.getClass());
+			beam.offer(getCandidate(model, candidateLabel, goldLabel, test), Beam.order(parentIndex, candidateIndex++));
+		}
+	}
+	
+	// scores the next label without copying this state
+	protected Candidate getCandidate(Model model, LabelUnit candidateLabel, LabelUnit goldLabel, boolean test) {
+		boolean correct = this.correct;
+		if(!test && correct){
+			if(candidateLabel.equals(goldLabel)){
+				if(!params.getUseDynamicSort()){
+					assert !Double.isNaN(instance.getGoldScore(index+1));
+					// gold ==> skip 
+					return new Candidate(this, goldLabel, instance.getGoldScore(index+1), 0., 0., true, true);
+				}
+			}else{
+				correct = false;
+			}
+		}
+		// calculate update score 
+		double localScore = model.evaluate(instance, label, index+1, candidateLabel, test);
+		double nextMargin = test ? margin : calculateStaticMargin(candidateLabel);
+		return new Candidate(this, candidateLabel, score + localScore, localScore, nextMargin, correct, false);
+	}
+	
+	protected State materialize(Candidate candidate) {
+		assert candidate.getParent() == this;
+		State nextState = new State(this);
+		if(candidate.isGold()){
+			nextState.updateGold(candidate.getLabelUnit());
+		}else{
+			nextState.update(candidate.getLocalScore(), candidate.getMargin(), candidate.getLabelUnit(), candidate.isCorrect());
+		}
+		assert nextState.score + nextState.margin == candidate.getScore() + candidate.getMargin();
+		return nextState;
 	}
 	
 	private void update(Model model, double localScore, SparseFeatureVector goldFv, SparseFeatureVector nextFv, LabelUnit candidateLabel, boolean correct) {
+		update(localScore, calculateMargin(model, candidateLabel, goldFv, nextFv), candidateLabel, correct);
+	}
+	
+	private void update(double localScore, double margin, LabelUnit candidateLabel, boolean correct) {
 		this.score += localScore;
-		this.margin = calculateMargin(model, candidateLabel, goldFv, nextFv);
+		this.margin = margin;
 		this.label.add(candidateLabel);
 		this.correct = correct;
 		this.index++;
@@ -12,13 +12,17 @@ import java.util.List;
 import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.io.Files;
 
 import utils.MersenneTwister;
+import utils.Metrics;
 
 import config.Parameters;
 
@@ -32,9 +36,12 @@ import data.Instance;
 import eval.Evaluator;
 
 public class StructuredLearning {
+	private static final Metrics.Timer UPDATE = Metrics.timer("model.update");
 	protected Parameters params;
 	protected Inference infer;
 	protected Evaluator evaluator;
+	// iterations run by the last learn() (fewer than the iteration parameter when it converges)
+	protected int iterations;
 
 	public StructuredLearning(Parameters params, Inference infer, Evaluator evaluator) {
 		this.params = params;
@@ -47,9 +54,17 @@ public class StructuredLearning {
 		// initialization
 		long start = System.currentTimeMillis();	
 		evaluator.predict(model, test);
+		FeatureCache.close();
 		if(params.getVerbosity() > 2){
 			System.out.format("Prediction finished in %d [msec] \n", System.currentTimeMillis() - start);
 		}
+		if(params.getMetricsFile() != null){
+			Metrics.dump(params.getMetricsFile(), 0);
+		}
+	}
+	
+	public int getIterations(){
+		return iterations;
 	}
 	
 	protected Model createModel(FeatureGenerator fg){
@@ -175,6 +190,24 @@ public class StructuredLearning {
 
 		Model model = createModel(fg);
 		Random rand = new MersenneTwister(0);
+		ExecutorService threadPool = null;
+		if(params.getUseParallelTraining()){
+			// daemon threads do not keep the JVM alive when the learning fails
+			ThreadFactory threadFactory = new ThreadFactory(){
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "train-"+(count++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+			if(params.getProcessors() > 0){
+				threadPool = Executors.newFixedThreadPool(params.getProcessors(), threadFactory);
+			}else{
+				threadPool = Executors.newCachedThreadPool(threadFactory);
+			}
+		}
 
 		int size = data.size();
 		Model localModel = null;
@@ -197,22 +230,8 @@ public class StructuredLearning {
 				}
 				Collections.shuffle(idxList, rand);		
 				for(int i = 0;i < size;i += params.getMiniBatch()){
-					List<State> updates = new Vector<State>();
-					for(int j = i;j < i + params.getMiniBatch() && j < size;j++){
-						int idx = idxList.get(j);
-						if(params.useMaxViolationUpdate()){
-							State bestState = infer.findMaxViolatingState(localModel, data.getInstance(idx));
-							if(bestState != null){
-								updates.add(bestState);
-							}
-						}else{				
-							List<State> yStarStates = infer.inferBestState(localModel, data.getInstance(idx), false);
-							if(yStarStates.size() > 0){
-								updates.add(yStarStates.get(0));
-							}
-						}
-					}
-					localModel.update(updates);
+					List<State> updates = decodeMiniBatch(localModel, data, idxList, i, Math.min(i + params.getMiniBatch(), size), threadPool);
+					update(localModel, updates);
 				}
 			}
 			localModel.averageWeight();
@@ -233,7 +252,9 @@ public class StructuredLearning {
 		start = System.currentTimeMillis();
 		int lastTrainStep = model.getTrainStep();
 		model.averageWeight();
+		iterations = 0;
 		for(int iter = 1;iter <= params.getIteration();iter++){
+			iterations = iter;
 			if(params.useDCDSSVM()){
 				for(int r = 0;r < 5;r++){
 					Collections.shuffle(idxList, rand);	
@@ -244,22 +265,8 @@ public class StructuredLearning {
 			}
 			Collections.shuffle(idxList, rand);		
 			for(int i = 0;i < size;i += params.getMiniBatch()){
-				List<State> updates = new Vector<State>();
-				for(int j = i;j < i + params.getMiniBatch() && j < size;j++){
-					int idx = idxList.get(j);
-					if(params.useMaxViolationUpdate()){
-						State bestState = infer.findMaxViolatingState(model, data.getInstance(idx));
-						if(bestState != null){
-							updates.add(bestState);
-						}
-					}else{				
-						List<State> yStarStates = infer.inferBestState(model, data.getInstance(idx), false);
-						if(yStarStates.size() > 0){
-							updates.add(yStarStates.get(0));
-						}
-					}
-				}
-				model.update(updates);
+				List<State> updates = decodeMiniBatch(model, data, idxList, i, Math.min(i + params.getMiniBatch(), size), threadPool);
+				update(model, updates);
 			}
 			if(params.getVerbosity() > 1){
 				if(iter % params.getOutputInterval() == 0){
@@ -273,6 +280,9 @@ public class StructuredLearning {
 					}
 				}
 			}
+			if(params.getMetricsFile() != null){
+				Metrics.dump(params.getMetricsFile(), iter);
+			}
 			if(model.getTrainStep() == lastTrainStep){
 				System.out.println("Converged!!");
 				break;
@@ -284,9 +294,70 @@ public class StructuredLearning {
 			lastTrainStep = model.getTrainStep();
 			start = System.currentTimeMillis();
 		}
+		if(threadPool != null){
+			threadPool.shutdown();
+		}
 		model.averageWeight();
 		return model;
 	}
+	
+	private void update(Model model, List<State> updates){
+		long start = Metrics.start();
+		model.update(updates);
+		UPDATE.stop(start);
+	}
+	
+	private State decode(Model model, Instance instance){
+		if(params.useMaxViolationUpdate()){
+			return infer.findMaxViolatingState(model, instance);
+		}
+		List<State> yStarStates = infer.inferBestState(model, instance, false);
+		if(yStarStates.size() > 0){
+			return yStarStates.get(0);
+		}
+		return null;
+	}
+	
+	protected List<State> decodeMiniBatch(final Model model, Data data, List<Integer> idxList, int from, int to, ExecutorService threadPool){
+		final Vector<State> updates = new Vector<State>();
+		updates.setSize(to - from);
+		if(threadPool == null){
+			for(int j = from;j < to;j++){
+				updates.set(j - from, decode(model, data.getInstance(idxList.get(j))));
+			}
+		}else{
+			// weights are not updated until the mini-batch is decoded (except for Hogwild)
+			List<Callable<Void>> tasks = new Vector<Callable<Void>>();
+			for(int j = from;j < to;j++){
+				final int offset = j - from;
+				final Instance instance = data.getInstance(idxList.get(j));
+				tasks.add(new Callable<Void>(){
+					@Override
+					public Void call() throws Exception {
+						State state = decode(model, instance);
+						if(state != null && params.getUseHogwild()){
+							// lock-free update of the shared weights
+							update(model, Collections.singletonList(state));
+						}else{
+							updates.set(offset, state);
+						}
+						return null;
+					}
+				});
+			}
+			try {
+				for(Future<Void> future:threadPool.invokeAll(tasks)){
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		updates.removeAll(Collections.singleton(null));
+		return updates;
+	}
 
 	protected void postIteration(Model model) {
 	}
@@ -2,14 +2,8 @@ package model;
 
 import inference.State;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 
-import com.google.common.io.Files;
 import config.Parameters;
 
 import data.Instance;
@@ -37,11 +31,10 @@ public final class AROWModel extends Model {
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
-			double[] cov = covariance.get();
 			int size = vector.getSv().getUsed();
 			double localC = 0.;
 			for(int i = 0;i < size;i++){				
-				localC += cov[index[i]] * grad[i] * grad[i];
+				localC += covariance.getValue(index[i]) * grad[i] * grad[i];
 			}
 			double scale = vector.getWeight();
 			c += localC * scale * scale;
@@ -50,29 +43,28 @@ public final class AROWModel extends Model {
 	}
 	
 	private void update(SparseFeatureVector fv, double alpha){
-		double[] w = weight.get();
-		double[] wdiff = null;
-		if(params.getUseAveraging()){
-			wdiff = weightDiff.get();
-		}
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
-			double[] cov = covariance.get();
 			double scale = vector.getWeight();
 			int size = vector.getSv().getUsed();
 			for(int i = 0;i < size;i++){
 				int index_i = index[i];
-				double cov_i = cov[index_i];
+				double cov_i = covariance.getValue(index_i);
 				double g = grad[i] * scale;
 				double diff = alpha * cov_i * g;
-				w[index_i] += diff;
+				weight.add(index_i, diff);
 				if(params.getUseAveraging()){
-					wdiff[index_i] += trainStep * diff;
+					weightDiff.add(index_i, trainStep * diff);
 				}
-				cov[index_i] = 1. / ((1. / cov_i) + g * g / r);
+				covariance.set(index_i, 1. / ((1. / cov_i) + g * g / r));
 			}
 		}
+		weight.touch();
+		if(params.getUseAveraging()){
+			weightDiff.touch();
+		}
+		covariance.touch();
 		trainStep++;
 	}
 	
@@ -113,41 +105,10 @@ public final class AROWModel extends Model {
 	
 
 	@Override
-	public void save(String filename){
-		try {
-			BufferedWriter writer = new BufferedWriter(Files.newWriterSupplier(new File(filename), Charset.forName("UTF-8")).getOutput());
-			writer.write(String.valueOf(trainStep));
-			writer.write("\n");
-			weight.save(writer);
-			if(params.getUseAveraging()){
-				weightDiff.save(writer);
-				aveWeight.save(writer);
-			}
-			covariance.save(writer);
-			params.saveModelParameters(writer);
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	@Override
-	public void load(String filename){
-		try {
-			BufferedReader reader = new BufferedReader(Files.newReaderSupplier(new File(filename), Charset.forName("UTF-8")).getInput());
-			trainStep = Integer.parseInt(reader.readLine().trim());
-			weight.load(reader);
-			if(params.getUseAveraging()){
-				weightDiff.load(reader);
-				aveWeight.load(reader);
-			}
-			covariance.load(reader);
-			params.loadModelParameters(reader);
-			reader.close();
-			fg.init();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	protected List<WeightVector> getWeightVectors() {
+		List<WeightVector> vectors = super.getWeightVectors();
+		vectors.add(covariance);
+		return vectors;
 	}
 
 }
@@ -2,14 +2,8 @@ package model;
 
 import inference.State;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 
-import com.google.common.io.Files;
 import config.Parameters;
 
 import data.Instance;
@@ -33,7 +27,6 @@ public class AdaGradModel extends Model {
 	}
 
 	private void updateSquaredCounts(SparseFeatureVector fv) {
-		double[] counts = featureSquaredCounts.get();
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
@@ -41,33 +34,35 @@ public class AdaGradModel extends Model {
 			int size = vector.getSv().getUsed();
 			scale = scale * scale;
 			for(int i = 0;i < size;i++){
-				counts[index[i]] += grad[i] * grad[i] * scale;
+				featureSquaredCounts.add(index[i], grad[i] * grad[i] * scale);
 			}
 		}
+		featureSquaredCounts.touch();
 	}
 
 	private void updateWeight(SparseFeatureVector fv) {
-		double[] counts = featureSquaredCounts.get();
-		double[] weights = weight.get();
-		double[] weightDiffs = params.getUseAveraging() ? weightDiff.get() : null;
+		int step = claimTrainStep();
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
 			double scale = vector.getWeight();
 			int size = vector.getSv().getUsed();
 			for(int i = 0;i < size;i++){
-				double d = eta / (delta + Math.sqrt(counts[index[i]]));
-				double w = weights[index[i]];
+				double d = eta / (delta + Math.sqrt(featureSquaredCounts.getValue(index[i])));
+				double w = weight.getValue(index[i]);
 				double next_w = w + d * grad[i] * scale; 
 				//next_w = next_w > 0 ? Math.max(next_w - lambda, 0) : Math.min(next_w + lambda, 0);//L1?
 				double diff = next_w - w;
-				weights[index[i]] = next_w; 
+				weight.set(index[i], next_w); 
 				if(params.getUseAveraging()){
-					weightDiffs[index[i]] += diff * trainStep;
+					weightDiff.add(index[i], diff * step);
 				}
 			}
 		}
-		trainStep++;
+		weight.touch();
+		if(params.getUseAveraging()){
+			weightDiff.touch();
+		}
 	}	
 	
 	@Override
@@ -104,40 +99,11 @@ public class AdaGradModel extends Model {
 		}
 	}
 
-	public void save(String filename){
-		try {
-			BufferedWriter writer = new BufferedWriter(Files.newWriterSupplier(new File(filename), Charset.forName("UTF-8")).getOutput());
-			writer.write(String.valueOf(trainStep));
-			writer.write("\n");
-			weight.save(writer);
-			if(params.getUseAveraging()){
-				weightDiff.save(writer);
-				aveWeight.save(writer);
-			}
-			featureSquaredCounts.save(writer);
-			params.saveModelParameters(writer);
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	public void load(String filename){
-		try {
-			BufferedReader reader = new BufferedReader(Files.newReaderSupplier(new File(filename), Charset.forName("UTF-8")).getInput());
-			trainStep = Integer.parseInt(reader.readLine().trim());
-			weight.load(reader);
-			if(params.getUseAveraging()){
-				weightDiff.load(reader);
-				aveWeight.load(reader);
-			}
-			featureSquaredCounts.load(reader);
-			params.loadModelParameters(reader);
-			reader.close();
-			fg.init(); 		
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	@Override
+	protected List<WeightVector> getWeightVectors() {
+		List<WeightVector> vectors = super.getWeightVectors();
+		vectors.add(featureSquaredCounts);
+		return vectors;
 	}
 
 }
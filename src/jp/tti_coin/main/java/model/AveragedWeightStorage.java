@@ -0,0 +1,65 @@
+package model;
+
+// read-only linear combination of two weight vectors, computed when the values are read.
+// used for the averaged weights, so that averaging does not pass over the whole vectors.
+public class AveragedWeightStorage extends WeightStorage {
+	private final WeightVector weight;
+	private final double weightScale;
+	private final WeightVector diff;
+	private final double diffScale;
+
+	public AveragedWeightStorage(WeightVector weight, double weightScale, WeightVector diff, double diffScale) {
+		assert weight.size() == diff.size();
+		this.weight = weight;
+		this.weightScale = weightScale;
+		this.diff = diff;
+		this.diffScale = diffScale;
+	}
+
+	@Override
+	public int size() {
+		return weight.size();
+	}
+
+	@Override
+	public double get(int key) {
+		return weightScale * weight.getValue(key) + diffScale * diff.getValue(key);
+	}
+
+	@Override
+	public void set(int key, double value) {
+		throw new UnsupportedOperationException("Averaged weights are read-only.");
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	public WeightVector getWeight() {
+		return weight;
+	}
+
+	public double getWeightScale() {
+		return weightScale;
+	}
+
+	public WeightVector getDiff() {
+		return diff;
+	}
+
+	public double getDiffScale() {
+		return diffScale;
+	}
+
+	@Override
+	public long getMemory() {
+		return 0;
+	}
+
+	// the versions are taken from one counter, so the view changes whenever either vector changes
+	@Override
+	public long getVersion() {
+		return Math.max(weight.getVersion(), diff.getVersion());
+	}
+}
@@ -0,0 +1,69 @@
+package model;
+
+import java.util.Arrays;
+
+public class DenseWeightStorage extends WeightStorage {
+	private final double[] values;
+
+	public DenseWeightStorage(int size) {
+		this.values = new double[size];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public double get(int key) {
+		return values[key];
+	}
+
+	@Override
+	public void set(int key, double value) {
+		values[key] = value;
+	}
+
+	@Override
+	public void add(int key, double value) {
+		values[key] += value;
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(values, value);
+	}
+
+	@Override
+	public void scale(double d) {
+		for(int i = 0;i < values.length;i++){
+			if(Math.abs(values[i]) >= Double.MIN_VALUE){
+				values[i] *= d;
+			}else{
+				values[i] = 0.;
+			}
+		}
+	}
+
+	@Override
+	public void addTo(WeightStorage target, double w) {
+		if(!(target instanceof DenseWeightStorage)){
+			super.addTo(target, w);
+			return;
+		}
+		double[] targetValues = ((DenseWeightStorage)target).values;
+		assert targetValues.length == values.length;
+		for(int i = 0;i < values.length;i++){
+			targetValues[i] += values[i] * w;
+		}
+	}
+
+	public double[] getArray() {
+		return values;
+	}
+
+	@Override
+	public long getMemory() {
+		return (long)values.length * 8;
+	}
+}
@@ -1,7 +1,9 @@
 package model;
 
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import config.Parameters;
 
@@ -11,10 +13,15 @@ import data.nlp.relation.SimpleRelationFeatureCache;
 
 public abstract class FeatureCache {
 	protected SparseFeatureVector nodeFeatures = null;
-	protected Map<Node, SparseFeatureVector> fullPathFeatures = null;
-	protected Map<Node, SparseFeatureVector> shortestPathFeatures = null;
+	// replaced by empty maps when they are released by FeatureMemory
+	protected volatile Map<Node, SparseFeatureVector> fullPathFeatures = null;
+	protected volatile Map<Node, SparseFeatureVector> shortestPathFeatures = null;
 	protected Parameters params;
 	protected Node node;
+	// accounting of FeatureMemory (pathMemory is guarded by this cache)
+	long pathMemory = 0;
+	volatile boolean registered = false;
+	volatile boolean referenced = false;
 	
 	public FeatureCache(Parameters params, Node node){
 		this.params = params;
@@ -36,7 +43,99 @@ public abstract class FeatureCache {
 	}
 	
 	public abstract void calcNodeFeatures();
-	public abstract void calcPathFeatures(Node e2);
+
+	// node features from the feature store, false if they are not stored
+	protected boolean loadNodeFeatures(){
+		FeatureStore store = FeatureStore.get(params);
+		if(store == null){
+			return false;
+		}
+		nodeFeatures = store.get(store.getKey(this, "N", node, null));
+		return nodeFeatures != null;
+	}
+
+	protected void storeNodeFeatures(){
+		FeatureStore store = FeatureStore.get(params);
+		if(store != null){
+			store.put(store.getKey(this, "N", node, null), nodeFeatures);
+		}
+	}
+
+	// path features from a node to another one (the full features and the shortest path features)
+	protected static class PathFeatures {
+		final SparseFeatureVector fullFeatures;
+		final SparseFeatureVector simplePathFeatures;
+
+		public PathFeatures(SparseFeatureVector fullFeatures, SparseFeatureVector simplePathFeatures) {
+			this.fullFeatures = fullFeatures;
+			this.simplePathFeatures = simplePathFeatures;
+		}
+	}
+
+	// computes the path features to e2
+	protected abstract PathFeatures buildPathFeatures(Node e2);
+
+	public void calcPathFeatures(Node e2){
+		if(hasPathFeatures(e2)){
+			return;
+		}
+		computePathFeatures(e2);
+	}
+
+	// path features to e2 read from the feature store or computed, and kept in the cache
+	private PathFeatures computePathFeatures(Node e2){
+		initPathFeatures();
+		PathFeatures features = loadPathFeatures(e2);
+		if(features == null){
+			features = buildPathFeatures(e2);
+			storePathFeatures(e2, features);
+		}
+		putPathFeatures(e2, features);
+		return features;
+	}
+
+	// path features to e2 from the feature store, null if they are not stored
+	private PathFeatures loadPathFeatures(Node e2){
+		FeatureStore store = FeatureStore.get(params);
+		if(store == null){
+			return null;
+		}
+		SparseFeatureVector fullFeatures = store.get(store.getKey(this, "F", node, e2));
+		if(fullFeatures == null){
+			return null;
+		}
+		SparseFeatureVector simplePathFeatures = store.get(store.getKey(this, "S", node, e2));
+		if(simplePathFeatures == null){
+			return null;
+		}
+		return new PathFeatures(fullFeatures, simplePathFeatures);
+	}
+
+	private void storePathFeatures(Node e2, PathFeatures features){
+		FeatureStore store = FeatureStore.get(params);
+		if(store != null){
+			store.put(store.getKey(this, "F", node, e2), features.fullFeatures);
+			store.put(store.getKey(this, "S", node, e2), features.simplePathFeatures);
+		}
+	}
+
+	// keeps the path features to e2, and accounts them in FeatureMemory
+	private void putPathFeatures(Node e2, PathFeatures features){
+		if(!FeatureMemory.isEnabled(params)){
+			fullPathFeatures.put(e2, features.fullFeatures);
+			shortestPathFeatures.put(e2, features.simplePathFeatures);
+			return;
+		}
+		long size = FeatureMemory.sizeOf(features.fullFeatures) + FeatureMemory.sizeOf(features.simplePathFeatures);
+		// the maps are not released between the puts and the accounting
+		synchronized(this){
+			fullPathFeatures.put(e2, features.fullFeatures);
+			shortestPathFeatures.put(e2, features.simplePathFeatures);
+			pathMemory += size;
+		}
+		referenced = true;
+		FeatureMemory.add(this, size);
+	}
 
 	public SparseFeatureVector getNodeFeatures(){
 		assert nodeFeatures != null;
@@ -44,19 +143,82 @@ public abstract class FeatureCache {
 	}
 	
 	public SparseFeatureVector getFullPathFeatures(Node e2){
+		if(FeatureMemory.isEnabled(params)){
+			return getPathFeatures(e2, true);
+		}
 		assert fullPathFeatures != null && fullPathFeatures.containsKey(e2);
 		return fullPathFeatures.get(e2);
 	}
 	
 
 	public SparseFeatureVector getShortestPathFeatures(Node e2){
+		if(FeatureMemory.isEnabled(params)){
+			return getPathFeatures(e2, false);
+		}
 		assert shortestPathFeatures != null && shortestPathFeatures.containsKey(e2);
 		return shortestPathFeatures.get(e2);
 	}
+
+	// path features that may have been released, read or computed again if they are missing
+	private SparseFeatureVector getPathFeatures(Node e2, boolean full){
+		referenced = true;
+		Map<Node, SparseFeatureVector> features = full ? fullPathFeatures : shortestPathFeatures;
+		SparseFeatureVector vector = features != null ? features.get(e2) : null;
+		if(vector != null){
+			return vector;
+		}
+		FeatureMemory.miss();
+		PathFeatures computed = computePathFeatures(e2);
+		return full ? computed.fullFeatures : computed.simplePathFeatures;
+	}
+
+	protected synchronized void initPathFeatures(){
+		if(fullPathFeatures == null){
+			fullPathFeatures = newPathFeatureMap();
+			shortestPathFeatures = newPathFeatureMap();
+		}
+	}
+
+	private Map<Node, SparseFeatureVector> newPathFeatureMap(){
+		if(FeatureMemory.isEnabled(params)){
+			// released and filled again by several threads
+			return new ConcurrentSkipListMap<Node, SparseFeatureVector>();
+		}
+		return new TreeMap<Node, SparseFeatureVector>();
+	}
+
+	protected boolean hasPathFeatures(Node e2){
+		Map<Node, SparseFeatureVector> full = fullPathFeatures;
+		Map<Node, SparseFeatureVector> shortest = shortestPathFeatures;
+		if(full == null || !full.containsKey(e2) || !shortest.containsKey(e2)){
+			return false;
+		}
+		assert full.get(e2) == null || full.get(e2).size() > 0;
+		assert shortest.get(e2) == null || shortest.get(e2).size() > 0;
+		return true;
+	}
+
+	// drops the path features and returns their accounted size (called by FeatureMemory)
+	synchronized long releasePathFeatures(){
+		fullPathFeatures = newPathFeatureMap();
+		shortestPathFeatures = newPathFeatureMap();
+		long size = pathMemory;
+		pathMemory = 0;
+		return size;
+	}
+
+	// called when the node drops this cache
+	public void clear(){
+		if(FeatureMemory.isEnabled(params)){
+			FeatureMemory.remove(this);
+		}
+	}
+
 	//TODO
 	public static void close() {
 		RelationFeatureCache.close();		
 		SimpleRelationFeatureCache.close();
+		FeatureStore.close();
 	}
 	
 }
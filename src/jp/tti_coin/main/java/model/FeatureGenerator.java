@@ -6,8 +6,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
-import no.uib.cipr.matrix.VectorEntry;
-
 import config.Parameters;
 import data.Instance;
 import data.Label;
@@ -38,7 +36,13 @@ public abstract class FeatureGenerator {
 		return calculateFeature(instance, y, lastIndex, target, candidateLabel, false);
 	}
 	public abstract SparseFeatureVector calculateFeature(Instance instance, Label y, int lastIndex, int target, LabelUnit candidateLabel, boolean local);
-	
+
+	// global part of calculateFeature, i.e., calculateFeature(..., false) minus calculateFeature(..., true).
+	// null if the features cannot be separated.
+	public SparseFeatureVector calculateGlobalFeature(Instance instance, Label y, int lastIndex, int target, LabelUnit candidateLabel){
+		return null;
+	}
+
 	public void writeLocalFeatures(Instance instance, BufferedWriter writer) throws IOException {
 		boolean useGlobalFeatures = params.getUseGlobalFeatures();
 		params.setUseGlobalFeatures(false);
@@ -48,8 +52,9 @@ public abstract class FeatureGenerator {
 			LabelUnit label = instance.getGoldLabel().getLabel(i);
 			writer.append(label.toString());
 			Map<Integer, Double> fvMap = new TreeMap<Integer, Double>();
-			for(VectorEntry entry:localFv.getFeatureVectors().get(0).getSv()){
-				fvMap.put(entry.index(), entry.get());
+			SparseVector sv = localFv.getFeatureVectors().get(0).getSv();
+			for(int j = 0;j < sv.getUsed();j++){
+				fvMap.put(sv.getIndex()[j], sv.getData()[j]);
 			}
 			for(Entry<Integer, Double> fvEntry:fvMap.entrySet()){
 				writer.append(" ");
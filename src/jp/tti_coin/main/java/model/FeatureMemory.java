@@ -0,0 +1,96 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.Metrics;
+
+import config.Parameters;
+
+// memory budget of the cached path features (featureCacheSize in MB, 0: unlimited).
+// the node features are always kept, but the path features of a node are released when the budget is exceeded,
+// starting from the nodes not used for the longest time (a clock over the caches, used caches get a second chance).
+// the released features are read from the feature store if it is set, or computed again, when they are used next.
+public class FeatureMemory {
+	private static final Metrics.Counter EVICTIONS = Metrics.counter("features.cache.evictions");
+	private static final Metrics.Counter MISSES = Metrics.counter("features.cache.misses");
+	// rough sizes of the objects in bytes
+	private static final long VECTOR_SIZE = 64;
+	private static final long VECTOR_INFO_SIZE = 48;
+	private static final long ENTRY_SIZE = 64;
+	// caches holding path features in the order of the clock, guarded by the class lock
+	private static final Set<FeatureCache> caches = new LinkedHashSet<FeatureCache>();
+	private static final AtomicLong used = new AtomicLong();
+
+	private FeatureMemory() {}
+
+	public static boolean isEnabled(Parameters params) {
+		return params.getFeatureCacheSize() > 0;
+	}
+
+	public static long getBudget(Parameters params) {
+		return params.getFeatureCacheSize() * 1048576L;
+	}
+
+	public static long getUsed() {
+		return used.get();
+	}
+
+	public static long sizeOf(SparseFeatureVector vector) {
+		long size = VECTOR_SIZE + ENTRY_SIZE;
+		for(VectorInfo featureVector:vector.getFeatureVectors()){
+			size += VECTOR_INFO_SIZE + featureVector.size() * (featureVector.isFrozen() ? 8 : 12);
+		}
+		return size;
+	}
+
+	static void miss() {
+		MISSES.increment();
+	}
+
+	// accounts the path features of size bytes added to cache (already counted by the cache),
+	// the lock is taken only to register the cache and to release the other caches over the budget
+	static void add(FeatureCache cache, long size) {
+		if(!cache.registered){
+			synchronized(FeatureMemory.class){
+				if(!cache.registered){
+					cache.registered = true;
+					caches.add(cache);
+				}
+			}
+		}
+		if(used.addAndGet(size) > getBudget(cache.params)){
+			evict(cache);
+		}
+	}
+
+	// releases the path features of the caches other than cache until the budget is met
+	private static synchronized void evict(FeatureCache cache) {
+		long budget = getBudget(cache.params);
+		// each cache is visited at most twice (once to clear its reference bit)
+		for(int visits = 2 * caches.size();used.get() > budget && visits > 0;visits--){
+			Iterator<FeatureCache> it = caches.iterator();
+			FeatureCache candidate = it.next();
+			it.remove();
+			if(candidate == cache || candidate.referenced){
+				candidate.referenced = false;
+				caches.add(candidate);
+				continue;
+			}
+			candidate.registered = false;
+			used.addAndGet(-candidate.releasePathFeatures());
+			EVICTIONS.increment();
+		}
+	}
+
+	// forgets cache when it is dropped by its node
+	static synchronized void remove(FeatureCache cache) {
+		if(cache.registered){
+			caches.remove(cache);
+			cache.registered = false;
+		}
+		used.addAndGet(-cache.releasePathFeatures());
+	}
+}
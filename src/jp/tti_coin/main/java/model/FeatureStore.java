@@ -0,0 +1,217 @@
+package model;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.yaml.snakeyaml.Yaml;
+
+import utils.Metrics;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import config.Parameters;
+import data.nlp.Node;
+
+// persistent store of the cached node and path features (featureStoreFile), shared by the runs on the same data.
+// the vectors are keyed by the feature settings, the document (its name and the hash of its text and nodes) and the node ids,
+// so the runs with other settings or modified documents just miss the stored vectors.
+public class FeatureStore {
+	private static final int VERSION = 2;
+	// parameters that do not change the cached features
+	private static final Set<String> IGNORED_PARAMETERS = ImmutableSet.of("averageNumWords", "beamSize", "corpusCacheFolder", "devFolder",
+			"devVectorFile", "epsilon", "featureCacheSize", "featureStoreFile", "globalWeight", "inferenceProcessors", "iteration", "lambda",
+			"learningMethod", "loaderProcessors", "localIteration", "margin", "metricsFile", "miniBatch", "modelFile", "outputInterval",
+			"possibleLabels", "predAnnotationExtension", "processors", "searchMethod", "testFolder", "trainFolder", "trainVectorFile",
+			"updateMethod", "useAveraging", "useBestFirst", "useBinaryModel", "useDynamicSort", "useHogwild", "useLazyExpansion",
+			"useLocalInit", "useLocalScoreCache", "useMetrics", "useParallel", "useParallelPrediction", "useParallelTraining",
+			"useWeightedMargin", "useWeighting", "verbosity", "weightQuantization", "weightStorage");
+	// parameters naming the dictionaries read by the feature caches
+	private static final Set<String> DICTIONARY_PARAMETERS = ImmutableSet.of("logBilinearFile", "nictSynonymFile", "nictVerbEntailmentFile");
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Metrics.Counter HITS = Metrics.counter("features.store.hits");
+	private static final Metrics.Counter MISSES = Metrics.counter("features.store.misses");
+	private static FeatureStore store = null;
+	private final Parameters params;
+	private final DB db;
+	private final Map<String, byte[]> vectors;
+	private final String settings;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private FeatureStore(Parameters params) {
+		this.params = params;
+		// mapped file without transactions, closed with FeatureCache.close() or at exit
+		this.db = DBMaker.newFileDB(new File(params.getFeatureStoreFile())).transactionDisable().compressionEnable().closeOnJvmShutdown().make();
+		this.vectors = db.getHashMap("vectors");
+		this.settings = hashSettings(params);
+	}
+
+	// the store of featureStoreFile (null if it is not set)
+	public static synchronized FeatureStore get(Parameters params) {
+		if(params.getFeatureStoreFile() == null){
+			return null;
+		}
+		if(store == null){
+			store = new FeatureStore(params);
+		}
+		return store;
+	}
+
+	public static synchronized void close() {
+		if(store != null){
+			store.db.close();
+			if(store.params.getVerbosity() > 2){
+				System.out.println("Feature store: "+store.hits.get()+" hits, "+store.misses.get()+" misses");
+			}
+			store = null;
+		}
+	}
+
+	// hash of all the parameters except those that do not change the node and path features
+	// (learning, inference, folders, threads and output), and of the dictionary files read by the feature caches
+	private static String hashSettings(Parameters params) {
+		Hasher hasher = Hashing.md5().newHasher();
+		hasher.putInt(VERSION);
+		Yaml yaml = new Yaml();
+		try {
+			Map<String, PropertyDescriptor> properties = new TreeMap<String, PropertyDescriptor>();
+			for(PropertyDescriptor property:Introspector.getBeanInfo(Parameters.class).getPropertyDescriptors()){
+				if(property.getReadMethod() != null && property.getWriteMethod() != null && !IGNORED_PARAMETERS.contains(property.getName())){
+					properties.put(property.getName(), property);
+				}
+			}
+			for(PropertyDescriptor property:properties.values()){
+				Object value = property.getReadMethod().invoke(params);
+				hasher.putString(property.getName(), UTF8);
+				hasher.putString(yaml.dump(value), UTF8);
+				if(DICTIONARY_PARAMETERS.contains(property.getName()) && value != null){
+					// the dictionaries may be edited in place
+					File file = new File(value.toString());
+					hasher.putLong(file.exists() ? file.length() : -1);
+					hasher.putLong(file.lastModified());
+				}
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return hasher.hash().toString().substring(0, 16);
+	}
+
+	// ids may be unique only in a sentence
+	private static String getName(Node node) {
+		return node.getSourceDesc()+":"+node.getId()+":"+node.getOffset().getStart()+":"+node.getOffset().getEnd();
+	}
+
+	// key of the features of kind (node, full path or shortest path) computed by cache for node and e2 (null for node features)
+	public String getKey(FeatureCache cache, String kind, Node node, Node e2) {
+		String documentId = node.getDocument().getId();
+		StringBuilder key = new StringBuilder();
+		key.append(settings).append('/').append(cache.getClass().getSimpleName()).append('/');
+		key.append(new File(documentId).getName()).append('/').append(node.getDocument().getFingerprint()).append('/');
+		key.append(kind).append('/').append(getName(node));
+		if(e2 != null){
+			key.append('/').append(getName(e2));
+		}
+		return key.toString();
+	}
+
+	// stored vector of key, null if it is not stored
+	public SparseFeatureVector get(String key) {
+		byte[] bytes = vectors.get(key);
+		if(bytes == null){
+			misses.incrementAndGet();
+			MISSES.increment();
+			return null;
+		}
+		hits.incrementAndGet();
+		HITS.increment();
+		try {
+			return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void put(String key, SparseFeatureVector vector) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			write(new DataOutputStream(bytes), vector);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		vectors.put(key, bytes.toByteArray());
+	}
+
+	private void write(DataOutputStream out, SparseFeatureVector vector) throws IOException {
+		List<VectorInfo> featureVectors = vector.getFeatureVectors();
+		out.writeInt(featureVectors.size());
+		for(VectorInfo featureVector:featureVectors){
+			out.writeInt(featureVector.getKey());
+			out.writeDouble(featureVector.getWeight());
+			out.writeBoolean(featureVector.isFrozen());
+			if(featureVector.isFrozen()){
+				int[] index = featureVector.getFrozen().getIndex();
+				float[] value = featureVector.getFrozen().getValue();
+				out.writeInt(index.length);
+				for(int i = 0;i < index.length;i++){
+					out.writeInt(index[i]);
+					out.writeFloat(value[i]);
+				}
+			}else{
+				int size = featureVector.getSv().getUsed();
+				int[] index = featureVector.getSv().getIndex();
+				double[] data = featureVector.getSv().getData();
+				out.writeInt(size);
+				for(int i = 0;i < size;i++){
+					out.writeInt(index[i]);
+					out.writeDouble(data[i]);
+				}
+			}
+		}
+		out.close();
+	}
+
+	private SparseFeatureVector read(DataInputStream in) throws IOException {
+		SparseFeatureVector vector = new SparseFeatureVector(params);
+		int numVectors = in.readInt();
+		for(int n = 0;n < numVectors;n++){
+			int key = in.readInt();
+			double weight = in.readDouble();
+			boolean frozen = in.readBoolean();
+			int size = in.readInt();
+			int[] index = new int[size];
+			if(frozen){
+				float[] value = new float[size];
+				for(int i = 0;i < size;i++){
+					index[i] = in.readInt();
+					value[i] = in.readFloat();
+				}
+				vector.getFeatureVectors().add(new VectorInfo(key, weight, new FrozenVector(index, value)));
+			}else{
+				double[] data = new double[size];
+				for(int i = 0;i < size;i++){
+					index[i] = in.readInt();
+					data[i] = in.readDouble();
+				}
+				vector.getFeatureVectors().add(new VectorInfo(key, weight, new SparseVector(index, data)));
+			}
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,57 @@
+package model;
+
+import java.util.Arrays;
+
+// single precision values, half the memory of DenseWeightStorage
+public class FloatWeightStorage extends WeightStorage {
+	private final float[] values;
+
+	public FloatWeightStorage(int size) {
+		this.values = new float[size];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public double get(int key) {
+		return values[key];
+	}
+
+	@Override
+	public void set(int key, double value) {
+		values[key] = (float)value;
+	}
+
+	@Override
+	public void add(int key, double value) {
+		values[key] += value;
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(values, (float)value);
+	}
+
+	@Override
+	public void scale(double d) {
+		for(int i = 0;i < values.length;i++){
+			if(Math.abs(values[i]) >= Float.MIN_VALUE){
+				values[i] *= d;
+			}else{
+				values[i] = 0.f;
+			}
+		}
+	}
+
+	public float[] getArray() {
+		return values;
+	}
+
+	@Override
+	public long getMemory() {
+		return (long)values.length * 4;
+	}
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.nio.DoubleBuffer;
+
+// immutable flat sparse vector with sorted indices and float values.
+// the cached features are frozen into this form once they are computed,
+// so that scoring them does not go through the sparse vectors of the composite form.
+public class FrozenVector {
+	private final int[] index;
+	private final float[] value;
+
+	public FrozenVector(SparseVector sv, double scale) {
+		int used = sv.getUsed();
+		int[] svIndex = sv.getIndex();
+		double[] svData = sv.getData();
+		int size = 0;
+		for(int i = 0;i < used;i++){
+			if(svData[i] != 0.){
+				size++;
+			}
+		}
+		this.index = new int[size];
+		this.value = new float[size];
+		int n = 0;
+		for(int i = 0;i < used;i++){
+			if(svData[i] != 0.){
+				assert n == 0 || index[n - 1] < svIndex[i];
+				index[n] = svIndex[i];
+				value[n] = (float)(svData[i] * scale);
+				n++;
+			}
+		}
+	}
+
+	// index must be sorted in ascending order without duplicates
+	FrozenVector(int[] index, float[] value) {
+		assert index.length == value.length;
+		this.index = index;
+		this.value = value;
+	}
+
+	public int size() {
+		return index.length;
+	}
+
+	public int[] getIndex() {
+		return index;
+	}
+
+	public float[] getValue() {
+		return value;
+	}
+
+	public double dot(double[] w, int key, int filter) {
+		int[] index = this.index;
+		float[] value = this.value;
+		double score = 0.;
+		if(key == 0){
+			for(int i = 0;i < index.length;i++){
+				score += w[index[i]] * value[i];
+			}
+		}else{
+			for(int i = 0;i < index.length;i++){
+				score += w[(index[i] + key) & filter] * value[i];
+			}
+		}
+		return score;
+	}
+
+	public double dot(DoubleBuffer[] segments, int key, int filter) {
+		double score = 0.;
+		for(int i = 0;i < index.length;i++){
+			int k = (index[i] + key) & filter;
+			score += segments[k >>> OffHeapWeightStorage.SEGMENT_SHIFT].get(k & OffHeapWeightStorage.SEGMENT_MASK) * value[i];
+		}
+		return score;
+	}
+
+	public double dot(WeightStorage storage, int key, int filter) {
+		double score = 0.;
+		for(int i = 0;i < index.length;i++){
+			score += storage.get((index[i] + key) & filter) * value[i];
+		}
+		return score;
+	}
+
+	public void addTo(double[] w, int key, int filter, double scale) {
+		int[] index = this.index;
+		float[] value = this.value;
+		if(key == 0){
+			for(int i = 0;i < index.length;i++){
+				w[index[i]] += value[i] * scale;
+			}
+		}else{
+			for(int i = 0;i < index.length;i++){
+				w[(index[i] + key) & filter] += value[i] * scale;
+			}
+		}
+	}
+
+	public void addTo(DoubleBuffer[] segments, int key, int filter, double scale) {
+		for(int i = 0;i < index.length;i++){
+			int k = (index[i] + key) & filter;
+			DoubleBuffer segment = segments[k >>> OffHeapWeightStorage.SEGMENT_SHIFT];
+			int offset = k & OffHeapWeightStorage.SEGMENT_MASK;
+			segment.put(offset, segment.get(offset) + value[i] * scale);
+		}
+	}
+
+	public void addTo(WeightVector weight, int key, int filter, double scale) {
+		for(int i = 0;i < index.length;i++){
+			weight.add((index[i] + key) & filter, value[i] * scale);
+		}
+	}
+
+	public void addTo(SparseAccumulator accumulator, int key, int filter, double scale) {
+		for(int i = 0;i < index.length;i++){
+			accumulator.add((index[i] + key) & filter, value[i] * scale);
+		}
+	}
+
+	public double getSquaredNorm() {
+		double sum = 0.;
+		for(float v:value){
+			sum += (double)v * v;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,52 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+// read-only values mapped from a binary model file, in segments of OffHeapWeightStorage.SEGMENT_MASK + 1 values
+public class MappedWeightStorage extends WeightStorage {
+	private final int size;
+	private final DoubleBuffer[] segments;
+
+	public MappedWeightStorage(FileChannel channel, long position, int size) throws IOException {
+		this.size = size;
+		this.segments = new DoubleBuffer[((size - 1) >>> OffHeapWeightStorage.SEGMENT_SHIFT) + 1];
+		for(int i = 0;i < segments.length;i++){
+			int length = Math.min(OffHeapWeightStorage.SEGMENT_MASK + 1, size - (i << OffHeapWeightStorage.SEGMENT_SHIFT));
+			long offset = position + ((long)i << (OffHeapWeightStorage.SEGMENT_SHIFT + 3));
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)length * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int key) {
+		return segments[key >>> OffHeapWeightStorage.SEGMENT_SHIFT].get(key & OffHeapWeightStorage.SEGMENT_MASK);
+	}
+
+	@Override
+	public void set(int key, double value) {
+		throw new UnsupportedOperationException("Mapped weights are read-only.");
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	public DoubleBuffer[] getSegments() {
+		return segments;
+	}
+
+	// the mapped pages are managed by the operating system
+	@Override
+	public long getMemory() {
+		return 0;
+	}
+}
@@ -4,19 +4,38 @@ import inference.State;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Vector;
 
 import com.google.common.io.Files;
 
+import utils.Metrics;
+
 import config.Parameters;
 
 import data.Data;
 import data.Instance;
+import data.Label;
+import data.LabelUnit;
+import data.SequenceUnit;
 
 public abstract class Model {
+	private static final byte[] MAGIC = {'J', 'E', 'R', 'M'};
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 20;
+	private static final Metrics.Timer EVALUATE = Metrics.timer("model.evaluate");
 	protected Parameters params;
 	protected FeatureGenerator fg;
 	protected WeightVector weight;
@@ -30,7 +49,7 @@ public abstract class Model {
 		this.weight = new WeightVector(this.params);
 		if(params.getUseAveraging()){
 			this.weightDiff = new WeightVector(this.params);	
-			this.aveWeight = new WeightVector(this.params);
+			this.aveWeight = new WeightVector(this.params, new AveragedWeightStorage(weight, 1., weightDiff, 0.));
 		}
 		this.trainStep = 1;
 	}
@@ -47,23 +66,73 @@ public abstract class Model {
 		}
 	}
 
+	// step of an update, claimed once per update since the updates may run at the same time (Hogwild)
+	protected synchronized int claimTrainStep() {
+		return trainStep++;
+	}
+
+	// the average is computed from weight and weightDiff when it is read,
+	// so this must be called again after the weights are updated.
 	public void averageWeight(){
 		if(params.getUseAveraging()){
-			this.aveWeight = new WeightVector(this.params);
-			aveWeight.add(weight);
-			if(trainStep != 0){
-				aveWeight.add(-1./trainStep, weightDiff);
-			}
+			this.aveWeight = new WeightVector(this.params, new AveragedWeightStorage(weight, 1., weightDiff, trainStep != 0 ? -1./trainStep : 0.));
 		}
 	}
 	
 	public double evaluate(SparseFeatureVector sv, boolean average) {
+		long start = Metrics.start();
+		double score;
 		if(params.getUseAveraging() && average){
 			assert aveWeight != null;
-			return sv.dot(aveWeight);
+			score = sv.dot(aveWeight);
 		}else{
-			return sv.dot(weight);
+			score = sv.dot(weight);
+		}
+		EVALUATE.stop(start);
+		return score;
+	}
+
+	public WeightVector getWeight(boolean average) {
+		if(params.getUseAveraging() && average){
+			assert aveWeight != null;
+			return aveWeight;
 		}
+		return weight;
+	}
+
+	// score of the local features, cached in the unit until the weights change
+	public double evaluateLocal(Instance instance, int target, LabelUnit label, boolean average) {
+		WeightVector w = getWeight(average);
+		if(!params.getUseLocalScoreCache()){
+			return fg.calculateFeature(instance, null, target - 1, target, label, true).dot(w);
+		}
+		SequenceUnit unit = instance.getSequence().get(target);
+		// read the version first so that a concurrent update makes the entry stale
+		long version = w.getVersion();
+		double score = unit.getLocalScore(label, version);
+		if(Double.isNaN(score)){
+			score = fg.calculateFeature(instance, null, target - 1, target, label, true).dot(w);
+			unit.setLocalScore(label, version, score);
+		}
+		return score;
+	}
+
+	public double evaluate(Instance instance, Label y, int index, LabelUnit label, boolean average) {
+		return evaluate(instance, y, index - 1, index, label, average);
+	}
+
+	public double evaluate(Instance instance, Label y, int lastIndex, int target, LabelUnit label, boolean average) {
+		if(params.getUseLocalScoreCache()){
+			SparseFeatureVector globalFv = fg.calculateGlobalFeature(instance, y, lastIndex, target, label);
+			if(globalFv != null){
+				double score = evaluateLocal(instance, target, label, average);
+				if(globalFv.size() > 0){
+					score += globalFv.dot(getWeight(average));
+				}
+				return score;
+			}
+		}
+		return evaluate(fg.calculateFeature(instance, y, lastIndex, target, label), average);
 	}
 
 	public FeatureGenerator getFeatureGenerator() {
@@ -75,15 +144,27 @@ public abstract class Model {
 	}
 
 
+	protected List<WeightVector> getWeightVectors() {
+		List<WeightVector> vectors = new Vector<WeightVector>();
+		vectors.add(weight);
+		if(params.getUseAveraging()){
+			vectors.add(weightDiff);
+			vectors.add(aveWeight);
+		}
+		return vectors;
+	}
+
 	public void save(String filename){
 		try {
+			if(params.getUseBinaryModel()){
+				saveBinary(filename);
+				return;
+			}
 			BufferedWriter writer = new BufferedWriter(Files.newWriterSupplier(new File(filename), Charset.forName("UTF-8")).getOutput());
 			writer.write(String.valueOf(trainStep));
 			writer.write("\n");
-			weight.save(writer);
-			if(params.getUseAveraging()){
-				weightDiff.save(writer);
-				aveWeight.save(writer);
+			for(WeightVector vector:getWeightVectors()){
+				vector.save(writer);
 			}
 			params.saveModelParameters(writer);
 			writer.close();
@@ -94,15 +175,20 @@ public abstract class Model {
 	
 	public void load(String filename){
 		try {
-			BufferedReader reader = new BufferedReader(Files.newReaderSupplier(new File(filename), Charset.forName("UTF-8")).getInput());
-			trainStep = Integer.parseInt(reader.readLine().trim());
-			weight.load(reader);
-			if(params.getUseAveraging()){
-				weightDiff.load(reader);
-				aveWeight.load(reader);
+			if(isBinary(filename)){
+				loadBinary(filename);
+			}else{
+				BufferedReader reader = new BufferedReader(Files.newReaderSupplier(new File(filename), Charset.forName("UTF-8")).getInput());
+				trainStep = Integer.parseInt(reader.readLine().trim());
+				for(WeightVector vector:getWeightVectors()){
+					vector.load(reader);
+				}
+				params.loadModelParameters(reader);
+				reader.close();
+			}
+			if(params.getWeightQuantization() > 0){
+				getWeight(true).quantize(params.getWeightQuantization());
 			}
-			params.loadModelParameters(reader);
-			reader.close();
 			//TODO: refactor dependency of fg and model
 			fg.init(); 		
 		} catch (IOException e) {
@@ -110,13 +196,117 @@ public abstract class Model {
 		}
 	}
 
+	// binary model file (little-endian):
+	// magic, format version, train step, #weight vectors, parameter block length (int),
+	// parameter block (UTF-8 text of saveModelParameters), padding to 8 bytes,
+	// and for each weight vector, its size (long) followed by the raw doubles.
+	private void saveBinary(String filename) throws IOException {
+		StringWriter parameters = new StringWriter();
+		BufferedWriter writer = new BufferedWriter(parameters);
+		params.saveModelParameters(writer);
+		writer.flush();
+		byte[] parameterBlock = parameters.toString().getBytes(Charset.forName("UTF-8"));
+		List<WeightVector> vectors = getWeightVectors();
+		ByteBuffer header = ByteBuffer.allocate((int)align(HEADER_SIZE + parameterBlock.length)).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.putInt(trainStep);
+		header.putInt(vectors.size());
+		header.putInt(parameterBlock.length);
+		header.put(parameterBlock);
+		header.clear();
+		FileOutputStream out = new FileOutputStream(filename);
+		try {
+			FileChannel channel = out.getChannel();
+			write(channel, header);
+			for(WeightVector vector:vectors){
+				ByteBuffer size = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				size.putLong(vector.size());
+				size.flip();
+				write(channel, size);
+				vector.save(channel);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// maps the weight vectors of a binary model file, the values are read when they are used
+	private void loadBinary(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = read(channel, 0, HEADER_SIZE);
+			header.position(MAGIC.length);
+			int version = header.getInt();
+			if(version != FORMAT_VERSION){
+				throw new IOException("Unsupported model format version "+version+" in "+filename);
+			}
+			trainStep = header.getInt();
+			int numVectors = header.getInt();
+			int parameterLength = header.getInt();
+			ByteBuffer parameterBlock = read(channel, HEADER_SIZE, parameterLength);
+			params.loadModelParameters(new BufferedReader(new StringReader(new String(parameterBlock.array(), Charset.forName("UTF-8")))));
+			List<WeightVector> vectors = getWeightVectors();
+			if(numVectors != vectors.size()){
+				throw new IOException(filename+" has "+numVectors+" weight vectors, but "+vectors.size()+" are expected.");
+			}
+			long position = align(HEADER_SIZE + parameterLength);
+			for(WeightVector vector:vectors){
+				long size = read(channel, position, 8).getLong();
+				if(size != vector.size()){
+					throw new IOException(filename+" has weight vectors of size "+size+", but fvBitSize requires "+vector.size()+".");
+				}
+				vector.load(channel, position + 8, (int)size);
+				position += 8 + size * 8;
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	private static boolean isBinary(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			if(file.length() < MAGIC.length){
+				return false;
+			}
+			byte[] magic = new byte[MAGIC.length];
+			file.readFully(magic);
+			return Arrays.equals(magic, MAGIC);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()){
+			if(channel.read(buffer, position + buffer.position()) < 0){
+				throw new EOFException("Unexpected end of the model file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
 	public abstract void update(List<State> updates);
 
 	public void initialize(double w, double[] featureWeights) {
-		double[] weights = this.weight.get();
-		for(int i = 0;i < weights.length;i++){
-			weights[i] = featureWeights[i] * w;
+		for(int i = 0;i < this.weight.size();i++){
+			this.weight.set(i, featureWeights[i] * w);
 		}
+		this.weight.touch();
 	}
 	
 	public void initialize(Model model) {
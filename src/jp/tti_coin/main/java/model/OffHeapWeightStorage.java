@@ -0,0 +1,119 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+// values outside the java heap, split into segments so that the size is not limited by a single buffer.
+// the segments are direct buffers, or pages of a temporary file mapped into memory, which are
+// limited by neither the heap nor the direct memory size.
+public class OffHeapWeightStorage extends WeightStorage {
+	public static final int SEGMENT_SHIFT = 24;
+	public static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+	private final int size;
+	private final DoubleBuffer[] segments;
+
+	public OffHeapWeightStorage(int size, boolean mapped) {
+		this.size = size;
+		this.segments = new DoubleBuffer[((size - 1) >>> SEGMENT_SHIFT) + 1];
+		try {
+			RandomAccessFile file = null;
+			if(mapped){
+				File tmpFile = File.createTempFile("weights", ".bin");
+				tmpFile.deleteOnExit();
+				file = new RandomAccessFile(tmpFile, "rw");
+				file.setLength((long)size * 8);
+				// the mapping stays valid after the file is deleted and closed
+				tmpFile.delete();
+			}
+			for(int i = 0;i < segments.length;i++){
+				int length = Math.min(SEGMENT_MASK + 1, size - (i << SEGMENT_SHIFT));
+				ByteBuffer buffer;
+				if(file != null){
+					buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long)i << (SEGMENT_SHIFT + 3), (long)length * 8);
+				}else{
+					buffer = ByteBuffer.allocateDirect(length * 8);
+				}
+				segments[i] = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			}
+			if(file != null){
+				file.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int key) {
+		return segments[key >>> SEGMENT_SHIFT].get(key & SEGMENT_MASK);
+	}
+
+	@Override
+	public void set(int key, double value) {
+		segments[key >>> SEGMENT_SHIFT].put(key & SEGMENT_MASK, value);
+	}
+
+	@Override
+	public void add(int key, double value) {
+		DoubleBuffer segment = segments[key >>> SEGMENT_SHIFT];
+		int offset = key & SEGMENT_MASK;
+		segment.put(offset, segment.get(offset) + value);
+	}
+
+	@Override
+	public void fill(double value) {
+		for(DoubleBuffer segment:segments){
+			for(int i = 0;i < segment.capacity();i++){
+				segment.put(i, value);
+			}
+		}
+	}
+
+	@Override
+	public void scale(double d) {
+		for(DoubleBuffer segment:segments){
+			for(int i = 0;i < segment.capacity();i++){
+				double value = segment.get(i);
+				if(Math.abs(value) >= Double.MIN_VALUE){
+					segment.put(i, value * d);
+				}else if(value != 0.){
+					segment.put(i, 0.);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void addTo(WeightStorage target, double w) {
+		for(int s = 0;s < segments.length;s++){
+			DoubleBuffer segment = segments[s];
+			int base = s << SEGMENT_SHIFT;
+			for(int i = 0;i < segment.capacity();i++){
+				double value = segment.get(i);
+				if(value != 0.){
+					target.add(base + i, value * w);
+				}
+			}
+		}
+	}
+
+	public DoubleBuffer[] getSegments() {
+		return segments;
+	}
+
+	// the values are not on the heap
+	@Override
+	public long getMemory() {
+		return 0;
+	}
+}
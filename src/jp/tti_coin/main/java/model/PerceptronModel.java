@@ -35,11 +35,11 @@ public class PerceptronModel extends Model {
 			numUpdates++;
 		}
 		if(numUpdates > 0){
+			int step = claimTrainStep();
 			updateVector.addToWeight(1. / params.getMiniBatch(), weight);
 			if(params.getUseAveraging()){
-				updateVector.addToWeight((double)trainStep / params.getMiniBatch(), weightDiff);
+				updateVector.addToWeight((double)step / params.getMiniBatch(), weightDiff);
 			}
-			trainStep++;
 		}
 	}
 }
@@ -0,0 +1,61 @@
+package model;
+
+// read-only values linearly quantized to 8 or 16 bits for prediction
+public class QuantizedWeightStorage extends WeightStorage {
+	private final int size;
+	private final byte[] bytes;
+	private final short[] shorts;
+	private final double step;
+
+	public QuantizedWeightStorage(WeightStorage storage, int bits) {
+		assert bits == 8 || bits == 16;
+		this.size = storage.size();
+		double max = 0.;
+		for(int i = 0;i < size;i++){
+			max = Math.max(max, Math.abs(storage.get(i)));
+		}
+		int levels = (1 << (bits - 1)) - 1;
+		this.step = max > 0. ? max / levels : 1.;
+		if(bits == 8){
+			this.bytes = new byte[size];
+			this.shorts = null;
+			for(int i = 0;i < size;i++){
+				bytes[i] = (byte)Math.round(storage.get(i) / step);
+			}
+		}else{
+			this.bytes = null;
+			this.shorts = new short[size];
+			for(int i = 0;i < size;i++){
+				shorts[i] = (short)Math.round(storage.get(i) / step);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int key) {
+		if(bytes != null){
+			return bytes[key] * step;
+		}
+		return shorts[key] * step;
+	}
+
+	@Override
+	public void set(int key, double value) {
+		throw new UnsupportedOperationException("Quantized weights are read-only.");
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public long getMemory() {
+		return bytes != null ? size : (long)size * 2;
+	}
+}
@@ -2,14 +2,8 @@ package model;
 
 import inference.State;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 
-import com.google.common.io.Files;
 import config.Parameters;
 
 import data.Instance;
@@ -75,12 +69,11 @@ public final class SCWModel extends Model {
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
-			double[] cov = covariance.get();
 			int size = vector.getSv().getUsed();
 			assert size > 0.;
 			double localC = 0.;
 			for(int i = 0;i < size;i++){
-				localC += cov[index[i]] * grad[i] * grad[i];
+				localC += covariance.getValue(index[i]) * grad[i] * grad[i];
 			}
 			double scale = vector.getWeight();
 			c += localC * scale * scale;
@@ -103,28 +96,27 @@ public final class SCWModel extends Model {
 		sqrt_u_t = Math.abs(sqrt_u_t / 2.);
 		double beta_t = alpha_t * phi / (sqrt_u_t+avp);
 		assert beta_t > 0. && !Double.isNaN(beta_t) && !Double.isInfinite(beta_t) : beta_t;
-		double[] w = weight.get();
-		double[] wdiff = null;
-		if(params.getUseAveraging()){
-			wdiff = weightDiff.get();
-		}
 		for(VectorInfo vector:fv.getFeatureVectors()){
 			int[] index = vector.getSv().getIndex();
 			double[] grad = vector.getSv().getData();
-			double[] cov = covariance.get();
 			double scale = vector.getWeight();
 			int size = vector.getSv().getUsed();
 			for(int i = 0;i < size;i++){
 				int index_i = index[i];
-				double cov_i_grad_i = cov[index_i] * grad[i] * scale;
+				double cov_i_grad_i = covariance.getValue(index_i) * grad[i] * scale;
 				double diff = alpha_t * cov_i_grad_i;
-				w[index_i] += diff;
+				weight.add(index_i, diff);
 				if(params.getUseAveraging()){
-					wdiff[index_i] += trainStep * diff;
+					weightDiff.add(index_i, trainStep * diff);
 				}
-				cov[index_i] -= beta_t * cov_i_grad_i * cov_i_grad_i;
+				covariance.add(index_i, -beta_t * cov_i_grad_i * cov_i_grad_i);
 			}
 		}
+		weight.touch();
+		if(params.getUseAveraging()){
+			weightDiff.touch();
+		}
+		covariance.touch();
 		trainStep++;
 	}
 		
@@ -158,41 +150,10 @@ public final class SCWModel extends Model {
 	}
 
 	@Override
-	public void save(String filename){
-		try {
-			BufferedWriter writer = new BufferedWriter(Files.newWriterSupplier(new File(filename), Charset.forName("UTF-8")).getOutput());
-			writer.write(String.valueOf(trainStep));
-			writer.write("\n");
-			weight.save(writer);
-			if(params.getUseAveraging()){
-				weightDiff.save(writer);
-				aveWeight.save(writer);
-			}
-			covariance.save(writer);
-			params.saveModelParameters(writer);
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	@Override
-	public void load(String filename){
-		try {
-			BufferedReader reader = new BufferedReader(Files.newReaderSupplier(new File(filename), Charset.forName("UTF-8")).getInput());
-			trainStep = Integer.parseInt(reader.readLine().trim());
-			weight.load(reader);
-			if(params.getUseAveraging()){
-				weightDiff.load(reader);
-				aveWeight.load(reader);
-			}
-			covariance.load(reader);
-			params.loadModelParameters(reader);
-			reader.close();
-			fg.init();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	protected List<WeightVector> getWeightVectors() {
+		List<WeightVector> vectors = super.getWeightVectors();
+		vectors.add(covariance);
+		return vectors;
 	}
 
 	public double getPhi() {
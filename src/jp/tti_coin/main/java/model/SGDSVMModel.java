@@ -23,6 +23,8 @@ public class SGDSVMModel extends Model {
 		assert lambda != 1.;
 	}
 	
+	// scaling the weight vectors only changes their factors,
+	// so only the fold of weight into weightDiff passes over the vectors.
 	private void renorm(){
 		if (wdiv != 1.0 || adiv != 1.0 || wfrac != 0.){
 			if(params.getUseAveraging()){
@@ -38,9 +40,12 @@ public class SGDSVMModel extends Model {
 	
 	public void averageWeight(){
 		if(params.getUseAveraging()){
-			renorm();
-			this.aveWeight = new WeightVector(this.params);
-			this.aveWeight.add(weightDiff);
+			// only wdiv is folded (into the factor of weight), wfrac follows the raw weights.
+			// the averaged weights are weightDiff / adiv + weight * wfrac / adiv.
+			weight.scale(1./wdiv);
+			wfrac *= wdiv;
+			wdiv = 1.;
+			this.aveWeight = new WeightVector(this.params, new AveragedWeightStorage(weightDiff, 1./adiv, weight, wfrac/adiv));
 		}
 	}
 
@@ -0,0 +1,123 @@
+package model;
+
+import java.util.Arrays;
+
+// scatter/gather buffer that sums entries given in any order in expected constant time per entry
+// and gathers them into a SparseVector. each thread reuses its own buffer (see get()).
+public class SparseAccumulator {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int MAX_IDLE_CAPACITY = 1 << 18;
+	private static final int EMPTY = -1;
+	private static final ThreadLocal<SparseAccumulator> LOCAL = new ThreadLocal<SparseAccumulator>(){
+		@Override
+		protected SparseAccumulator initialValue() {
+			return new SparseAccumulator();
+		}
+	};
+	// open addressing table of the indices and their sums
+	private int[] keys;
+	private double[] values;
+	// slots in the order they were filled, so that clearing does not pass over the table
+	private int[] slots;
+	private int size;
+
+	public SparseAccumulator() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	public static SparseAccumulator get() {
+		return LOCAL.get();
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity * 2];
+		Arrays.fill(keys, EMPTY);
+		values = new double[capacity * 2];
+		slots = new int[capacity];
+		size = 0;
+	}
+
+	private static int slot(int key, int mask) {
+		int h = key * 0x9E3779B1;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		int[] oldSlots = slots;
+		int oldSize = size;
+		allocate(slots.length * 2);
+		for(int i = 0;i < oldSize;i++){
+			add(oldKeys[oldSlots[i]], oldValues[oldSlots[i]]);
+		}
+	}
+
+	public void add(int key, double value) {
+		assert key >= 0;
+		int mask = keys.length - 1;
+		int s = slot(key, mask);
+		while(keys[s] != EMPTY){
+			if(keys[s] == key){
+				values[s] += value;
+				return;
+			}
+			s = (s + 1) & mask;
+		}
+		if(size == slots.length){
+			grow();
+			add(key, value);
+			return;
+		}
+		keys[s] = key;
+		values[s] = value;
+		slots[size++] = s;
+	}
+
+	public void add(SparseVector sv, int offset, int filter, double scale) {
+		int[] index = sv.getIndex();
+		double[] data = sv.getData();
+		if(offset == 0 && scale == 1.){
+			for(int i = 0;i < index.length;i++){
+				add(index[i], data[i]);
+			}
+		}else{
+			for(int i = 0;i < index.length;i++){
+				add((index[i] + offset) & filter, data[i] * scale);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// gathers the sums sorted by index and clears the buffer
+	public SparseVector toVector() {
+		long[] entries = new long[size];
+		for(int i = 0;i < size;i++){
+			entries[i] = ((long)keys[slots[i]] << 32) | slots[i];
+		}
+		Arrays.sort(entries);
+		int[] index = new int[size];
+		double[] data = new double[size];
+		for(int i = 0;i < size;i++){
+			index[i] = (int)(entries[i] >>> 32);
+			data[i] = values[(int)entries[i]];
+		}
+		clear();
+		return new SparseVector(index, data);
+	}
+
+	public void clear() {
+		if(slots.length > MAX_IDLE_CAPACITY){
+			// do not keep a large buffer after an exceptionally large vector
+			allocate(INITIAL_CAPACITY);
+			return;
+		}
+		for(int i = 0;i < size;i++){
+			keys[slots[i]] = EMPTY;
+		}
+		size = 0;
+	}
+}
@@ -1,13 +1,12 @@
 package model;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Vector;
 
 import utils.HashToInt;
 
-import no.uib.cipr.matrix.sparse.SparseVector;
-
 import config.Parameters;
 
 public class SparseFeatureVector {
@@ -23,19 +22,15 @@ public class SparseFeatureVector {
 
 	public void add(double weight, SparseFeatureVector vector) {
 		for(VectorInfo featureVector:vector.featureVectors){
-			if(featureVector.getSv().getUsed() > 0){
-				featureVectors.add(new VectorInfo(featureVector.getKey(), featureVector.getWeight() * weight, featureVector.getSv()));
+			if(featureVector.size() > 0){
+				featureVectors.add(new VectorInfo(featureVector, featureVector.getKey(), featureVector.getWeight() * weight));
 			}
 		}
 	}
 
-	public void add(int key, double value) {
-		featureVectors.get(0).getSv().add(key, value);
-	}
-
 	public void add(SparseFeatureVector vector) {
 		for(VectorInfo featureVector:vector.featureVectors){
-			if(featureVector.getSv().getUsed() > 0){
+			if(featureVector.size() > 0){
 				featureVectors.add(new VectorInfo(featureVector));
 			}
 		}
@@ -43,31 +38,108 @@ public class SparseFeatureVector {
 
 	public void add(SparseFeatureVector vector, int key) {
 		for(VectorInfo featureVector:vector.featureVectors){
-			if(featureVector.getSv().getUsed() > 0){
-				featureVectors.add(new VectorInfo(key+featureVector.getKey(), featureVector.getWeight(), featureVector.getSv()));
+			if(featureVector.size() > 0){
+				featureVectors.add(new VectorInfo(featureVector, key+featureVector.getKey(), featureVector.getWeight()));
 			}
 		}
 	}
 
 	public void add(SparseFeatureVector vector, String header) {
+		add(vector, HashToInt.code(header));
+	}
+
+	public void add(SparseFeatureVector vector, long header) {
 		assert vector != null;
 		if(vector.size() == 0)return;
 		add(vector, h2i.mapToInt(header));
 	}
 
 	public void add(StringSparseVector vector, String header) {
-		if(vector.size() == 0)return;
-		SparseVector featureVector = new SparseVector(params.fvSize());
-		for(Entry<String, Double> entry:vector.getFv().entrySet()){
-			featureVector.add(h2i.mapToInt(header.concat(entry.getKey())), entry.getValue());
+		add(vector, HashToInt.code(header));
+	}
+
+	public void add(StringSparseVector vector, long header) {
+		int size = vector.size();
+		if(size == 0)return;
+		int headerHash = HashToInt.getHash(header);
+		// sort by index and merge the entries mapped to the same index
+		long[] entries = new long[size];
+		for(int i = 0;i < size;i++){
+			int index = h2i.mapHashToInt(HashToInt.concat(headerHash, vector.getHash(i), vector.getShift(i)));
+			entries[i] = ((long)index << 32) | i;
 		}
-		featureVectors.add(new VectorInfo(0, 1., featureVector));
+		Arrays.sort(entries);
+		int[] index = new int[size];
+		double[] data = new double[size];
+		int used = 0;
+		for(long entry:entries){
+			int key = (int)(entry >>> 32);
+			if(used > 0 && index[used - 1] == key){
+				data[used - 1] += vector.getValue((int)entry);
+			}else{
+				index[used] = key;
+				data[used] = vector.getValue((int)entry);
+				used++;
+			}
+		}
+		if(used < size){
+			index = Arrays.copyOf(index, used);
+			data = Arrays.copyOf(data, used);
+		}
+		featureVectors.add(new VectorInfo(0, 1., new SparseVector(index, data)));
 	}
 
 	public void addToWeight(double w, WeightVector weight) {
 		int filter = params.fvSize() - 1;
-		double[] wArray = weight.get();
+		double[] wArray = weight.getArray();
+		if(wArray != null || weight.getStorage() instanceof OffHeapWeightStorage){
+			// the stored values are multiplied by the factor of the weights
+			w /= weight.getFactor();
+		}
+		if(wArray == null && weight.getStorage() instanceof OffHeapWeightStorage){
+			DoubleBuffer[] segments = ((OffHeapWeightStorage)weight.getStorage()).getSegments();
+			for(VectorInfo featureVector:featureVectors){
+				if(featureVector.isFrozen()){
+					featureVector.getFrozen().addTo(segments, featureVector.getKey(), filter, w * featureVector.getWeight());
+					continue;
+				}
+				int size = featureVector.getSv().getUsed();
+				int index = featureVector.getKey();
+				int[] baseIndex = featureVector.getSv().getIndex();
+				double[] value = featureVector.getSv().getData();
+				double scale = featureVector.getWeight();
+				for(int i = 0;i < size;i++){
+					int key = (baseIndex[i]+index) & filter;
+					DoubleBuffer segment = segments[key >>> OffHeapWeightStorage.SEGMENT_SHIFT];
+					int offset = key & OffHeapWeightStorage.SEGMENT_MASK;
+					segment.put(offset, segment.get(offset) + value[i] * w * scale);
+				}
+			}
+			weight.touch();
+			return;
+		}else if(wArray == null){
+			for(VectorInfo featureVector:featureVectors){
+				if(featureVector.isFrozen()){
+					featureVector.getFrozen().addTo(weight, featureVector.getKey(), filter, w * featureVector.getWeight());
+					continue;
+				}
+				int size = featureVector.getSv().getUsed();
+				int index = featureVector.getKey();
+				int[] baseIndex = featureVector.getSv().getIndex();
+				double[] value = featureVector.getSv().getData();
+				double scale = featureVector.getWeight();
+				for(int i = 0;i < size;i++){
+					weight.add((baseIndex[i]+index) & filter, value[i] * w * scale);
+				}
+			}
+			weight.touch();
+			return;
+		}
 		for(VectorInfo featureVector:featureVectors){
+			if(featureVector.isFrozen()){
+				featureVector.getFrozen().addTo(wArray, featureVector.getKey(), filter, w * featureVector.getWeight());
+				continue;
+			}
 			int size = featureVector.getSv().getUsed();
 			int index = featureVector.getKey();
 			int[] baseIndex = featureVector.getSv().getIndex();
@@ -89,35 +161,63 @@ public class SparseFeatureVector {
 				}
 			}
 		}
+		weight.touch();
 	}
 	
 
 	public void compact() {
-		if(featureVectors.size() == 1){
+		if(featureVectors.size() == 1 && !featureVectors.get(0).isFrozen()){
 			return;
 		}
 		int filter = params.fvSize() - 1;
-		SparseVector sv = new SparseVector(params.fvSize());
+		SparseAccumulator accumulator = SparseAccumulator.get();
 		for(VectorInfo featureVector:featureVectors){
-			int size = featureVector.getSv().getUsed();
-			int index = featureVector.getKey();
-			int[] baseIndex = featureVector.getSv().getIndex();
-			double[] value = featureVector.getSv().getData();
-			double scale = featureVector.getWeight();
-			for(int i = 0;i < size;i++){
-				sv.add((baseIndex[i]+index) & filter, value[i]*scale);
-				assert ((baseIndex[i]+index) & filter) == ((baseIndex[i]+index) % (filter+1)):baseIndex[i]+":"+index+":"+filter+":"+((baseIndex[i]+index) & filter)+":"+((baseIndex[i]+index) % (filter+1));
+			if(featureVector.isFrozen()){
+				featureVector.getFrozen().addTo(accumulator, featureVector.getKey(), filter, featureVector.getWeight());
+			}else{
+				accumulator.add(featureVector.getSv(), featureVector.getKey(), filter, featureVector.getWeight());
 			}
 		}
 		this.featureVectors.clear();
-		this.featureVectors.add(new VectorInfo(0, 1., sv));
+		this.featureVectors.add(new VectorInfo(0, 1., accumulator.toVector()));
+	}
+
+	// compacts the vector into a frozen vector, which is faster to score but must not be modified.
+	// the vector can still be scaled and added to other vectors.
+	public SparseFeatureVector freeze() {
+		compact();
+		VectorInfo featureVector = featureVectors.get(0);
+		if(!featureVector.isFrozen()){
+			featureVectors.set(0, new VectorInfo(featureVector.getKey(), 1., new FrozenVector(featureVector.getSv(), featureVector.getWeight())));
+		}
+		return this;
 	}
 	
 	public double dot(WeightVector weight) {
+		double[] wArray = weight.getArray();
+		if(wArray == null){
+			WeightStorage storage = weight.getStorage();
+			if(storage instanceof AveragedWeightStorage){
+				AveragedWeightStorage average = (AveragedWeightStorage)storage;
+				double score = average.getWeightScale() * dot(average.getWeight());
+				if(average.getDiffScale() != 0.){
+					score += average.getDiffScale() * dot(average.getDiff());
+				}
+				return score;
+			}else if(storage instanceof OffHeapWeightStorage){
+				return dot(((OffHeapWeightStorage)storage).getSegments()) * weight.getFactor();
+			}else if(storage instanceof MappedWeightStorage){
+				return dot(((MappedWeightStorage)storage).getSegments()) * weight.getFactor();
+			}
+			return dot(storage) * weight.getFactor();
+		}
 		double score = 0.;
 		int filter = params.fvSize() - 1;
-		double[] wArray = weight.get();
 		for(VectorInfo featureVector:featureVectors){
+			if(featureVector.isFrozen()){
+				score += featureVector.getFrozen().dot(wArray, featureVector.getKey(), filter) * featureVector.getWeight();
+				continue;
+			}
 			int size = featureVector.getSv().getUsed();
 			int index = featureVector.getKey();
 			int[] baseIndex = featureVector.getSv().getIndex();
@@ -139,11 +239,50 @@ public class SparseFeatureVector {
 				}
 			}
 		}
+		return score * weight.getFactor();
+	}
+
+	// same as dot(WeightVector) for weights stored in segmented buffers
+	private double dot(DoubleBuffer[] segments) {
+		double score = 0.;
+		int filter = params.fvSize() - 1;
+		for(VectorInfo featureVector:featureVectors){
+			if(featureVector.isFrozen()){
+				score += featureVector.getFrozen().dot(segments, featureVector.getKey(), filter) * featureVector.getWeight();
+				continue;
+			}
+			int size = featureVector.getSv().getUsed();
+			int index = featureVector.getKey();
+			int[] baseIndex = featureVector.getSv().getIndex();
+			double[] value = featureVector.getSv().getData();
+			double scale = featureVector.getWeight();
+			for(int i = 0;i < size;i++){
+				int key = (baseIndex[i]+index) & filter;
+				score += segments[key >>> OffHeapWeightStorage.SEGMENT_SHIFT].get(key & OffHeapWeightStorage.SEGMENT_MASK) * value[i] * scale; 
+			}
+		}
 		return score;
 	}
 
-	public void extend() {
-		featureVectors.add(new VectorInfo(0, 1., new SparseVector(params.fvSize())));		
+	// same as dot(WeightVector) for weights not stored in a double array
+	private double dot(WeightStorage storage) {
+		double score = 0.;
+		int filter = params.fvSize() - 1;
+		for(VectorInfo featureVector:featureVectors){
+			if(featureVector.isFrozen()){
+				score += featureVector.getFrozen().dot(storage, featureVector.getKey(), filter) * featureVector.getWeight();
+				continue;
+			}
+			int size = featureVector.getSv().getUsed();
+			int index = featureVector.getKey();
+			int[] baseIndex = featureVector.getSv().getIndex();
+			double[] value = featureVector.getSv().getData();
+			double scale = featureVector.getWeight();
+			for(int i = 0;i < size;i++){
+				score += storage.get((baseIndex[i]+index) & filter) * value[i] * scale; 
+			}
+		}
+		return score;
 	}
 
 	public List<VectorInfo> getFeatureVectors() {
@@ -153,7 +292,10 @@ public class SparseFeatureVector {
 	public double getNorm(){
 		double sum = 0.;
 		for(VectorInfo featureVector:featureVectors){
-			if(featureVector.getSv().getUsed() > 0){
+			if(featureVector.isFrozen()){
+				double weight = featureVector.getWeight();
+				sum += featureVector.getFrozen().getSquaredNorm() * weight * weight;
+			}else if(featureVector.getSv().getUsed() > 0){
 				double localSum = 0.;
 				for(double d:featureVector.getSv().getData()){
 					localSum += d * d;
@@ -194,7 +336,7 @@ public class SparseFeatureVector {
 	public int size() {
 		int size = 0;
 		for(VectorInfo featureVector:featureVectors){
-			size += featureVector.getSv().getUsed();
+			size += featureVector.size();
 		}
 		return size;
 	}
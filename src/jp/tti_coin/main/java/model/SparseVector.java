@@ -0,0 +1,40 @@
+package model;
+
+import java.util.Arrays;
+
+// sparse vector with sorted unique indices, not modified once it is built.
+// SparseAccumulator builds these from entries in any order.
+public class SparseVector {
+	private static final int[] NO_INDEX = new int[0];
+	private static final double[] NO_DATA = new double[0];
+	private final int[] index;
+	private final double[] data;
+
+	public SparseVector() {
+		this(NO_INDEX, NO_DATA);
+	}
+
+	// index must be sorted in ascending order without duplicates
+	public SparseVector(int[] index, double[] data) {
+		assert index.length == data.length;
+		this.index = index;
+		this.data = data;
+	}
+
+	public int getUsed() {
+		return index.length;
+	}
+
+	public int[] getIndex() {
+		return index;
+	}
+
+	public double[] getData() {
+		return data;
+	}
+
+	public double get(int key) {
+		int i = Arrays.binarySearch(index, key);
+		return i >= 0 ? data[i] : 0.;
+	}
+}
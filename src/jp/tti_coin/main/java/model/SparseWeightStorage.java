@@ -0,0 +1,139 @@
+package model;
+
+import java.util.Arrays;
+
+// open addressing hash table from keys to values for large hash spaces with few non-default values.
+// not safe for concurrent writes.
+public class SparseWeightStorage extends WeightStorage {
+	private static final int EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	private final int size;
+	private int[] keys;
+	private double[] values;
+	private int used;
+	// value of the keys not in the table
+	private double defaultValue;
+
+	public SparseWeightStorage(int size) {
+		this.size = size;
+		clear(0.);
+	}
+
+	private void clear(double defaultValue) {
+		this.keys = new int[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+		this.values = new double[INITIAL_CAPACITY];
+		this.used = 0;
+		this.defaultValue = defaultValue;
+	}
+
+	private static int slot(int key, int mask) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	// slot of the key, or the empty slot where the key should be inserted
+	private int find(int key) {
+		int mask = keys.length - 1;
+		int slot = slot(key, mask);
+		while(keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new int[oldKeys.length << 1];
+		Arrays.fill(keys, EMPTY);
+		values = new double[oldKeys.length << 1];
+		for(int i = 0;i < oldKeys.length;i++){
+			if(oldKeys[i] != EMPTY){
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int key) {
+		assert key >= 0 && key < size;
+		int slot = find(key);
+		return keys[slot] == EMPTY ? defaultValue : values[slot];
+	}
+
+	@Override
+	public void set(int key, double value) {
+		assert key >= 0 && key < size;
+		int slot = find(key);
+		if(keys[slot] == EMPTY){
+			if(value == defaultValue){
+				return;
+			}
+			keys[slot] = key;
+			used++;
+			if(used * 2 > keys.length){
+				values[slot] = value;
+				rehash();
+				return;
+			}
+		}
+		values[slot] = value;
+	}
+
+	@Override
+	public void add(int key, double value) {
+		if(value == 0.){
+			return;
+		}
+		set(key, get(key) + value);
+	}
+
+	@Override
+	public void fill(double value) {
+		clear(value);
+	}
+
+	@Override
+	public void scale(double d) {
+		defaultValue *= d;
+		for(int i = 0;i < keys.length;i++){
+			if(keys[i] != EMPTY){
+				if(Math.abs(values[i]) >= Double.MIN_VALUE){
+					values[i] *= d;
+				}else{
+					values[i] = 0.;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void addTo(WeightStorage target, double w) {
+		if(defaultValue != 0.){
+			super.addTo(target, w);
+			return;
+		}
+		for(int i = 0;i < keys.length;i++){
+			if(keys[i] != EMPTY && values[i] != 0.){
+				target.add(keys[i], values[i] * w);
+			}
+		}
+	}
+
+	public int getUsed() {
+		return used;
+	}
+
+	@Override
+	public long getMemory() {
+		return (long)keys.length * 12;
+	}
+}
@@ -1,78 +1,150 @@
 package model;
 
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
-import org.ardverk.collection.PatriciaTrie;
-import org.ardverk.collection.StringKeyAnalyzer;
+import utils.HashToInt;
 
 import config.Parameters;
 
+// String keys are kept as combinable hashes (see HashToInt) in parallel primitive arrays,
+// so that header prefixes can be added without building the concatenated strings.
 public class StringSparseVector {
-	protected Map<String, Double> vector;
+	private static final int INITIAL_CAPACITY = 8;
 	protected Parameters params;
-	
+	protected int[] hashes;
+	protected int[] shifts;
+	protected double[] values;
+	protected int size;
+	// open addressing table of entry index + 1 (0: empty)
+	protected int[] table;
+
 	public StringSparseVector(Parameters params) {
 		this.params = params;
-		this.vector = new PatriciaTrie<String, Double>(StringKeyAnalyzer.CHAR);
+		this.size = 0;
 	}
-	
+
 	public StringSparseVector(StringSparseVector vector) {
 		this.params = vector.params;
-		this.vector = new PatriciaTrie<String, Double>(StringKeyAnalyzer.CHAR);
-		this.vector.putAll(vector.vector);
+		this.size = vector.size;
+		if(vector.hashes != null){
+			this.hashes = Arrays.copyOf(vector.hashes, vector.hashes.length);
+			this.shifts = Arrays.copyOf(vector.shifts, vector.shifts.length);
+			this.values = Arrays.copyOf(vector.values, vector.values.length);
+			this.table = Arrays.copyOf(vector.table, vector.table.length);
+		}
 	}
-	
-	public void add(String key, double value){
-		if(vector.containsKey(key)){
-			vector.put(key, vector.get(key)+value);
-		}else{
-			vector.put(key, value);
+
+	private static int slot(int hash, int shift, int mask){
+		int h = hash * 0x9E3779B1 + shift;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void grow(){
+		if(hashes == null){
+			hashes = new int[INITIAL_CAPACITY];
+			shifts = new int[INITIAL_CAPACITY];
+			values = new double[INITIAL_CAPACITY];
+			table = new int[INITIAL_CAPACITY * 2];
+			return;
+		}
+		int capacity = hashes.length * 2;
+		hashes = Arrays.copyOf(hashes, capacity);
+		shifts = Arrays.copyOf(shifts, capacity);
+		values = Arrays.copyOf(values, capacity);
+		table = new int[capacity * 2];
+		int mask = table.length - 1;
+		for(int i = 0;i < size;i++){
+			int s = slot(hashes[i], shifts[i], mask);
+			while(table[s] != 0){
+				s = (s + 1) & mask;
+			}
+			table[s] = i + 1;
 		}
 	}
 
+	public void add(int hash, int shift, double value){
+		if(hashes == null || size == hashes.length){
+			grow();
+		}
+		int mask = table.length - 1;
+		int s = slot(hash, shift, mask);
+		while(table[s] != 0){
+			int i = table[s] - 1;
+			if(hashes[i] == hash && shifts[i] == shift){
+				values[i] += value;
+				return;
+			}
+			s = (s + 1) & mask;
+		}
+		hashes[size] = hash;
+		shifts[size] = shift;
+		values[size] = value;
+		table[s] = ++size;
+	}
+
+	public void add(long code, double value){
+		add(HashToInt.getHash(code), HashToInt.getShift(code), value);
+	}
+
+	public void add(String key, double value){
+		add(HashToInt.hash(key), HashToInt.shift(key), value);
+	}
+
 	public void add(StringSparseVector additionalVector) {
 		add(additionalVector, 1.);
 	}
 
 	public void add(StringSparseVector additionalVector, double weight) {
-		for(Map.Entry<String, Double> entry:additionalVector.getFv().entrySet()){
-			if(vector.containsKey(entry.getKey())){
-				double val = vector.get(entry.getKey())+weight*entry.getValue();
-				if(Math.abs(val) < Double.MIN_VALUE){
-					vector.remove(entry.getKey());
-				}else{
-					vector.put(entry.getKey(), val);
-				}
-			}else{
-				vector.put(entry.getKey(), weight*entry.getValue());
-			}
+		for(int i = 0;i < additionalVector.size;i++){
+			add(additionalVector.hashes[i], additionalVector.shifts[i], weight*additionalVector.values[i]);
 		}
 	}
-	
+
 	public void add(StringSparseVector vector, String header) {
-		for(Entry<String, Double> entry:vector.vector.entrySet()){
-			add(header.concat(entry.getKey()), entry.getValue());
-		}		
+		add(vector, HashToInt.code(header));
+	}
+
+	public void add(StringSparseVector vector, long header) {
+		int headerHash = HashToInt.getHash(header);
+		int headerShift = HashToInt.getShift(header);
+		for(int i = 0;i < vector.size;i++){
+			add(HashToInt.concat(headerHash, vector.hashes[i], vector.shifts[i]), headerShift * vector.shifts[i], vector.values[i]);
+		}
+	}
+
+	public void clear() {
+		if(size == 0){
+			return;
+		}
+		Arrays.fill(table, 0);
+		size = 0;
 	}
 
-	public Map<String, Double> getFv() {
-		return vector;
+	public int getHash(int i) {
+		return hashes[i];
 	}
-	
+
+	public int getShift(int i) {
+		return shifts[i];
+	}
+
+	public double getValue(int i) {
+		return values[i];
+	}
+
 	public double getNorm(){
 		double sum = 0.;
-		for(Map.Entry<String, Double> entry:vector.entrySet()){
-			sum += entry.getValue() * entry.getValue();
+		for(int i = 0;i < size;i++){
+			sum += values[i] * values[i];
 		}
 		sum = Math.sqrt(sum);
 		return sum;
 	}
 
 	public void mult(double f) {
-		for(Map.Entry<String, Double> entry:vector.entrySet()){
-			entry.setValue(entry.getValue() * f);
-		}	
+		for(int i = 0;i < size;i++){
+			values[i] *= f;
+		}
 	}
 
 	public StringSparseVector normalize() {
@@ -80,22 +152,15 @@ public class StringSparseVector {
 	}
 
 	public StringSparseVector normalize(double f) {
-		double sum = 0.;
-		for(Map.Entry<String, Double> entry:vector.entrySet()){
-			sum += entry.getValue() * entry.getValue();
-		}
-		sum = Math.sqrt(sum);
+		double sum = getNorm();
 		if(Math.abs(sum) < Double.MIN_VALUE){
 			return this;
 		}
-		double isum = f / sum;
-		for(Map.Entry<String, Double> entry:vector.entrySet()){
-			entry.setValue(entry.getValue() * isum);
-		}	
+		mult(f / sum);
 		return this;
 	}
 
 	public int size() {
-		return getFv().size();
+		return size;
 	}
 }
@@ -1,20 +1,33 @@
 package model;
 
-import no.uib.cipr.matrix.sparse.SparseVector;
-
 public class VectorInfo{
 	private int key;
 	private double weight;
 	private SparseVector sv;
+	// set instead of sv for frozen vectors
+	private FrozenVector frozen;
 	public VectorInfo(int key, double weight, SparseVector sv) {
 		this.key = key;
 		this.weight = weight;
 		this.sv = sv;
 	}
+	public VectorInfo(int key, double weight, FrozenVector frozen) {
+		this.key = key;
+		this.weight = weight;
+		this.frozen = frozen;
+	}
+	// same vector with another key and weight
+	public VectorInfo(VectorInfo info, int key, double weight) {
+		this.key = key;
+		this.weight = weight;
+		this.sv = info.sv;
+		this.frozen = info.frozen;
+	}
 	public VectorInfo(VectorInfo info) {
 		this.key = info.key;
 		this.weight = info.weight;
 		this.sv = info.sv;
+		this.frozen = info.frozen;
 	}
 	
 	public int getKey() {
@@ -24,8 +37,18 @@ public class VectorInfo{
 		return weight;
 	}
 	public SparseVector getSv() {
+		assert frozen == null;
 		return sv;
 	}
+	public boolean isFrozen() {
+		return frozen != null;
+	}
+	public FrozenVector getFrozen() {
+		return frozen;
+	}
+	public int size() {
+		return frozen != null ? frozen.size() : sv.getUsed();
+	}
 	public void setKey(int key) {
 		this.key = key;
 	}
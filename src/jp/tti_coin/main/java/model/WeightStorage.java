@@ -0,0 +1,71 @@
+package model;
+
+import config.Parameters;
+
+// values of a weight vector
+public abstract class WeightStorage {
+	public static WeightStorage create(Parameters params, int size) {
+		if(params.useFloatWeights()){
+			return new FloatWeightStorage(size);
+		}else if(params.useSparseWeights()){
+			return new SparseWeightStorage(size);
+		}else if(params.useOffHeapWeights()){
+			return new OffHeapWeightStorage(size, params.getWeightStorage() == 4);
+		}
+		return new DenseWeightStorage(size);
+	}
+
+	public abstract int size();
+
+	public abstract double get(int key);
+
+	public abstract void set(int key, double value);
+
+	public void add(int key, double value) {
+		set(key, get(key) + value);
+	}
+
+	public void fill(double value) {
+		int size = size();
+		for(int i = 0;i < size;i++){
+			set(i, value);
+		}
+	}
+
+	public void scale(double d) {
+		int size = size();
+		for(int i = 0;i < size;i++){
+			double value = get(i);
+			if(Math.abs(value) >= Double.MIN_VALUE){
+				set(i, value * d);
+			}else if(value != 0.){
+				set(i, 0.);
+			}
+		}
+	}
+
+	// adds the values multiplied by w to target
+	public void addTo(WeightStorage target, double w) {
+		assert target.size() == size();
+		int size = size();
+		for(int i = 0;i < size;i++){
+			double value = get(i);
+			if(value != 0.){
+				target.add(i, value * w);
+			}
+		}
+	}
+
+	// read-only storages are copied to a writable storage before they are modified
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	// approximate size of the values on the heap in bytes
+	public abstract long getMemory();
+
+	// latest version of the vectors the values are read from (0 if the values are stored here)
+	public long getVersion() {
+		return 0;
+	}
+}
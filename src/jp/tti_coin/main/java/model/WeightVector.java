@@ -3,46 +3,95 @@ package model;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
 
 import config.Parameters;
 
+// per-index writes (add(int, double), set) do not change the version,
+// so writers call touch() after a batch of writes.
+// the values are the stored values times a scalar factor, so that scale() does not
+// pass over the whole vector and an update touches only the indices it changes.
 public class WeightVector{
+	private static final AtomicLong VERSIONS = new AtomicLong();
+	private static final int BLOCK_SIZE = 1 << 13;
+	// the factor is folded into the stored values when it leaves this range
+	private static final double MIN_FACTOR = 1e-100, MAX_FACTOR = 1e100;
 	private Parameters params;
-	private double[] values;
+	private volatile WeightStorage storage;
+	private volatile double factor = 1.;
+	// changes whenever the values change, so that scores computed with the older values can be detected
+	private volatile long version;
 	public WeightVector(Parameters params){
 		this.params = params;
-		int dim = this.params.fvSize();
-		values = new double[dim];
-		Arrays.fill(values, 0.);
+		this.storage = WeightStorage.create(params, params.fvSize());
+		touch();
+	}
+
+	public WeightVector(Parameters params, WeightStorage storage){
+		this.params = params;
+		this.storage = storage;
+		touch();
 	}
 
 	public WeightVector(WeightVector weight){
-		values = new double[weight.values.length];
-		Arrays.fill(values, 0.);
+		this.params = weight.params;
+		this.storage = WeightStorage.create(params, weight.size());
 		add(weight);
 	}
-	
+
+	// read-only storages are replaced by a writable copy on the first write
+	private WeightStorage writable() {
+		WeightStorage storage = this.storage;
+		if(!storage.isReadOnly()){
+			return storage;
+		}
+		synchronized(this){
+			if(this.storage.isReadOnly()){
+				WeightStorage copy = WeightStorage.create(params, this.storage.size());
+				this.storage.addTo(copy, 1.);
+				this.storage = copy;
+			}
+			return this.storage;
+		}
+	}
+
 	public void add(int key, double w) {
-		assert key >= 0 && key < values.length;
-		values[key] += w;
+		assert key >= 0 && key < size();
+		writable().add(key, w / factor);
 	}
-	
+
 
 	public void set(int key, double w) {
-		assert key >= 0 && key < values.length;
-		values[key] = w;
+		assert key >= 0 && key < size();
+		writable().set(key, w / factor);
+	}
+
+	public double getValue(int key) {
+		return storage.get(key) * factor;
+	}
+
+	public int size() {
+		return storage.size();
 	}
-	
+
 	public void save(BufferedWriter writer) {
 		try {
-			writer.write(String.valueOf(values.length));
-			for(int i = 0;i < values.length;i++){
-				if(Math.abs(values[i]) > Double.MIN_VALUE){
+			WeightStorage storage = this.storage;
+			double factor = this.factor;
+			int size = storage.size();
+			writer.write(String.valueOf(size));
+			for(int i = 0;i < size;i++){
+				double value = storage.get(i) * factor;
+				if(Math.abs(value) > Double.MIN_VALUE){
 					writer.write(" ");
 					writer.write(String.valueOf(i));
 					writer.write(":");
-					writer.write(String.valueOf(values[i]));
+					writer.write(String.valueOf(value));
 				}
 			}
 			writer.write("\n");
@@ -54,45 +103,114 @@ public class WeightVector{
 		try {
 			String line = reader.readLine().trim();
 			String[] entries = line.split(" ");
-			assert Integer.parseInt(entries[0]) == values.length; 
-			Arrays.fill(values, 0.f);
+			assert Integer.parseInt(entries[0]) == size();
+			WeightStorage storage = WeightStorage.create(params, size());
 			for(int i = 1;i < entries.length;i++){
 				String[] weight = entries[i].split(":");
-				assert Integer.parseInt(weight[0]) < values.length;
-				values[Integer.parseInt(weight[0])] = Float.parseFloat(weight[1]);
+				assert Integer.parseInt(weight[0]) < storage.size();
+				storage.set(Integer.parseInt(weight[0]), Double.parseDouble(weight[1]));
 			}
+			this.storage = storage;
+			this.factor = 1.;
+			touch();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	// writes the values as raw little-endian doubles
+	public void save(WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE * 8).order(ByteOrder.LITTLE_ENDIAN);
+		DoubleBuffer block = buffer.asDoubleBuffer();
+		WeightStorage storage = this.storage;
+		double factor = this.factor;
+		double[] values = storage instanceof DenseWeightStorage && factor == 1. ? ((DenseWeightStorage)storage).getArray() : null;
+		int size = storage.size();
+		for(int i = 0;i < size;i += BLOCK_SIZE){
+			int length = Math.min(BLOCK_SIZE, size - i);
+			block.clear();
+			if(values != null){
+				block.put(values, i, length);
+			}else{
+				for(int j = i;j < i + length;j++){
+					block.put(storage.get(j) * factor);
+				}
+			}
+			buffer.position(0).limit(length * 8);
+			while(buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+		}
+	}
+
+	// maps size little-endian doubles from position without reading them
+	public void load(FileChannel channel, long position, int size) throws IOException {
+		assert size == size();
+		this.storage = new MappedWeightStorage(channel, position, size);
+		this.factor = 1.;
+		touch();
+	}
+
+	// replaces the values by read-only 8 or 16 bit values
+	public void quantize(int bits) {
+		this.storage = new QuantizedWeightStorage(storage, bits);
+		touch();
+	}
+
+	public WeightStorage getStorage() {
+		return storage;
+	}
+
+	// the stored values if they are in a double array, null otherwise.
+	// the values are these times getFactor().
+	public double[] getArray() {
+		WeightStorage storage = this.storage;
+		if(storage instanceof DenseWeightStorage){
+			return ((DenseWeightStorage)storage).getArray();
+		}
+		return null;
+	}
+
+	public double getFactor() {
+		return factor;
+	}
+
+	public long getMemory() {
+		return storage.getMemory();
+	}
+
 	public void add(WeightVector dv) {
 		add(1., dv);
 	}
-	
+
 	public void add(double w, WeightVector weight) {
-		assert values.length == weight.values.length;
+		assert size() == weight.size();
 		assert Math.abs(w) >= Double.MIN_VALUE;
-		for(int i = 0;i < values.length;i++){
-			values[i] += weight.values[i] * w;
-		}
+		weight.storage.addTo(writable(), w * weight.factor / factor);
+		touch();
 	}
 
 	public void scale(double d) {
-		for(int i = 0;i < values.length;i++){
-			if(Math.abs(values[i]) >= Double.MIN_VALUE){
-				values[i] *= d;
-			}else{
-				values[i] = 0.f;
-			}
+		double factor = this.factor * d;
+		if(d == 0. || Math.abs(factor) < MIN_FACTOR || Math.abs(factor) > MAX_FACTOR){
+			writable().scale(factor);
+			factor = 1.;
 		}
+		this.factor = factor;
+		touch();
 	}
 
-	public double[] get() {
-		return values;
+	public void fill(double d) {
+		writable().fill(d);
+		factor = 1.;
+		touch();
 	}
 
-	public void fill(double d) {
-		Arrays.fill(values, 1.0);		
+	public void touch() {
+		version = VERSIONS.incrementAndGet();
+	}
+
+	public long getVersion() {
+		return Math.max(version, storage.getVersion());
 	}
-}
\ No newline at end of file
+}
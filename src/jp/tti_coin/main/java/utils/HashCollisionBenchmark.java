@@ -0,0 +1,120 @@
+package utils;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import config.Parameters;
+
+// checks that streamed codes are identical to the codes of the concatenated strings
+// and compares the collision rates of the streamed and the murmur3 string mappings
+public class HashCollisionBenchmark {
+	private static final String[] HEADERS = {"WORD", "WORDPAIR", "PATH", "PARA-E1", "PARA-E2", "SEQ", "RSEQ", "TRIANGLE", "PROJ"};
+	private static final String[] POSITIONS = {"B-", "I-", "L-", "U-"};
+
+	private static String randomToken(MersenneTwister random){
+		int length = 1 + random.nextInt(10);
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0;i < length;i++){
+			if(random.nextInt(20) == 0){
+				sb.append((char)(0x3041 + random.nextInt(0x56)));
+			}else{
+				sb.append((char)('a' + random.nextInt(26)));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String[] vocabulary(MersenneTwister random, int size, String prefix){
+		Set<String> tokens = new HashSet<String>();
+		while(tokens.size() < size){
+			tokens.add(prefix+randomToken(random));
+		}
+		return tokens.toArray(new String[size]);
+	}
+
+	public static void main(String[] args){
+		if(args.length > 2){
+			System.err.println("Usage: java "+HashCollisionBenchmark.class.getName()+ " [#features] [fvBitSize]");
+			System.exit(-1);
+		}
+		int numFeatures = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Parameters params = new Parameters();
+		if(args.length > 1){
+			params.setFvBitSize(Integer.parseInt(args[1]));
+		}
+		HashToInt h2i = new HashToInt(params);
+		MersenneTwister random = new MersenneTwister(0);
+		String[] bases = vocabulary(random, 20000, "");
+		String[] poses = vocabulary(random, 50, "POS");
+		String[] labels = new String[40];
+		for(int i = 0;i < labels.length;i++){
+			labels[i] = i == 0 ? "O" : POSITIONS[i % POSITIONS.length]+"TYPE"+i;
+		}
+
+		Set<String> features = new HashSet<String>();
+		BitSet stringIndices = new BitSet(params.fvSize());
+		BitSet codeIndices = new BitSet(params.fvSize());
+		int mismatches = 0;
+		long stringTime = 0, codeTime = 0;
+		while(features.size() < numFeatures){
+			int length = 2 + random.nextInt(4);
+			String[] parts = new String[length];
+			long[] codes = new long[length];
+			parts[0] = HEADERS[random.nextInt(HEADERS.length)];
+			for(int i = 1;i < length;i++){
+				switch(random.nextInt(3)){
+				case 0:
+					parts[i] = labels[random.nextInt(labels.length)];
+					break;
+				case 1:
+					parts[i] = bases[random.nextInt(bases.length)];
+					break;
+				default:
+					parts[i] = poses[random.nextInt(poses.length)];
+					break;
+				}
+			}
+			for(int i = 0;i < length;i++){
+				codes[i] = HashToInt.code(parts[i]);
+			}
+
+			long start = System.nanoTime();
+			String feature = parts[0];
+			for(int i = 1;i < length;i++){
+				feature = feature.concat(parts[i]);
+			}
+			int stringIndex = h2i.mapToInt(feature);
+			stringTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			long code = codes[0];
+			for(int i = 1;i < length;i++){
+				code = HashToInt.concat(code, codes[i]);
+			}
+			int codeIndex = h2i.mapToInt(code);
+			codeTime += System.nanoTime() - start;
+
+			if(code != HashToInt.code(feature)){
+				mismatches++;
+			}
+			if(features.add(feature)){
+				stringIndices.set(stringIndex);
+				codeIndices.set(codeIndex);
+			}
+		}
+		// expected rate for a uniform hash: 1 - m(1 - (1 - 1/m)^n) / n
+		double m = params.fvSize();
+		double expected = 1. - m * (1. - Math.pow(1. - 1. / m, numFeatures)) / numFeatures;
+		System.out.println("features: "+numFeatures+", fvSize: "+params.fvSize());
+		System.out.println("code mismatches: "+mismatches);
+		System.out.format("collision rate (murmur3 string): %.6f%n", 1. - (double)stringIndices.cardinality() / numFeatures);
+		System.out.format("collision rate (streamed code) : %.6f%n", 1. - (double)codeIndices.cardinality() / numFeatures);
+		System.out.format("collision rate (uniform)       : %.6f%n", expected);
+		System.out.format("time (murmur3 string): %.1f ms%n", stringTime / 1.e6);
+		System.out.format("time (streamed code) : %.1f ms%n", codeTime / 1.e6);
+		if(mismatches > 0){
+			System.exit(-1);
+		}
+	}
+}
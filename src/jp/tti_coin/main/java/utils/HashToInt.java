@@ -10,16 +10,87 @@ import config.Parameters;
 public class HashToInt {
 	private final HashFunction murmur3;
 	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int PRIME = 0x01000193;
 	private final int filter;
-	
+
 	public HashToInt(Parameters params){
 		this.murmur3 = Hashing.murmur3_32();
 		this.filter = params.fvSize() - 1;
 	}
-	
+
 	public int mapToInt(String key){
 		return murmur3.hashString(key, UTF8).asInt() & filter;
 	}
-	
 
+	// polynomial hash, hash(a+b) == concat(hash(a), hash(b), shift(b))
+	public static int hash(String key){
+		int hash = 0;
+		for(int i = 0;i < key.length();i++){
+			hash = hash * PRIME + key.charAt(i);
+		}
+		return hash;
+	}
+
+	public static int shift(String key){
+		int shift = 1;
+		int base = PRIME;
+		for(int n = key.length();n > 0;n >>>= 1){
+			if((n & 1) != 0){
+				shift *= base;
+			}
+			base *= base;
+		}
+		return shift;
+	}
+
+	public static int concat(int prefixHash, int hash, int shift){
+		return prefixHash * shift + hash;
+	}
+
+	// streaming API: a code packs hash (upper 32 bits) and shift (lower 32 bits) of a string
+	public static long code(String key){
+		return code(hash(key), shift(key));
+	}
+
+	public static long code(int hash, int shift){
+		return ((long)hash << 32) | (shift & 0xFFFFFFFFL);
+	}
+
+	public static int getHash(long code){
+		return (int)(code >>> 32);
+	}
+
+	public static int getShift(long code){
+		return (int)code;
+	}
+
+	public static long concat(long code1, long code2){
+		return code(concat(getHash(code1), getHash(code2), getShift(code2)), getShift(code1) * getShift(code2));
+	}
+
+	public static long concat(long code1, long code2, long code3){
+		return concat(concat(code1, code2), code3);
+	}
+
+	public static long concat(long code1, long code2, long code3, long code4){
+		return concat(concat(concat(code1, code2), code3), code4);
+	}
+
+	public static long concat(long code1, long code2, long code3, long code4, long code5){
+		return concat(concat(concat(concat(code1, code2), code3), code4), code5);
+	}
+
+	public int mapToInt(long code){
+		return mapHashToInt(getHash(code));
+	}
+
+	public int mapHashToInt(int hash){
+		// murmur3 finalizer
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash & filter;
+	}
 }
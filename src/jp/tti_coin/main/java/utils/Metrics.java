@@ -0,0 +1,332 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+
+// process-wide counters, timers and histograms.
+// nothing is recorded unless the metrics are enabled (useMetrics), so the instrumented code only pays for a flag check.
+// the values are cumulative; they can be appended to a JSON (one object per line) or CSV file,
+// and read through JMX as the attributes of jointER:type=Metrics.
+public class Metrics {
+	private static final String MBEAN_NAME = "jointER:type=Metrics";
+	private static final String[] FIELDS = {"count", "sum", "mean", "min", "max", "p50", "p90", "p99"};
+	private static volatile boolean enabled = false;
+	private static boolean registered = false;
+	private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+	// files already written by this process, the later dumps are appended to them
+	private static final Set<String> dumpedFiles = new HashSet<String>();
+
+	private Metrics() {}
+
+	private interface Metric {
+		String getType();
+		// values in the order of FIELDS (only count for counters)
+		double[] getValues();
+		void reset();
+	}
+
+	public static class Counter implements Metric {
+		private final AtomicLong count = new AtomicLong();
+
+		public void increment() {
+			if(enabled){
+				count.incrementAndGet();
+			}
+		}
+		public void add(long n) {
+			if(enabled){
+				count.addAndGet(n);
+			}
+		}
+		public long get() {
+			return count.get();
+		}
+		public String getType() {
+			return "counter";
+		}
+		public double[] getValues() {
+			return new double[]{count.get()};
+		}
+		public void reset() {
+			count.set(0);
+		}
+	}
+
+	// distribution of non-negative values in power-of-two buckets,
+	// the percentiles are the upper bounds of the buckets
+	public static class Histogram implements Metric {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+		private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+		public void record(long value) {
+			if(!enabled){
+				return;
+			}
+			if(value < 0){
+				value = 0;
+			}
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			for(long current = min.get();value < current && !min.compareAndSet(current, value);current = min.get());
+			for(long current = max.get();value > current && !max.compareAndSet(current, value);current = max.get());
+		}
+		public long getCount() {
+			return count.get();
+		}
+		public long getSum() {
+			return sum.get();
+		}
+		public long getPercentile(double p) {
+			long n = count.get();
+			if(n == 0){
+				return 0;
+			}
+			long rank = (long)Math.ceil(p * n);
+			long seen = 0;
+			for(int i = 0;i < 64;i++){
+				seen += buckets.get(i);
+				if(seen >= rank){
+					return Math.min((1L << i) - 1, max.get());
+				}
+			}
+			return max.get();
+		}
+		public String getType() {
+			return "histogram";
+		}
+		public double[] getValues() {
+			long n = count.get();
+			if(n == 0){
+				return new double[]{0, 0, 0, 0, 0, 0, 0, 0};
+			}
+			return new double[]{n, sum.get(), (double)sum.get() / n, min.get(), max.get(), getPercentile(0.5), getPercentile(0.9), getPercentile(0.99)};
+		}
+		public void reset() {
+			count.set(0);
+			sum.set(0);
+			min.set(Long.MAX_VALUE);
+			max.set(Long.MIN_VALUE);
+			for(int i = 0;i < 64;i++){
+				buckets.set(i, 0);
+			}
+		}
+	}
+
+	// histogram of elapsed times in nanoseconds:
+	// long start = Metrics.start(); ... TIMER.stop(start);
+	public static class Timer extends Histogram {
+		public void stop(long start) {
+			if(start != 0){
+				record(System.nanoTime() - start);
+			}
+		}
+		@Override
+		public String getType() {
+			return "timer";
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static synchronized void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+		if(enabled && !registered){
+			registered = true;
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName(MBEAN_NAME));
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// start time for Timer.stop (0 if the metrics are disabled)
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	private static Metric register(String name, Metric metric) {
+		Metric registered = metrics.putIfAbsent(name, metric);
+		if(registered == null){
+			return metric;
+		}
+		assert registered.getClass() == metric.getClass() : name+" is already registered as a "+registered.getType();
+		return registered;
+	}
+
+	public static Counter counter(String name) {
+		return (Counter)register(name, new Counter());
+	}
+
+	public static Histogram histogram(String name) {
+		return (Histogram)register(name, new Histogram());
+	}
+
+	public static Timer timer(String name) {
+		return (Timer)register(name, new Timer());
+	}
+
+	public static void reset() {
+		for(Metric metric:metrics.values()){
+			metric.reset();
+		}
+	}
+
+	private static Map<String, Metric> getMetrics() {
+		return new TreeMap<String, Metric>(metrics);
+	}
+
+	private static String format(double value) {
+		if(value == Math.rint(value) && Math.abs(value) < 1e15){
+			return String.valueOf((long)value);
+		}
+		return String.valueOf(value);
+	}
+
+	// appends the current values to filename as a JSON object (a CSV row for each metric if filename ends with .csv).
+	// the file is overwritten by the first dump of the process.
+	public static synchronized void dump(String filename, int iteration) {
+		boolean append = !dumpedFiles.add(filename);
+		boolean csv = filename.endsWith(".csv");
+		try {
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(filename), append), Charset.forName("UTF-8")));
+			long time = System.currentTimeMillis();
+			if(csv){
+				if(!append){
+					writer.write("iteration,time,name,type");
+					for(String field:FIELDS){
+						writer.write(","+field);
+					}
+					writer.write("\n");
+				}
+				for(Map.Entry<String, Metric> entry:getMetrics().entrySet()){
+					writer.write(iteration+","+time+","+entry.getKey()+","+entry.getValue().getType());
+					double[] values = entry.getValue().getValues();
+					for(int i = 0;i < FIELDS.length;i++){
+						writer.write(",");
+						if(i < values.length){
+							writer.write(format(values[i]));
+						}
+					}
+					writer.write("\n");
+				}
+			}else{
+				writer.write("{\"iteration\":"+iteration+",\"time\":"+time+",\"metrics\":{");
+				boolean first = true;
+				for(Map.Entry<String, Metric> entry:getMetrics().entrySet()){
+					if(!first){
+						writer.write(",");
+					}
+					first = false;
+					writer.write("\""+entry.getKey()+"\":{\"type\":\""+entry.getValue().getType()+"\"");
+					double[] values = entry.getValue().getValues();
+					for(int i = 0;i < values.length;i++){
+						writer.write(",\""+FIELDS[i]+"\":"+format(values[i]));
+					}
+					writer.write("}");
+				}
+				writer.write("}}\n");
+			}
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// exposes each value as an attribute named <metric>.<field>, e.g., inference.expand.mean
+	private static class MetricsMBean implements DynamicMBean {
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			int separator = attribute.lastIndexOf('.');
+			if(separator > 0){
+				Metric metric = metrics.get(attribute.substring(0, separator));
+				String field = attribute.substring(separator + 1);
+				if(metric != null){
+					double[] values = metric.getValues();
+					for(int i = 0;i < values.length;i++){
+						if(FIELDS[i].equals(field)){
+							return values[i];
+						}
+					}
+				}
+			}
+			throw new AttributeNotFoundException(attribute);
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			AttributeList list = new AttributeList();
+			for(String attribute:attributes){
+				try {
+					list.add(new Attribute(attribute, getAttribute(attribute)));
+				} catch (AttributeNotFoundException e) {
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException(attribute.getName()+" is read-only.");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			if(actionName.equals("reset")){
+				reset();
+				return null;
+			}
+			throw new UnsupportedOperationException(actionName);
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attributes = new Vector<MBeanAttributeInfo>();
+			for(Map.Entry<String, Metric> entry:getMetrics().entrySet()){
+				int numValues = entry.getValue().getValues().length;
+				for(int i = 0;i < numValues;i++){
+					attributes.add(new MBeanAttributeInfo(entry.getKey()+"."+FIELDS[i], "double", entry.getValue().getType()+" "+FIELDS[i], true, false, false));
+				}
+			}
+			MBeanOperationInfo[] operations = {new MBeanOperationInfo("reset", "Resets all the metrics.", null, "void", MBeanOperationInfo.ACTION)};
+			return new MBeanInfo(Metrics.class.getName(), "Counters, timers (nanoseconds) and histograms of jointER.",
+					attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, operations, null);
+		}
+	}
+}
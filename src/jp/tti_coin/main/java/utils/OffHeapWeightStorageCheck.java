@@ -0,0 +1,136 @@
+package utils;
+
+import java.util.Arrays;
+
+import model.DenseWeightStorage;
+import model.OffHeapWeightStorage;
+import model.SparseFeatureVector;
+import model.SparseVector;
+import model.VectorInfo;
+import model.WeightVector;
+import config.Parameters;
+
+// checks the off-heap weight storages (weightStorage 3 and 4) with a vector larger than the heap
+// (ant OffHeapWeightStorageCheck runs it with -Xmx256m and fvBitSize 27, a 1 GB vector).
+// add, scale, dot and addToWeight are applied to the off-heap vector and to a dense vector of
+// 2^WINDOW_BITS values, whose keys are spread over all the segments of the off-heap vector,
+// and the results must be identical.
+public class OffHeapWeightStorageCheck {
+	private static final int WINDOW_BITS = 16;
+	private static final int NUM_ROUNDS = 20;
+	private static final int NUM_ADDS = 10000;
+	private static final int NUM_VECTORS = 100;
+	private static final int NUM_FEATURES = 200;
+
+	private static int mismatches = 0;
+
+	private static void check(String name, double expected, double actual){
+		if(expected != actual && Math.abs(expected - actual) > 1e-12 * Math.max(1., Math.abs(expected))){
+			if(mismatches < 10){
+				System.err.println(name+": expected "+expected+", but "+actual);
+			}
+			mismatches++;
+		}
+	}
+
+	// feature vector of sorted random window keys, mapped to the off-heap keys if stride is not 1
+	private static SparseFeatureVector featureVector(Parameters params, int[] index, double[] data, int stride){
+		int[] keys = new int[index.length];
+		for(int i = 0;i < index.length;i++){
+			keys[i] = map(index[i], stride);
+		}
+		SparseFeatureVector fv = new SparseFeatureVector(params);
+		fv.getFeatureVectors().add(new VectorInfo(0, 1., new SparseVector(keys, data)));
+		return fv;
+	}
+
+	// the last key of each stride, so the last value of the vector is used
+	private static int map(int key, int stride){
+		return key * stride + stride - 1;
+	}
+
+	private static void run(Parameters params, boolean mapped){
+		Parameters window = new Parameters();
+		window.setFvBitSize(WINDOW_BITS);
+		int stride = params.fvSize() >>> WINDOW_BITS;
+		WeightVector expected = new WeightVector(window, new DenseWeightStorage(window.fvSize()));
+		WeightVector actual = new WeightVector(params, new OffHeapWeightStorage(params.fvSize(), mapped));
+		MersenneTwister random = new MersenneTwister(0);
+		for(int round = 0;round < NUM_ROUNDS;round++){
+			for(int i = 0;i < NUM_ADDS;i++){
+				int key = random.nextInt(window.fvSize());
+				double value = random.nextGaussian();
+				expected.add(key, value);
+				actual.add(map(key, stride), value);
+			}
+			for(int v = 0;v < NUM_VECTORS;v++){
+				int[] index = new int[NUM_FEATURES];
+				for(int i = 0;i < NUM_FEATURES;i++){
+					index[i] = random.nextInt(window.fvSize());
+				}
+				Arrays.sort(index);
+				int used = 1;
+				for(int i = 1;i < NUM_FEATURES;i++){
+					if(index[i] != index[used - 1]){
+						index[used++] = index[i];
+					}
+				}
+				index = Arrays.copyOf(index, used);
+				double[] data = new double[used];
+				for(int i = 0;i < used;i++){
+					data[i] = random.nextGaussian();
+				}
+				SparseFeatureVector expectedFv = featureVector(window, index, data, 1);
+				SparseFeatureVector actualFv = featureVector(params, index, data, stride);
+				if(v % 2 == 1){
+					expectedFv = expectedFv.freeze();
+					actualFv = actualFv.freeze();
+				}
+				check("dot", expectedFv.dot(expected), actualFv.dot(actual));
+				double w = random.nextGaussian();
+				expectedFv.addToWeight(w, expected);
+				actualFv.addToWeight(w, actual);
+			}
+			// the factor of the vectors, and the values themselves every few rounds
+			double d = 0.5 + random.nextDouble();
+			expected.scale(d);
+			actual.scale(d);
+			if(round % 5 == 4){
+				expected.getStorage().scale(d);
+				actual.getStorage().scale(d);
+			}
+		}
+		for(int key = 0;key < window.fvSize();key++){
+			check("value "+key, expected.getValue(key), actual.getValue(map(key, stride)));
+			if(stride > 1){
+				check("value "+key+" (not used)", 0., actual.getValue(map(key, stride) - 1));
+			}
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length > 1){
+			System.err.println("Usage: java "+OffHeapWeightStorageCheck.class.getName()+ " [fvBitSize]");
+			System.exit(-1);
+		}
+		Parameters params = new Parameters();
+		params.setFvBitSize(args.length == 1 ? Integer.parseInt(args[0]) : 27);
+		long vectorSize = params.fvSize() * 8L;
+		System.out.println("fvSize: "+params.fvSize()+" ("+(vectorSize >> 20)+" MB), max heap: "+(Runtime.getRuntime().maxMemory() >> 20)+" MB");
+		if(Runtime.getRuntime().maxMemory() >= vectorSize){
+			System.out.println("warning: the vector is not larger than the heap");
+		}
+		String[] names = {"off-heap direct", "off-heap mapped"};
+		for(int i = 0;i < names.length;i++){
+			int before = mismatches;
+			long start = System.nanoTime();
+			run(params, i == 1);
+			System.out.format("%-16s %s (%.1f s)%n", names[i], mismatches == before ? "ok" : (mismatches - before)+" mismatches", (System.nanoTime() - start) / 1.e9);
+			// release the buffers of the vector before the next one is allocated
+			System.gc();
+		}
+		if(mismatches > 0){
+			System.exit(1);
+		}
+	}
+}
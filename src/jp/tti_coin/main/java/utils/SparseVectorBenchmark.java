@@ -0,0 +1,124 @@
+package utils;
+
+import java.util.Arrays;
+
+import model.SparseAccumulator;
+import model.SparseVector;
+
+// compares compacting feature vectors with SparseAccumulator and with insertion into
+// a sorted array (binary search and shifting, as MTJ SparseVector.add), and checks that the results are identical
+public class SparseVectorBenchmark {
+	private static final int NUM_ROUNDS = 5;
+	private static final int NUM_VECTORS = 200;
+
+	// sorted insertion as in MTJ SparseVector
+	private static class SortedVector {
+		private int[] index = new int[0];
+		private double[] data = new double[0];
+		private int used = 0;
+
+		public void add(int key, double value) {
+			int i = Arrays.binarySearch(index, 0, used, key);
+			if(i >= 0){
+				data[i] += value;
+				return;
+			}
+			i = -(i + 1);
+			if(used == index.length){
+				int capacity = Math.max(1, index.length * 2);
+				index = Arrays.copyOf(index, capacity);
+				data = Arrays.copyOf(data, capacity);
+			}
+			System.arraycopy(index, i, index, i + 1, used - i);
+			System.arraycopy(data, i, data, i + 1, used - i);
+			index[i] = key;
+			data[i] = value;
+			used++;
+		}
+	}
+
+	// component vectors with sorted indices, added with random offsets as in SparseFeatureVector.add(vector, key)
+	private static int[][][] components(MersenneTwister random, int numComponents, int numFeatures, int filter){
+		int[][][] components = new int[NUM_VECTORS][numComponents][];
+		for(int v = 0;v < NUM_VECTORS;v++){
+			for(int c = 0;c < numComponents;c++){
+				int[] index = new int[numFeatures];
+				for(int i = 0;i < numFeatures;i++){
+					index[i] = random.nextInt(filter + 1);
+				}
+				Arrays.sort(index);
+				components[v][c] = index;
+			}
+		}
+		return components;
+	}
+
+	private static int[][] offsets(MersenneTwister random, int numComponents){
+		int[][] offsets = new int[NUM_VECTORS][numComponents];
+		for(int v = 0;v < NUM_VECTORS;v++){
+			for(int c = 0;c < numComponents;c++){
+				offsets[v][c] = random.nextInt();
+			}
+		}
+		return offsets;
+	}
+
+	private static void run(String name, int[][][] components, int[][] offsets, int filter){
+		long sortedTime = 0, accumulatorTime = 0, entries = 0;
+		int mismatches = 0;
+		for(int round = 0;round < NUM_ROUNDS;round++){
+			for(int v = 0;v < NUM_VECTORS;v++){
+				long start = System.nanoTime();
+				SortedVector sorted = new SortedVector();
+				for(int c = 0;c < components[v].length;c++){
+					for(int key:components[v][c]){
+						sorted.add((key + offsets[v][c]) & filter, 1.);
+					}
+				}
+				sortedTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				SparseAccumulator accumulator = SparseAccumulator.get();
+				for(int c = 0;c < components[v].length;c++){
+					for(int key:components[v][c]){
+						accumulator.add((key + offsets[v][c]) & filter, 1.);
+					}
+				}
+				SparseVector sv = accumulator.toVector();
+				accumulatorTime += System.nanoTime() - start;
+
+				entries += sv.getUsed();
+				if(!Arrays.equals(sv.getIndex(), Arrays.copyOf(sorted.index, sorted.used))
+						|| !Arrays.equals(sv.getData(), Arrays.copyOf(sorted.data, sorted.used))){
+					mismatches++;
+				}
+			}
+			if(round == 0){
+				// warm up
+				sortedTime = accumulatorTime = entries = 0;
+			}
+		}
+		int measured = (NUM_ROUNDS - 1) * NUM_VECTORS;
+		System.out.format("%-28s  %10.1f  %16.3f  %19.3f  %7.2f  %10d%n", name, (double)entries / measured,
+				sortedTime / 1.e3 / measured, accumulatorTime / 1.e3 / measured, (double)sortedTime / accumulatorTime, mismatches);
+		if(mismatches > 0){
+			System.exit(-1);
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length > 1){
+			System.err.println("Usage: java "+SparseVectorBenchmark.class.getName()+ " [fvBitSize]");
+			System.exit(-1);
+		}
+		int fvBitSize = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int filter = (1 << fvBitSize) - 1;
+		MersenneTwister random = new MersenneTwister(0);
+		System.out.println("fvSize: "+(filter + 1)+", vectors: "+NUM_VECTORS+" x "+(NUM_ROUNDS - 1)+" rounds");
+		System.out.println("components x features         entries  sorted (us/vector)  accumulator (us/vector)  speedup  mismatches");
+		int[][] shapes = {{1, 100}, {10, 50}, {50, 50}, {200, 50}, {1000, 20}};
+		for(int[] shape:shapes){
+			run(shape[0]+" x "+shape[1], components(random, shape[0], shape[1], filter), offsets(random, shape[0]), filter);
+		}
+	}
+}
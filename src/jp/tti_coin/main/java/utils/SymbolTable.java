@@ -0,0 +1,46 @@
+package utils;
+
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+// maps symbols to dense ids in the order of their first appearance
+public class SymbolTable {
+	private final ConcurrentHashMap<String, Integer> ids;
+	private final Vector<String> symbols;
+
+	public SymbolTable(String... symbols){
+		this.ids = new ConcurrentHashMap<String, Integer>();
+		this.symbols = new Vector<String>();
+		for(String symbol:symbols){
+			getId(symbol);
+		}
+	}
+
+	public int getId(String symbol){
+		Integer id = ids.get(symbol);
+		if(id != null){
+			return id;
+		}
+		synchronized(this){
+			id = ids.get(symbol);
+			if(id == null){
+				id = symbols.size();
+				symbols.add(symbol);
+				ids.put(symbol, id);
+			}
+			return id;
+		}
+	}
+
+	public boolean contains(String symbol){
+		return ids.containsKey(symbol);
+	}
+
+	public String getSymbol(int id){
+		return symbols.get(id);
+	}
+
+	public int size(){
+		return symbols.size();
+	}
+}
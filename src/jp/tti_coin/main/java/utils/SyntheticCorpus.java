@@ -0,0 +1,323 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Vector;
+
+import com.google.common.io.Files;
+
+// generates documents in the format of the ENJU English data (.txt, .enju.so and .ann),
+// so that training, prediction and benchmarks can be run without the RANIS corpus.
+// each sentence is a sequence of clauses "NP verb NP (preposition NP)" with a parse tree
+// and predicate-argument links similar to those of ENJU.
+public class SyntheticCorpus {
+	private static final String[] NOUN_POSES = {"NN", "NNS", "NNP"};
+	private int numDocuments = 10;
+	private int numSentences = 10;
+	private int minSentenceLength = 10;
+	private int maxSentenceLength = 30;
+	// probability that a noun phrase is an entity
+	private double entityDensity = 0.5;
+	// probability that a pair of entities in a sentence has a relation
+	private double relationDensity = 0.2;
+	private int numEntityTypes = 4;
+	private int numRelationTypes = 3;
+	private int vocabularySize = 2000;
+	private long seed = 0;
+	// number of tokens written by the last call of generate
+	private long numTokens;
+
+	private MersenneTwister random;
+	private String[] nouns, verbs, adjectives, determiners, prepositions;
+
+	// tokens of the sentence being generated
+	private class Token {
+		String surface, cat, pos, pred;
+		int start, end;
+		int id;
+		// index of the argument tokens (-1: none), linked to the constituent of the argument
+		int arg1 = -1, arg2 = -1;
+		// first token of the phrase headed by this token (-1: no phrase)
+		int phraseStart = -1;
+	}
+
+	private class Entity {
+		int start, end, type;
+	}
+
+	public void setNumDocuments(int numDocuments) {
+		this.numDocuments = numDocuments;
+	}
+	public void setNumSentences(int numSentences) {
+		this.numSentences = numSentences;
+	}
+	public void setSentenceLength(int minSentenceLength, int maxSentenceLength) {
+		assert 4 <= minSentenceLength && minSentenceLength <= maxSentenceLength;
+		this.minSentenceLength = minSentenceLength;
+		this.maxSentenceLength = maxSentenceLength;
+	}
+	public void setEntityDensity(double entityDensity) {
+		this.entityDensity = entityDensity;
+	}
+	public void setRelationDensity(double relationDensity) {
+		this.relationDensity = relationDensity;
+	}
+	public void setNumEntityTypes(int numEntityTypes) {
+		this.numEntityTypes = numEntityTypes;
+	}
+	public void setNumRelationTypes(int numRelationTypes) {
+		this.numRelationTypes = numRelationTypes;
+	}
+	public void setVocabularySize(int vocabularySize) {
+		this.vocabularySize = vocabularySize;
+	}
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getNumDocuments() {
+		return numDocuments;
+	}
+	public int getNumSentences() {
+		return numSentences;
+	}
+	public long getNumTokens() {
+		return numTokens;
+	}
+
+	private String[] vocabulary(int size, int minLength, int maxLength){
+		String[] words = new String[size];
+		for(int i = 0;i < size;i++){
+			int length = minLength + random.nextInt(maxLength - minLength + 1);
+			StringBuilder sb = new StringBuilder();
+			for(int j = 0;j < length;j++){
+				sb.append((char)('a' + random.nextInt(26)));
+			}
+			words[i] = sb.toString();
+		}
+		return words;
+	}
+
+	// frequent words are drawn more often, as in natural text
+	private String draw(String[] words){
+		double r = random.nextDouble();
+		return words[(int)(r * r * words.length)];
+	}
+
+	private Token token(List<Token> tokens, String surface, String cat, String pos, String pred){
+		Token token = new Token();
+		token.surface = surface;
+		token.cat = cat;
+		token.pos = pos;
+		token.pred = pred;
+		tokens.add(token);
+		return token;
+	}
+
+	// adds a noun phrase and returns the index of its head noun
+	private int nounPhrase(List<Token> tokens, List<Entity> entities){
+		int phraseStart = tokens.size();
+		int determiner = -1;
+		if(random.nextInt(2) == 0){
+			determiner = tokens.size();
+			token(tokens, draw(determiners), "D", "DT", "det_arg1");
+		}
+		List<Integer> modifiers = new Vector<Integer>();
+		while(random.nextInt(3) == 0){
+			modifiers.add(tokens.size());
+			token(tokens, draw(adjectives), "ADJ", "JJ", "adj_arg1");
+		}
+		int nounStart = tokens.size();
+		int numNouns = 1 + (random.nextInt(3) == 0 ? 1 + random.nextInt(2) : 0);
+		for(int i = 0;i < numNouns;i++){
+			token(tokens, draw(nouns), "N", NOUN_POSES[random.nextInt(NOUN_POSES.length)], i == numNouns - 1 ? "noun_arg0" : "noun_arg1");
+		}
+		int head = tokens.size() - 1;
+		for(int i = nounStart;i < head;i++){
+			tokens.get(i).arg1 = head;
+		}
+		for(int modifier:modifiers){
+			tokens.get(modifier).arg1 = head;
+		}
+		if(determiner >= 0){
+			tokens.get(determiner).arg1 = head;
+		}
+		tokens.get(head).phraseStart = phraseStart;
+		if(random.nextDouble() < entityDensity){
+			Entity entity = new Entity();
+			entity.start = nounStart;
+			entity.end = head;
+			entity.type = random.nextInt(numEntityTypes);
+			entities.add(entity);
+		}
+		return head;
+	}
+
+	private void sentence(List<Token> tokens, List<Entity> entities){
+		int length = minSentenceLength + random.nextInt(maxSentenceLength - minSentenceLength + 1);
+		while(tokens.size() < length){
+			int subject = nounPhrase(tokens, entities);
+			int verb = tokens.size();
+			token(tokens, draw(verbs), "V", random.nextInt(2) == 0 ? "VBZ" : "VBD", "verb_arg12");
+			int object = nounPhrase(tokens, entities);
+			tokens.get(verb).arg1 = subject;
+			tokens.get(verb).arg2 = object;
+			if(tokens.size() < length && random.nextInt(2) == 0){
+				int preposition = tokens.size();
+				token(tokens, draw(prepositions), "P", "IN", "prep_arg12");
+				int argument = nounPhrase(tokens, entities);
+				tokens.get(preposition).arg1 = verb;
+				tokens.get(preposition).arg2 = argument;
+			}
+		}
+	}
+
+	private static String attribute(String key, String value){
+		return " "+key+"=\""+value+"\"";
+	}
+
+	private void document(String fileBase) throws IOException {
+		StringBuilder text = new StringBuilder();
+		StringBuilder parse = new StringBuilder();
+		StringBuilder annotation = new StringBuilder();
+		int consId = 0, tokId = 0, entityId = 1, relationId = 1;
+		for(int s = 0;s < numSentences;s++){
+			List<Token> tokens = new Vector<Token>();
+			List<Entity> entities = new Vector<Entity>();
+			sentence(tokens, entities);
+			if(s > 0){
+				text.append("\n");
+			}
+			int sentenceStart = text.length();
+			for(int i = 0;i < tokens.size();i++){
+				if(i > 0){
+					text.append(" ");
+				}
+				Token token = tokens.get(i);
+				token.start = text.length();
+				text.append(token.surface);
+				token.end = text.length();
+				token.id = tokId++;
+			}
+			numTokens += tokens.size();
+			int sentenceEnd = text.length();
+			parse.append(sentenceStart+"\t"+sentenceEnd+"\tsentence"+attribute("id", "s"+s)+attribute("parse_status", "success")+"\n");
+			// a constituent for each token and each phrase, and a root headed by the first verb
+			int[] tokenCons = new int[tokens.size()];
+			for(int i = 0;i < tokens.size();i++){
+				tokenCons[i] = consId++;
+			}
+			int[] phraseCons = new int[tokens.size()];
+			int rootHead = -1;
+			for(int i = 0;i < tokens.size();i++){
+				Token token = tokens.get(i);
+				phraseCons[i] = tokenCons[i];
+				if(token.phraseStart >= 0 && token.phraseStart < i){
+					phraseCons[i] = consId++;
+				}
+				if(rootHead < 0 && token.cat.equals("V")){
+					rootHead = i;
+				}
+			}
+			int root = consId++;
+			parse.append(sentenceStart+"\t"+sentenceEnd+"\tcons"+attribute("id", "c"+root)+attribute("cat", "S")+attribute("xcat", "")
+					+attribute("head", "c"+tokenCons[rootHead])+attribute("sem_head", "c"+tokenCons[rootHead])+"\n");
+			for(int i = 0;i < tokens.size();i++){
+				Token token = tokens.get(i);
+				if(phraseCons[i] != tokenCons[i]){
+					parse.append(tokens.get(token.phraseStart).start+"\t"+token.end+"\tcons"+attribute("id", "c"+phraseCons[i])+attribute("cat", "NP")+attribute("xcat", "")
+							+attribute("head", "c"+tokenCons[i])+attribute("sem_head", "c"+tokenCons[i])+"\n");
+				}
+				parse.append(token.start+"\t"+token.end+"\tcons"+attribute("id", "c"+tokenCons[i])+attribute("cat", token.cat+"X")+attribute("xcat", "")
+						+attribute("head", "t"+token.id)+attribute("sem_head", "t"+token.id)+"\n");
+				StringBuilder tok = new StringBuilder();
+				tok.append(token.start+"\t"+token.end+"\ttok"+attribute("id", "t"+token.id)+attribute("cat", token.cat)+attribute("pos", token.pos)
+						+attribute("base", token.surface)+attribute("lexentry", "["+token.cat+"]"+token.pos)+attribute("pred", token.pred));
+				if(token.cat.equals("V")){
+					tok.append(attribute("type", "verb_mod"));
+				}
+				if(token.arg1 >= 0){
+					tok.append(attribute("arg1", "c"+phraseCons[token.arg1]));
+				}
+				if(token.arg2 >= 0){
+					tok.append(attribute("arg2", "c"+phraseCons[token.arg2]));
+				}
+				parse.append(tok+"\n");
+			}
+			int[] entityIds = new int[entities.size()];
+			for(int i = 0;i < entities.size();i++){
+				Entity entity = entities.get(i);
+				int start = tokens.get(entity.start).start, end = tokens.get(entity.end).end;
+				entityIds[i] = entityId++;
+				annotation.append("T"+entityIds[i]+"\tTYPE"+entity.type+" "+start+" "+end+"\t"+text.substring(start, end)+"\n");
+			}
+			for(int i = 0;i < entities.size();i++){
+				for(int j = i + 1;j < entities.size();j++){
+					if(random.nextDouble() < relationDensity){
+						annotation.append("R"+(relationId++)+"\tREL"+random.nextInt(numRelationTypes)+" Arg1:T"+entityIds[i]+" Arg2:T"+entityIds[j]+"\n");
+					}
+				}
+			}
+		}
+		text.append("\n");
+		write(fileBase+".txt", text);
+		write(fileBase+".enju.so", parse);
+		write(fileBase+".ann", annotation);
+	}
+
+	private static void write(String filename, CharSequence content) throws IOException {
+		BufferedWriter writer = Files.newWriter(new File(filename), Charset.forName("US-ASCII"));
+		writer.append(content);
+		writer.close();
+	}
+
+	// writes numDocuments documents to directory
+	public void generate(String directory) throws IOException {
+		random = new MersenneTwister(seed);
+		numTokens = 0;
+		nouns = vocabulary(vocabularySize, 3, 10);
+		verbs = vocabulary(Math.max(1, vocabularySize / 5), 3, 8);
+		adjectives = vocabulary(Math.max(1, vocabularySize / 5), 3, 8);
+		determiners = new String[]{"the", "a", "this", "these", "some"};
+		prepositions = new String[]{"of", "in", "on", "with", "by", "for"};
+		File dir = new File(directory);
+		if(!dir.exists() && !dir.mkdirs()){
+			throw new IOException("Cannot create "+directory);
+		}
+		for(int d = 0;d < numDocuments;d++){
+			document(directory+File.separator+String.format("doc%05d", d));
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length < 1 || args.length > 7){
+			System.err.println("Usage: java "+SyntheticCorpus.class.getName()+" directory [#documents] [#sentences] [min sentence length] [max sentence length] [entity density] [relation density]");
+			System.exit(-1);
+		}
+		SyntheticCorpus corpus = new SyntheticCorpus();
+		if(args.length > 1){
+			corpus.setNumDocuments(Integer.parseInt(args[1]));
+		}
+		if(args.length > 2){
+			corpus.setNumSentences(Integer.parseInt(args[2]));
+		}
+		if(args.length > 4){
+			corpus.setSentenceLength(Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+		}
+		if(args.length > 5){
+			corpus.setEntityDensity(Double.parseDouble(args[5]));
+		}
+		if(args.length > 6){
+			corpus.setRelationDensity(Double.parseDouble(args[6]));
+		}
+		try {
+			corpus.generate(args[0]);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+}
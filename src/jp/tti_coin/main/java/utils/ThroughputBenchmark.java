@@ -0,0 +1,215 @@
+package utils;
+
+import inference.Inference;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import learn.StructuredLearning;
+import model.FeatureGenerator;
+import model.Model;
+
+import com.google.common.io.Files;
+
+import config.Parameters;
+import data.Data;
+import data.nlp.joint.JointData;
+import data.nlp.joint.JointEvaluator;
+import data.nlp.joint.JointFeatureGenerator;
+import data.nlp.relation.RelationData;
+import data.nlp.relation.RelationEvaluator;
+import data.nlp.relation.RelationFeatureGenerator;
+
+// runs joint training, joint prediction and relation training on a synthetic corpus
+// and reports the time, throughput and peak heap of each phase.
+// the corpus and the model are written to a temporary directory, the other settings are read from the parameters.
+public class ThroughputBenchmark {
+	private final String parameterFile;
+	private final SyntheticCorpus corpus;
+	private String directory;
+
+	public ThroughputBenchmark(String parameterFile, SyntheticCorpus corpus) {
+		this.parameterFile = parameterFile;
+		this.corpus = corpus;
+	}
+
+	private static void resetPeakHeap(){
+		System.gc();
+		for(MemoryPoolMXBean pool:ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP){
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	// sum of the peaks of the heap pools since the last reset (an upper bound of the peak heap)
+	private static long getPeakHeap(){
+		long peak = 0;
+		for(MemoryPoolMXBean pool:ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP){
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	// the parameters are loaded for each task, since loading the data changes them
+	private Parameters loadParameters(){
+		Parameters params = Parameters.load(parameterFile);
+		params.setTrainFolder(directory);
+		params.setDevFolder(null);
+		params.setTestFolder(directory);
+		params.setModelFile(directory+File.separator+"model");
+		// the progress messages of training would be mixed with the report
+		params.setVerbosity(Math.min(params.getVerbosity(), 1));
+		return params;
+	}
+
+	private long start;
+
+	private void startPhase(){
+		start = System.nanoTime();
+	}
+
+	// passes is the number of times each sentence is processed in the phase (0: no throughput)
+	private void endPhase(String task, String phase, int passes){
+		double seconds = (System.nanoTime() - start) / 1.e9;
+		long sentences = (long)corpus.getNumDocuments() * corpus.getNumSentences() * passes;
+		long tokens = corpus.getNumTokens() * passes;
+		if(passes > 0){
+			System.out.format("%-16s %-10s %10.3f %14.1f %14.1f%n", task, phase, seconds, sentences / seconds, tokens / seconds);
+		}else{
+			System.out.format("%-16s %-10s %10.3f %14s %14s%n", task, phase, seconds, "-", "-");
+		}
+	}
+
+	private void endTask(String task){
+		System.out.format("%-16s %-10s %10s %14s %14s  peak heap: %.1f MB%n", task, "total", "-", "-", "-", getPeakHeap() / 1048576.);
+	}
+
+	private static void cacheFeatures(Data data){
+		for(int i = 0;i < data.size();i++){
+			data.getInstance(i).cacheFeatures();
+		}
+	}
+
+	private void jointTrain(){
+		String task = "JointTrain";
+		resetPeakHeap();
+		Parameters params = loadParameters();
+		startPhase();
+		JointData train = new JointData(params, params.getTrainFolder(), true);
+		endPhase(task, "load", 1);
+		startPhase();
+		cacheFeatures(train);
+		endPhase(task, "features", 1);
+		Inference infer = new Inference(params);
+		StructuredLearning sl = new StructuredLearning(params, infer, new JointEvaluator(params, infer));
+		FeatureGenerator fg = new JointFeatureGenerator(params);
+		startPhase();
+		Model model = sl.learn(train, fg, null);
+		endPhase(task, "learn", sl.getIterations());
+		infer.shutdown();
+		startPhase();
+		model.save(params.getModelFile());
+		endPhase(task, "save", 0);
+		endTask(task);
+	}
+
+	private void jointPredict(){
+		String task = "JointPredict";
+		resetPeakHeap();
+		Parameters params = loadParameters();
+		startPhase();
+		JointData test = new JointData(params, params.getTestFolder(), false);
+		endPhase(task, "load", 1);
+		Inference infer = new Inference(params);
+		StructuredLearning sl = new StructuredLearning(params, infer, new JointEvaluator(params, infer));
+		FeatureGenerator fg = new JointFeatureGenerator(params);
+		Model model = Model.create(params, fg);
+		startPhase();
+		model.load(params.getModelFile());
+		endPhase(task, "model", 0);
+		startPhase();
+		cacheFeatures(test);
+		endPhase(task, "features", 1);
+		startPhase();
+		sl.predict(model, test);
+		endPhase(task, "predict", 1);
+		infer.shutdown();
+		endTask(task);
+	}
+
+	private void relationTrain(){
+		String task = "RelationTrain";
+		resetPeakHeap();
+		Parameters params = loadParameters();
+		startPhase();
+		RelationData train = new RelationData(params, params.getTrainFolder(), true);
+		endPhase(task, "load", 1);
+		startPhase();
+		cacheFeatures(train);
+		endPhase(task, "features", 1);
+		Inference infer = new Inference(params);
+		StructuredLearning sl = new StructuredLearning(params, infer, new RelationEvaluator(params, infer));
+		FeatureGenerator fg = new RelationFeatureGenerator(params);
+		startPhase();
+		sl.learn(train, fg, null);
+		endPhase(task, "learn", sl.getIterations());
+		infer.shutdown();
+		endTask(task);
+	}
+
+	public void run() throws IOException {
+		File dir = Files.createTempDir();
+		directory = dir.getPath();
+		try {
+			startPhase();
+			corpus.generate(directory);
+			System.out.format("documents: %d, sentences: %d, tokens: %d%n", corpus.getNumDocuments(),
+					(long)corpus.getNumDocuments() * corpus.getNumSentences(), corpus.getNumTokens());
+			System.out.println("task             phase         time (s)  sentences/sec     tokens/sec");
+			endPhase("SyntheticCorpus", "generate", 1);
+			jointTrain();
+			jointPredict();
+			relationTrain();
+		} finally {
+			for(File file:dir.listFiles()){
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length < 1 || args.length > 7){
+			System.err.println("Usage: java "+ThroughputBenchmark.class.getName()+" parameters.yaml [#documents] [#sentences] [min sentence length] [max sentence length] [entity density] [relation density]");
+			System.exit(-1);
+		}
+		SyntheticCorpus corpus = new SyntheticCorpus();
+		if(args.length > 1){
+			corpus.setNumDocuments(Integer.parseInt(args[1]));
+		}
+		if(args.length > 2){
+			corpus.setNumSentences(Integer.parseInt(args[2]));
+		}
+		if(args.length > 4){
+			corpus.setSentenceLength(Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+		}
+		if(args.length > 5){
+			corpus.setEntityDensity(Double.parseDouble(args[5]));
+		}
+		if(args.length > 6){
+			corpus.setRelationDensity(Double.parseDouble(args[6]));
+		}
+		try {
+			new ThroughputBenchmark(args[0], corpus).run();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package utils;
+
+import model.DenseWeightStorage;
+import model.FloatWeightStorage;
+import model.Model;
+import model.OffHeapWeightStorage;
+import model.QuantizedWeightStorage;
+import model.SparseWeightStorage;
+import model.WeightStorage;
+import config.Parameters;
+import data.nlp.joint.JointFeatureGenerator;
+
+// compares the memory of the weight storages and the score errors against double weights.
+// the weights are read from the model of the given parameters, or generated by random sparse updates.
+public class WeightStorageBenchmark {
+	private static final int NUM_INSTANCES = 20000;
+	private static final int NUM_CANDIDATES = 8;
+	private static final int NUM_FEATURES = 200;
+
+	// features follow a power law over a vocabulary larger than the hash space
+	private static int randomFeature(MersenneTwister random, int size){
+		long rank = (long)Math.exp(random.nextDouble() * Math.log(4. * size));
+		long h = rank * 0x9E3779B97F4A7C15L;
+		return (int)((h ^ (h >>> 32)) & (size - 1));
+	}
+
+	private static DenseWeightStorage randomWeights(MersenneTwister random, int size){
+		DenseWeightStorage weights = new DenseWeightStorage(size);
+		int numUpdates = size / 4;
+		for(int i = 0;i < numUpdates;i++){
+			weights.add(randomFeature(random, size), random.nextGaussian());
+		}
+		weights.scale(1. / numUpdates);
+		return weights;
+	}
+
+	private static double score(WeightStorage weights, int[] index, double[] value){
+		double score = 0.;
+		for(int i = 0;i < index.length;i++){
+			score += weights.get(index[i]) * value[i];
+		}
+		return score;
+	}
+
+	public static void main(String[] args){
+		if(args.length > 1){
+			System.err.println("Usage: java "+WeightStorageBenchmark.class.getName()+ " [parameters.yaml]");
+			System.exit(-1);
+		}
+		Parameters params;
+		WeightStorage reference;
+		MersenneTwister random = new MersenneTwister(0);
+		if(args.length == 1){
+			params = Parameters.load(args[0]);
+			Model model = Model.create(params, new JointFeatureGenerator(params));
+			model.load(params.getModelFile());
+			reference = new DenseWeightStorage(params.fvSize());
+			model.getWeight(true).getStorage().addTo(reference, model.getWeight(true).getFactor());
+		}else{
+			params = new Parameters();
+			reference = randomWeights(random, params.fvSize());
+		}
+		int size = reference.size();
+
+		String[] names = {"double", "float", "sparse", "quantized (16 bits)", "quantized (8 bits)", "off-heap direct", "off-heap mapped"};
+		WeightStorage[] storages = new WeightStorage[names.length];
+		storages[0] = reference;
+		storages[1] = new FloatWeightStorage(size);
+		reference.addTo(storages[1], 1.);
+		storages[2] = new SparseWeightStorage(size);
+		reference.addTo(storages[2], 1.);
+		storages[3] = new QuantizedWeightStorage(reference, 16);
+		storages[4] = new QuantizedWeightStorage(reference, 8);
+		storages[5] = new OffHeapWeightStorage(size, false);
+		reference.addTo(storages[5], 1.);
+		storages[6] = new OffHeapWeightStorage(size, true);
+		reference.addTo(storages[6], 1.);
+
+		int[][][] indices = new int[NUM_INSTANCES][NUM_CANDIDATES][NUM_FEATURES];
+		double[][][] values = new double[NUM_INSTANCES][NUM_CANDIDATES][NUM_FEATURES];
+		for(int i = 0;i < NUM_INSTANCES;i++){
+			for(int j = 0;j < NUM_CANDIDATES;j++){
+				for(int k = 0;k < NUM_FEATURES;k++){
+					indices[i][j][k] = randomFeature(random, size);
+					values[i][j][k] = 1. / Math.sqrt(NUM_FEATURES);
+				}
+			}
+		}
+		double[][] referenceScores = new double[NUM_INSTANCES][NUM_CANDIDATES];
+		int[] referenceBest = new int[NUM_INSTANCES];
+		for(int i = 0;i < NUM_INSTANCES;i++){
+			for(int j = 0;j < NUM_CANDIDATES;j++){
+				referenceScores[i][j] = score(reference, indices[i][j], values[i][j]);
+				if(referenceScores[i][j] > referenceScores[i][referenceBest[i]]){
+					referenceBest[i] = j;
+				}
+			}
+		}
+
+		System.out.println("fvSize: "+size+", instances: "+NUM_INSTANCES+" x "+NUM_CANDIDATES+" candidates x "+NUM_FEATURES+" features");
+		System.out.println("storage               memory (MB)  mean abs error  max abs error  same best  time (ms)");
+		for(int s = 0;s < storages.length;s++){
+			double sumError = 0., maxError = 0.;
+			int same = 0;
+			long start = System.nanoTime();
+			for(int i = 0;i < NUM_INSTANCES;i++){
+				int best = 0;
+				double bestScore = Double.NEGATIVE_INFINITY;
+				for(int j = 0;j < NUM_CANDIDATES;j++){
+					double score = score(storages[s], indices[i][j], values[i][j]);
+					double error = Math.abs(score - referenceScores[i][j]);
+					sumError += error;
+					maxError = Math.max(maxError, error);
+					if(score > bestScore){
+						bestScore = score;
+						best = j;
+					}
+				}
+				if(best == referenceBest[i]){
+					same++;
+				}
+			}
+			long time = System.nanoTime() - start;
+			System.out.format("%-20s  %11.2f  %14.3e  %13.3e  %8.4f  %9.1f%n", names[s], storages[s].getMemory() / (1024. * 1024.),
+					sumError / (NUM_INSTANCES * NUM_CANDIDATES), maxError, (double)same / NUM_INSTANCES, time / 1.e6);
+		}
+	}
+}